@@ -0,0 +1,70 @@
+package com.gearwenxin.cache;
+
+import com.gearwenxin.entity.response.ChatResponse;
+import com.google.gson.Gson;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 缓存响应的序列化与重放
+ * <p>
+ * 响应分片以JSON保存，每次重放反序列化出新对象；流式按原分片重放，非流式合并为一个响应
+ */
+class CachedResponses {
+
+    private static final Gson gson = new Gson();
+
+    private CachedResponses() {
+    }
+
+    /**
+     * 记录响应分片，正常结束且不含错误码时回调onComplete
+     */
+    static Flux<ChatResponse> record(Flux<ChatResponse> flux, Consumer<List<String>> onComplete) {
+        return Flux.defer(() -> {
+            List<String> chunks = new ArrayList<>();
+            AtomicBoolean cacheable = new AtomicBoolean(true);
+            return flux
+                    .doOnNext(response -> {
+                        if (response.getErrorCode() != null || response.getErrorMsg() != null) {
+                            cacheable.set(false);
+                        }
+                        // 立即序列化，避免下游修改响应对象
+                        chunks.add(gson.toJson(response));
+                    })
+                    .doOnComplete(() -> {
+                        if (cacheable.get() && !chunks.isEmpty()) {
+                            onComplete.accept(List.copyOf(chunks));
+                        }
+                    });
+        });
+    }
+
+    static Flux<ChatResponse> replay(List<String> chunks, boolean stream) {
+        List<ChatResponse> responses = chunks.stream()
+                .map(chunk -> gson.fromJson(chunk, ChatResponse.class))
+                .toList();
+        if (stream || responses.size() == 1) {
+            return Flux.fromIterable(responses);
+        }
+        // 非流式请求命中流式缓存时合并分片
+        ChatResponse merged = responses.get(responses.size() - 1);
+        StringBuilder result = new StringBuilder();
+        responses.forEach(response -> {
+            if (response.getResult() != null) {
+                result.append(response.getResult());
+            }
+        });
+        merged.setResult(result.toString());
+        return Flux.just(merged);
+    }
+
+    static long sizeOf(List<String> chunks) {
+        return chunks.stream().mapToLong(chunk -> 2L * chunk.length()).sum();
+    }
+
+}
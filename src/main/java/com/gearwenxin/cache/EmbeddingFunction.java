@@ -0,0 +1,13 @@
+package com.gearwenxin.cache;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 文本向量化函数，用于语义缓存
+ */
+@FunctionalInterface
+public interface EmbeddingFunction {
+
+    Mono<float[]> embed(String text);
+
+}
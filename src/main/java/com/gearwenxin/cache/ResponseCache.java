@@ -0,0 +1,244 @@
+package com.gearwenxin.cache;
+
+import com.gearwenxin.entity.response.ChatResponse;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 对话响应本地缓存
+ * <p>
+ * key为出站请求体的规范化摘要，value为响应分片的JSON（每次命中反序列化出新对象，调用方修改不会污染缓存）；
+ * 流式请求按原分片重放，非流式请求命中流式缓存时合并为一个响应。
+ * <ul>
+ *     <li>TTL：写入后 ttl 内直接命中；之后 stale 时间内返回旧值并在后台刷新一次（stale-while-revalidate）</li>
+ *     <li>容量：按JSON字节数限制总大小，超出时淘汰最久未访问的条目</li>
+ *     <li>准入：TinyLFU，新条目的访问频率不高于将被淘汰的条目时不写入，避免一次性请求冲掉热点</li>
+ * </ul>
+ * 只缓存正常结束且不含错误码的响应。
+ */
+@Slf4j
+public class ResponseCache {
+
+    public static final String TAG = "ResponseCache";
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    public static final long DEFAULT_STALE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    // 估算的平均条目大小，用于确定频率估计的规模
+    private static final int ESTIMATED_ENTRY_BYTES = 4096;
+
+    // 访问顺序，最久未访问的在前，由this锁保护
+    private final LinkedHashMap<String, CacheEntry> entryMap = new LinkedHashMap<>(16, 0.75f, true);
+    private FrequencySketch sketch;
+    private long usedBytes = 0;
+
+    @Getter
+    private volatile long maxBytes;
+    private volatile long ttlNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TTL_MILLIS);
+    private volatile long staleNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_STALE_MILLIS);
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder staleHitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder rejectCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    private volatile static ResponseCache instance = null;
+
+    private ResponseCache() {
+        setMaxBytes(DEFAULT_MAX_BYTES);
+    }
+
+    public static ResponseCache getInstance() {
+        if (instance == null) {
+            synchronized (ResponseCache.class) {
+                if (instance == null) {
+                    instance = new ResponseCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 命中时重放缓存，未命中时通过loader请求并在正常结束后写入缓存
+     *
+     * @param stream 是否按分片重放
+     */
+    public Flux<ChatResponse> getOrLoad(String key, boolean stream, Supplier<? extends Flux<ChatResponse>> loader) {
+        return Flux.defer(() -> {
+            CacheEntry entry = lookup(key);
+            long now = System.nanoTime();
+            if (entry != null && now - entry.createTime < ttlNanos) {
+                hitCount.increment();
+                return replay(entry, stream);
+            }
+            if (entry != null && now - entry.createTime < ttlNanos + staleNanos) {
+                staleHitCount.increment();
+                refresh(key, entry, loader);
+                return replay(entry, stream);
+            }
+            missCount.increment();
+            return load(key, loader);
+        });
+    }
+
+    private synchronized CacheEntry lookup(String key) {
+        sketch.increment(key);
+        CacheEntry entry = entryMap.get(key);
+        if (entry != null && System.nanoTime() - entry.createTime >= ttlNanos + staleNanos) {
+            remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 过期但在stale时间内的条目只触发一次后台刷新
+     */
+    private void refresh(String key, CacheEntry entry, Supplier<? extends Flux<ChatResponse>> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        log.debug("[{}] refresh stale entry: {}", TAG, key);
+        load(key, loader).subscribe(
+                response -> {
+                },
+                throwable -> {
+                    log.warn("[{}] refresh failed: {}", TAG, throwable.getMessage());
+                    entry.refreshing.set(false);
+                });
+    }
+
+    private Flux<ChatResponse> load(String key, Supplier<? extends Flux<ChatResponse>> loader) {
+        return Flux.defer(() -> CachedResponses.record(loader.get(), chunks -> put(key, chunks)));
+    }
+
+    private synchronized void put(String key, List<String> chunks) {
+        long bytes = CachedResponses.sizeOf(chunks);
+        if (bytes > maxBytes) {
+            rejectCount.increment();
+            return;
+        }
+        boolean exists = entryMap.containsKey(key);
+        if (exists) {
+            remove(key);
+        }
+        // 计算需要淘汰的条目，已缓存的key刷新时不经过准入
+        List<String> victims = new ArrayList<>();
+        long freed = 0;
+        int candidateFrequency = sketch.frequency(key);
+        Iterator<Map.Entry<String, CacheEntry>> iterator = entryMap.entrySet().iterator();
+        while (usedBytes - freed + bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> victim = iterator.next();
+            if (!exists && sketch.frequency(victim.getKey()) >= candidateFrequency) {
+                rejectCount.increment();
+                return;
+            }
+            victims.add(victim.getKey());
+            freed += victim.getValue().bytes;
+        }
+        victims.forEach(victimKey -> {
+            remove(victimKey);
+            evictionCount.increment();
+        });
+        entryMap.put(key, new CacheEntry(chunks, bytes, System.nanoTime()));
+        usedBytes += bytes;
+    }
+
+    private void remove(String key) {
+        CacheEntry removed = entryMap.remove(key);
+        if (removed != null) {
+            usedBytes -= removed.bytes;
+        }
+    }
+
+    private Flux<ChatResponse> replay(CacheEntry entry, boolean stream) {
+        return CachedResponses.replay(entry.chunks, stream);
+    }
+
+    public synchronized void invalidateAll() {
+        entryMap.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE >> 1, Math.max(16, maxBytes / ESTIMATED_ENTRY_BYTES)));
+        while (usedBytes > maxBytes && !entryMap.isEmpty()) {
+            remove(entryMap.keySet().iterator().next());
+            evictionCount.increment();
+        }
+    }
+
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    public void setStaleMillis(long staleMillis) {
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMillis);
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int size() {
+        return entryMap.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getStaleHitCount() {
+        return staleHitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getRejectCount() {
+        return rejectCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCache { size: " + size() + ", usedBytes: " + getUsedBytes() + ", maxBytes: " + maxBytes +
+                ", hitCount: " + getHitCount() + ", staleHitCount: " + getStaleHitCount() +
+                ", missCount: " + getMissCount() + ", rejectCount: " + getRejectCount() +
+                ", evictionCount: " + getEvictionCount() + " }";
+    }
+
+    private static class CacheEntry {
+
+        private final List<String> chunks;
+        private final long bytes;
+        private final long createTime;
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        private CacheEntry(List<String> chunks, long bytes, long createTime) {
+            this.chunks = chunks;
+            this.bytes = bytes;
+            this.createTime = createTime;
+        }
+
+    }
+
+}
@@ -0,0 +1,353 @@
+package com.gearwenxin.cache;
+
+import com.gearwenxin.common.ErrorCode;
+import com.gearwenxin.common.RequestDigest;
+import com.gearwenxin.entity.chatmodel.ChatBaseRequest;
+import com.gearwenxin.entity.response.ChatResponse;
+import com.gearwenxin.exception.WenXinException;
+import com.gearwenxin.vector.LshIndex;
+import com.gearwenxin.vector.SearchResult;
+import com.gearwenxin.vector.VectorIndex;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 语义响应缓存
+ * <p>
+ * 对用户输入向量化后在近似最近邻索引中查找相似的历史输入，余弦相似度不低于阈值时直接返回其响应；
+ * 除content外其余参数（模型、system、temperature等）必须完全相同才会匹配。
+ * <ul>
+ *     <li>向量化函数没有默认值，启用前须通过 {@link #setEmbeddingFunction} 设置（如 EmbeddingClient::embed），
+ *     未设置时调用以EMBEDDING_FUNCTION_MISSING结束</li>
+ *     <li>容量：按条目数限制，超出时淘汰最久未访问的条目；超过ttl的条目不再命中</li>
+ *     <li>误命中：调用方发现返回的响应不适用时通过 {@link #reportFalseHit} 删除该条目并计数</li>
+ * </ul>
+ * 向量化失败时直接请求，不影响调用。
+ */
+@Slf4j
+public class SemanticCache {
+
+    public static final String TAG = "SemanticCache";
+
+    public static final float DEFAULT_THRESHOLD = 0.92f;
+    public static final int DEFAULT_CAPACITY = 10000;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    // 首次查找的候选数，候选都不属于当前分区时按倍数扩大
+    private static final int SEARCH_TOP_K = 8;
+    private static final int SEARCH_EXPAND_FACTOR = 4;
+
+    private static final Gson gson = new Gson();
+
+    // 访问顺序，最久未访问的在前；与index一起由this锁保护
+    private final LinkedHashMap<Long, CacheEntry> entryMap = new LinkedHashMap<>(16, 0.75f, true);
+    private final VectorIndex index = new LshIndex();
+    private long nextId = 0;
+
+    @Getter
+    private volatile EmbeddingFunction embeddingFunction;
+    @Getter
+    private volatile float threshold = DEFAULT_THRESHOLD;
+    @Getter
+    private volatile int capacity = DEFAULT_CAPACITY;
+    private volatile long ttlNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TTL_MILLIS);
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder falseHitCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder embedFailureCount = new LongAdder();
+    private final LongAdder lookupNanos = new LongAdder();
+    private final LongAccumulator maxLookupNanos = new LongAccumulator(Math::max, 0);
+
+    private volatile static SemanticCache instance = null;
+
+    private SemanticCache() {
+    }
+
+    public static SemanticCache getInstance() {
+        if (instance == null) {
+            synchronized (SemanticCache.class) {
+                if (instance == null) {
+                    instance = new SemanticCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 命中时重放相似输入的响应，未命中时通过loader请求并在正常结束后写入缓存
+     *
+     * @param stream 是否按分片重放
+     */
+    public Flux<ChatResponse> getOrLoad(String modelName, ChatBaseRequest request, boolean stream,
+                                        Supplier<? extends Flux<ChatResponse>> loader) {
+        return Flux.defer(() -> {
+            EmbeddingFunction function = embeddingFunction;
+            if (function == null) {
+                return Flux.error(missingEmbeddingFunction());
+            }
+            long start = System.nanoTime();
+            String partition = partitionOf(modelName, request);
+            return embed(function, request.getContent()).flatMapMany(vector -> {
+                if (vector.isEmpty()) {
+                    return loader.get();
+                }
+                CacheEntry entry = lookup(partition, vector.get());
+                recordLookup(System.nanoTime() - start);
+                if (entry != null) {
+                    hitCount.increment();
+                    log.debug("[{}] hit, content: {}, cached: {}", TAG, request.getContent(), entry.content);
+                    return CachedResponses.replay(entry.chunks, stream);
+                }
+                missCount.increment();
+                return CachedResponses.record(loader.get(),
+                        chunks -> put(partition, request.getContent(), vector.get(), chunks));
+            });
+        });
+    }
+
+    /**
+     * 报告误命中：删除与该请求匹配的缓存条目，之后相似的请求重新调用接口
+     *
+     * @return 是否找到并删除了条目
+     */
+    public Mono<Boolean> reportFalseHit(String modelName, ChatBaseRequest request) {
+        return Mono.defer(() -> {
+            EmbeddingFunction function = embeddingFunction;
+            if (function == null) {
+                return Mono.error(missingEmbeddingFunction());
+            }
+            String partition = partitionOf(modelName, request);
+            return embed(function, request.getContent()).map(vector -> {
+                if (vector.isEmpty() || !invalidate(partition, vector.get())) {
+                    return false;
+                }
+                falseHitCount.increment();
+                log.info("[{}] false hit reported, content: {}", TAG, request.getContent());
+                return true;
+            });
+        });
+    }
+
+    private Mono<Optional<float[]>> embed(EmbeddingFunction function, String content) {
+        if (content == null || content.isBlank()) {
+            return Mono.just(Optional.empty());
+        }
+        return Mono.defer(() -> function.embed(content))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .onErrorResume(e -> {
+                    embedFailureCount.increment();
+                    log.warn("[{}] embed failed: {}", TAG, e.getMessage());
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    private static WenXinException missingEmbeddingFunction() {
+        return new WenXinException(ErrorCode.EMBEDDING_FUNCTION_MISSING,
+                "semantic cache is enabled but no EmbeddingFunction is set, call SemanticCache.setEmbeddingFunction first");
+    }
+
+    /**
+     * 除content外请求体相同的请求属于同一分区，只在分区内匹配
+     */
+    private static String partitionOf(String modelName, ChatBaseRequest request) {
+        JsonObject tree = gson.toJsonTree(request).getAsJsonObject();
+        tree.remove("content");
+        return RequestDigest.digest(modelName, tree);
+    }
+
+    private synchronized CacheEntry lookup(String partition, float[] vector) {
+        long entryId = match(partition, vector);
+        return entryId < 0 ? null : entryMap.get(entryId);
+    }
+
+    private synchronized boolean invalidate(String partition, float[] vector) {
+        long entryId = match(partition, vector);
+        if (entryId < 0) {
+            return false;
+        }
+        remove(entryId);
+        return true;
+    }
+
+    /**
+     * 索引是全局的，相似度达到阈值的候选可能都属于其他分区（如其他用户的相同问题），
+     * 因此逐步扩大topK，直到找到分区内的条目、候选相似度低于阈值或候选已取完
+     */
+    private long match(String partition, float[] vector) {
+        List<Long> expired = new ArrayList<>();
+        long entryId = search(partition, vector, expired);
+        // 查找结束后再删除过期条目，避免扩大topK时候选位置变化
+        expired.forEach(this::remove);
+        return entryId;
+    }
+
+    private long search(String partition, float[] vector, List<Long> expired) {
+        long now = System.nanoTime();
+        int checked = 0;
+        for (int topK = SEARCH_TOP_K; ; topK *= SEARCH_EXPAND_FACTOR) {
+            List<SearchResult> results = index.search(vector, topK);
+            for (int i = checked; i < results.size(); i++) {
+                SearchResult result = results.get(i);
+                if (result.score() < threshold) {
+                    return -1;
+                }
+                CacheEntry entry = entryMap.get(result.id());
+                if (entry == null || !entry.partition.equals(partition)) {
+                    continue;
+                }
+                if (now - entry.createTime >= ttlNanos) {
+                    expired.add(result.id());
+                    continue;
+                }
+                return result.id();
+            }
+            if (results.size() < topK || topK >= entryMap.size()) {
+                return -1;
+            }
+            checked = results.size();
+        }
+    }
+
+    private synchronized void put(String partition, String content, float[] vector, List<String> chunks) {
+        // 并发未命中的相同输入只保留一条
+        long existing = match(partition, vector);
+        if (existing >= 0) {
+            remove(existing);
+        }
+        long entryId = nextId++;
+        entryMap.put(entryId, new CacheEntry(partition, content, chunks, System.nanoTime()));
+        index.add(entryId, vector);
+        evictOverflow();
+    }
+
+    private void remove(long entryId) {
+        entryMap.remove(entryId);
+        index.remove(entryId);
+    }
+
+    private void evictOverflow() {
+        while (entryMap.size() > capacity) {
+            remove(entryMap.keySet().iterator().next());
+            evictionCount.increment();
+        }
+    }
+
+    private void recordLookup(long nanos) {
+        lookupNanos.add(nanos);
+        maxLookupNanos.accumulate(nanos);
+    }
+
+    /**
+     * 替换向量化函数，已有条目的向量与新函数不兼容，因此同时清空缓存
+     */
+    public synchronized void setEmbeddingFunction(EmbeddingFunction embeddingFunction) {
+        this.embeddingFunction = embeddingFunction;
+        invalidateAll();
+    }
+
+    public void setThreshold(float threshold) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("threshold must be in (0, 1]");
+        }
+        this.threshold = threshold;
+    }
+
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        evictOverflow();
+    }
+
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    public synchronized void invalidateAll() {
+        entryMap.clear();
+        index.clear();
+    }
+
+    public synchronized int size() {
+        return entryMap.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getFalseHitCount() {
+        return falseHitCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getEmbedFailureCount() {
+        return embedFailureCount.sum();
+    }
+
+    /**
+     * 平均查找耗时（含向量化），单位微秒
+     */
+    public double getAverageLookupMicros() {
+        long lookups = getHitCount() + getMissCount();
+        return lookups == 0 ? 0 : lookupNanos.sum() / 1000.0 / lookups;
+    }
+
+    public long getMaxLookupMicros() {
+        return maxLookupNanos.get() / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return "SemanticCache { size: " + size() + ", capacity: " + capacity + ", threshold: " + threshold +
+                ", hitCount: " + getHitCount() + ", missCount: " + getMissCount() +
+                ", hitRate: " + String.format("%.3f", getHitRate()) + ", falseHitCount: " + getFalseHitCount() +
+                ", evictionCount: " + getEvictionCount() + ", embedFailureCount: " + getEmbedFailureCount() +
+                ", avgLookupMicros: " + String.format("%.1f", getAverageLookupMicros()) +
+                ", maxLookupMicros: " + getMaxLookupMicros() + " }";
+    }
+
+    private static class CacheEntry {
+
+        private final String partition;
+        private final String content;
+        private final List<String> chunks;
+        private final long createTime;
+
+        private CacheEntry(String partition, String content, List<String> chunks, long createTime) {
+            this.partition = partition;
+            this.content = content;
+            this.chunks = chunks;
+            this.createTime = createTime;
+        }
+
+    }
+
+}
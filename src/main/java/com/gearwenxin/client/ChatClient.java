@@ -1,5 +1,9 @@
 package com.gearwenxin.client;
 
+import com.gearwenxin.cache.ResponseCache;
+import com.gearwenxin.cache.SemanticCache;
+import com.gearwenxin.common.RequestDigest;
+import com.gearwenxin.core.RequestCoalescer;
 import com.gearwenxin.entity.chatmodel.ChatErnieRequest;
 import com.gearwenxin.config.ModelConfig;
 import com.gearwenxin.entity.chatmodel.ChatBaseRequest;
@@ -8,11 +12,15 @@ import com.gearwenxin.entity.response.ChatResponse;
 import com.gearwenxin.model.ChatModel;
 import com.gearwenxin.schedule.entity.ChatTask;
 import com.gearwenxin.schedule.TaskQueueManager;
+import com.gearwenxin.service.ChatService;
 import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @Slf4j
 public class ChatClient implements ChatModel {
@@ -26,6 +34,9 @@ public class ChatClient implements ChatModel {
     }
 
     private static final TaskQueueManager taskQueueManager = TaskQueueManager.getInstance();
+    private static final RequestCoalescer requestCoalescer = RequestCoalescer.getInstance();
+    private static final ResponseCache responseCache = ResponseCache.getInstance();
+    private static final SemanticCache semanticCache = SemanticCache.getInstance();
 
     @Override
     public Mono<ChatResponse> chat(String content) {
@@ -46,15 +57,13 @@ public class ChatClient implements ChatModel {
 
     @Override
     public <T extends ChatBaseRequest> Mono<ChatResponse> chat(T chatRequest, float weight) {
-        ChatTask chatTask = ChatTask.builder()
-                .modelConfig(modelConfig)
-                .taskType(ModelType.chat)
-                .taskRequest(chatRequest)
-                .taskWeight(weight)
-                .stream(false)
-                .build();
-        String taskId = taskQueueManager.addTask(chatTask);
-        return Mono.from(taskQueueManager.getChatFuture(taskId).join());
+        return chat(chatRequest, weight, null);
+    }
+
+    @Override
+    public <T extends ChatBaseRequest> Mono<ChatResponse> chat(T chatRequest, float weight, Duration timeout) {
+        return dispatch(chatRequest, false,
+                () -> submitTask(chatRequest, weight, timeout, false, null, false).flatMapMany(Flux::from)).next();
     }
 
     @Override
@@ -76,29 +85,18 @@ public class ChatClient implements ChatModel {
 
     @Override
     public <T extends ChatBaseRequest> Flux<ChatResponse> chatStream(T request, float weight) {
-        ChatTask chatTask = ChatTask.builder()
-                .modelConfig(modelConfig)
-                .taskType(ModelType.chat)
-                .taskRequest(request)
-                .taskWeight(weight)
-                .stream(true)
-                .build();
-        String taskId = taskQueueManager.addTask(chatTask);
-        return Flux.from(taskQueueManager.getChatFuture(taskId).join());
+        return chatStream(request, weight, null);
+    }
+
+    @Override
+    public <T extends ChatBaseRequest> Flux<ChatResponse> chatStream(T request, float weight, Duration timeout) {
+        return dispatch(request, true,
+                () -> submitTask(request, weight, timeout, true, null, false).flatMapMany(Flux::from));
     }
 
     @Override
     public Flux<ChatResponse> chatStream(Map<Object, Object> request) {
-        ChatTask chatTask = ChatTask.builder()
-                .modelConfig(modelConfig)
-                .taskType(ModelType.chat)
-                .taskRequest(request)
-                .taskWeight(defaultWeight)
-                .stream(true)
-                .jsonMode(true)
-                .build();
-        String taskId = taskQueueManager.addTask(chatTask);
-        return Flux.from(taskQueueManager.getChatFuture(taskId).join());
+        return submitTask(request, defaultWeight, null, true, null, true).flatMapMany(Flux::from);
     }
 
     @Override
@@ -121,6 +119,12 @@ public class ChatClient implements ChatModel {
         return chatsStream(chatRequest, msgUid, weight).next();
     }
 
+    @Override
+    public <T extends ChatBaseRequest> Mono<ChatResponse> chats(T chatRequest, String msgUid, float weight,
+                                                                Duration timeout) {
+        return chatsStream(chatRequest, msgUid, weight, timeout).next();
+    }
+
     @Override
     public Flux<ChatResponse> chatsStream(String content, String msgUid) {
         return chatsStream(content, msgUid, defaultWeight);
@@ -140,16 +144,63 @@ public class ChatClient implements ChatModel {
 
     @Override
     public <T extends ChatBaseRequest> Flux<ChatResponse> chatsStream(T request, String msgUid, float weight) {
-        ChatTask chatTask = ChatTask.builder()
-                .modelConfig(modelConfig)
-                .taskType(ModelType.chat)
-                .taskRequest(request)
-                .messageId(msgUid)
-                .taskWeight(weight)
-                .stream(true)
-                .build();
-        String taskId = taskQueueManager.addTask(chatTask);
-        return Flux.from(taskQueueManager.getChatFuture(taskId).join());
+        return chatsStream(request, msgUid, weight, null);
+    }
+
+    @Override
+    public <T extends ChatBaseRequest> Flux<ChatResponse> chatsStream(T request, String msgUid, float weight,
+                                                                      Duration timeout) {
+        return submitTask(request, weight, timeout, true, msgUid, false).flatMapMany(Flux::from);
+    }
+
+    /**
+     * 无历史消息的请求：按配置依次经过响应缓存、语义缓存、相同请求合并，再提交任务
+     */
+    private <T extends ChatBaseRequest> Flux<ChatResponse> dispatch(T request, boolean stream,
+                                                                    Supplier<Flux<ChatResponse>> supplier) {
+        Supplier<Flux<ChatResponse>> coalesced = modelConfig.isEnableCoalescing()
+                ? () -> coalesce(request, stream, supplier) : supplier;
+        Supplier<Flux<ChatResponse>> loader = modelConfig.isEnableSemanticCache()
+                ? () -> semanticCache.getOrLoad(modelConfig.getModelName(), request, stream, coalesced) : coalesced;
+        if (!modelConfig.isEnableResponseCache()) {
+            return loader.get();
+        }
+        // 以出站请求体为key，流式与非流式共用同一条缓存
+        return Flux.defer(() -> {
+            Object outgoingRequest = ChatService.prepareRequestWithoutHistory(false, request);
+            String key = RequestDigest.digest(modelConfig.getModelName(),
+                    outgoingRequest == null ? request : outgoingRequest);
+            return responseCache.getOrLoad(key, stream, loader);
+        });
+    }
+
+    /**
+     * 合并同时发起的相同请求，流式与非流式分开合并
+     */
+    private Flux<ChatResponse> coalesce(Object request, boolean stream, Supplier<Flux<ChatResponse>> supplier) {
+        String key = (stream ? "stream:" : "mono:") + RequestDigest.digest(modelConfig.getModelName(), request);
+        return requestCoalescer.coalesce(key, supplier);
+    }
+
+    /**
+     * 订阅时才提交任务，派发完成后发出结果，调用线程不会阻塞
+     */
+    private Mono<Publisher<ChatResponse>> submitTask(Object request, float weight, Duration timeout,
+                                                     boolean stream, String msgUid, boolean jsonMode) {
+        return Mono.defer(() -> {
+            ChatTask chatTask = ChatTask.builder()
+                    .modelConfig(modelConfig)
+                    .taskType(ModelType.chat)
+                    .taskRequest(request)
+                    .messageId(msgUid)
+                    .taskWeight(weight)
+                    .timeoutMillis(timeout == null ? 0 : timeout.toMillis())
+                    .stream(stream)
+                    .jsonMode(jsonMode)
+                    .build();
+            String taskId = taskQueueManager.addTask(chatTask);
+            return taskQueueManager.takeChatResult(taskId);
+        });
     }
 
 }
@@ -0,0 +1,187 @@
+package com.gearwenxin.client;
+
+import com.gearwenxin.common.ErrorCode;
+import com.gearwenxin.config.ModelConfig;
+import com.gearwenxin.entity.enums.ModelType;
+import com.gearwenxin.entity.request.EmbeddingRequest;
+import com.gearwenxin.entity.response.EmbeddingData;
+import com.gearwenxin.entity.response.EmbeddingResponse;
+import com.gearwenxin.exception.WenXinException;
+import com.gearwenxin.model.EmbeddingModel;
+import com.gearwenxin.schedule.TaskQueueManager;
+import com.gearwenxin.schedule.entity.ChatTask;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embedding客户端
+ * <p>
+ * embed调用先进入待合并队列，攒满 embeddingMaxBatchSize 条或等待 embeddingMaxWaitMillis 后合并为一次请求，
+ * 按响应中的index把向量分发给各调用方；批量请求同样经过任务队列的限流与排队。
+ */
+@Slf4j
+public class EmbeddingClient implements EmbeddingModel {
+
+    public static final String TAG = "EmbeddingClient";
+
+    /**
+     * Embedding-V1 单次请求最多16条文本
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 16;
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 10;
+
+    private final ModelConfig modelConfig;
+
+    private static final float defaultWeight = 0;
+
+    TaskQueueManager taskQueueManager = TaskQueueManager.getInstance();
+
+    // 多线程写入时由自身加锁串行化
+    private final Sinks.Many<PendingEmbedding> pendingSink = Sinks.many().unicast().onBackpressureBuffer();
+
+    private final LongAdder textCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+
+    public EmbeddingClient(ModelConfig modelConfig) {
+        this.modelConfig = modelConfig;
+        int maxBatchSize = Optional.ofNullable(modelConfig.getEmbeddingMaxBatchSize()).orElse(DEFAULT_MAX_BATCH_SIZE);
+        long maxWaitMillis = Optional.ofNullable(modelConfig.getEmbeddingMaxWaitMillis()).orElse(DEFAULT_MAX_WAIT_MILLIS);
+        pendingSink.asFlux()
+                .bufferTimeout(maxBatchSize, Duration.ofMillis(maxWaitMillis))
+                .subscribe(this::flush, throwable -> log.error("[{}] batch pipeline terminated", TAG, throwable));
+    }
+
+    @Override
+    public Mono<float[]> embed(String text) {
+        return Mono.create(sink -> {
+            if (text == null || text.isBlank()) {
+                sink.error(new WenXinException(ErrorCode.PARAMS_ERROR, "text cannot be blank"));
+                return;
+            }
+            PendingEmbedding pending = new PendingEmbedding(text, sink);
+            sink.onCancel(() -> pending.cancelled = true);
+            Sinks.EmitResult result;
+            synchronized (pendingSink) {
+                result = pendingSink.tryEmitNext(pending);
+            }
+            if (result.isFailure()) {
+                sink.error(new WenXinException(ErrorCode.SYSTEM_ERROR, "embedding batch queue rejected: " + result));
+            }
+        });
+    }
+
+    @Override
+    public Mono<List<float[]>> embedAll(List<String> texts) {
+        return Flux.fromIterable(texts)
+                .flatMapSequential(this::embed)
+                .collectList();
+    }
+
+    @Override
+    public Mono<EmbeddingResponse> embedding(EmbeddingRequest request) {
+        return embedding(request, defaultWeight);
+    }
+
+    @Override
+    public Mono<EmbeddingResponse> embedding(EmbeddingRequest request, float weight) {
+        return embedding(request, weight, null);
+    }
+
+    @Override
+    public Mono<EmbeddingResponse> embedding(EmbeddingRequest request, float weight, Duration timeout) {
+        // 订阅时才提交任务，派发完成后发出结果，调用线程不会阻塞
+        return Mono.defer(() -> {
+            ChatTask chatTask = ChatTask.builder()
+                    .modelConfig(modelConfig)
+                    .taskType(ModelType.embedding)
+                    .taskRequest(request)
+                    .taskWeight(weight)
+                    .timeoutMillis(timeout == null ? 0 : timeout.toMillis())
+                    .build();
+            String taskId = taskQueueManager.addTask(chatTask);
+            return taskQueueManager.takeEmbeddingResult(taskId);
+        }).flatMap(Mono::from);
+    }
+
+    /**
+     * 发送一批待合并的文本，已取消的调用不再发送
+     */
+    private void flush(List<PendingEmbedding> batch) {
+        List<PendingEmbedding> pendingList = batch.stream().filter(pending -> !pending.cancelled).toList();
+        if (pendingList.isEmpty()) {
+            return;
+        }
+        textCount.add(pendingList.size());
+        batchCount.increment();
+        log.debug("[{}] [{}] flush batch, size: {}", TAG, modelConfig.getModelName(), pendingList.size());
+        EmbeddingRequest request = EmbeddingRequest.builder()
+                .input(pendingList.stream().map(pending -> pending.text).toList())
+                .build();
+        embedding(request).subscribe(
+                response -> complete(pendingList, response),
+                throwable -> pendingList.forEach(pending -> pending.sink.error(throwable)),
+                () -> pendingList.forEach(pending -> pending.sink.success()));
+    }
+
+    private void complete(List<PendingEmbedding> pendingList, EmbeddingResponse response) {
+        if (response.getErrorCode() != null) {
+            WenXinException exception = new WenXinException(ErrorCode.WENXIN_ERROR,
+                    response.getErrorCode() + ": " + response.getErrorMsg());
+            pendingList.forEach(pending -> pending.sink.error(exception));
+            return;
+        }
+        float[][] vectors = new float[pendingList.size()][];
+        if (response.getData() != null) {
+            for (EmbeddingData data : response.getData()) {
+                if (data.getIndex() >= 0 && data.getIndex() < vectors.length) {
+                    vectors[data.getIndex()] = data.getEmbedding();
+                }
+            }
+        }
+        for (int i = 0; i < vectors.length; i++) {
+            if (vectors[i] == null) {
+                pendingList.get(i).sink.error(new WenXinException(ErrorCode.WENXIN_ERROR, "missing embedding for index " + i));
+            } else {
+                pendingList.get(i).sink.success(vectors[i]);
+            }
+        }
+    }
+
+    public long getTextCount() {
+        return textCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * 平均每次请求合并的文本数
+     */
+    public double getAverageBatchSize() {
+        long batches = getBatchCount();
+        return batches == 0 ? 0 : (double) getTextCount() / batches;
+    }
+
+    private static class PendingEmbedding {
+
+        private final String text;
+        private final MonoSink<float[]> sink;
+        private volatile boolean cancelled = false;
+
+        private PendingEmbedding(String text, MonoSink<float[]> sink) {
+            this.text = text;
+            this.sink = sink;
+        }
+
+    }
+
+}
@@ -9,6 +9,8 @@ import com.gearwenxin.schedule.TaskQueueManager;
 import com.gearwenxin.schedule.entity.ChatTask;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
 public class ImageClient implements ImageModel {
 
     private final ModelConfig modelConfig;
@@ -28,13 +30,22 @@ public class ImageClient implements ImageModel {
 
     @Override
     public Mono<ImageResponse> chatImage(ImageBaseRequest imageBaseRequest, float weight) {
-        ChatTask chatTask = ChatTask.builder()
-                .modelConfig(modelConfig)
-                .taskType(ModelType.image)
-                .taskRequest(imageBaseRequest)
-                .taskWeight(weight)
-                .build();
-        String taskId = taskQueueManager.addTask(chatTask);
-        return Mono.from(taskQueueManager.getImageFuture(taskId).join());
+        return chatImage(imageBaseRequest, weight, null);
+    }
+
+    @Override
+    public Mono<ImageResponse> chatImage(ImageBaseRequest imageBaseRequest, float weight, Duration timeout) {
+        // 订阅时才提交任务，派发完成后发出结果，调用线程不会阻塞
+        return Mono.defer(() -> {
+            ChatTask chatTask = ChatTask.builder()
+                    .modelConfig(modelConfig)
+                    .taskType(ModelType.image)
+                    .taskRequest(imageBaseRequest)
+                    .taskWeight(weight)
+                    .timeoutMillis(timeout == null ? 0 : timeout.toMillis())
+                    .build();
+            String taskId = taskQueueManager.addTask(chatTask);
+            return taskQueueManager.takeImageResult(taskId);
+        }).flatMap(Mono::from);
     }
 }
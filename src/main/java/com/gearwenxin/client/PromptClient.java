@@ -10,6 +10,8 @@ import com.gearwenxin.schedule.entity.ChatTask;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
 @Slf4j
 public class PromptClient implements PromptModel {
 
@@ -30,14 +32,23 @@ public class PromptClient implements PromptModel {
 
     @Override
     public Mono<PromptResponse> chat(ChatPromptRequest chatRequest, float weight) {
-        ChatTask chatTask = ChatTask.builder()
-                .modelConfig(modelConfig)
-                .taskType(ModelType.prompt)
-                .taskRequest(chatRequest)
-                .taskWeight(weight)
-                .build();
-        String taskId = taskQueueManager.addTask(chatTask);
-        return Mono.from(taskQueueManager.getPromptFuture(taskId).join());
+        return chat(chatRequest, weight, null);
+    }
+
+    @Override
+    public Mono<PromptResponse> chat(ChatPromptRequest chatRequest, float weight, Duration timeout) {
+        // 订阅时才提交任务，派发完成后发出结果，调用线程不会阻塞
+        return Mono.defer(() -> {
+            ChatTask chatTask = ChatTask.builder()
+                    .modelConfig(modelConfig)
+                    .taskType(ModelType.prompt)
+                    .taskRequest(chatRequest)
+                    .taskWeight(weight)
+                    .timeoutMillis(timeout == null ? 0 : timeout.toMillis())
+                    .build();
+            String taskId = taskQueueManager.addTask(chatTask);
+            return taskQueueManager.takePromptResult(taskId);
+        }).flatMap(Mono::from);
     }
 
 }
@@ -9,9 +9,12 @@ import com.gearwenxin.model.BasicChatModel;
 import com.gearwenxin.schedule.TaskQueueManager;
 import com.gearwenxin.schedule.entity.ChatTask;
 import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
 @Slf4j
 public class BasicChatClient {
 
@@ -40,15 +43,11 @@ public class BasicChatClient {
     }
 
     public <T extends ChatBaseRequest> Mono<ChatResponse> chat(T chatRequest, float weight) {
-        ChatTask chatTask = ChatTask.builder()
-                .modelConfig(modelConfig)
-                .taskType(ModelType.chat)
-                .taskRequest(chatRequest)
-                .taskWeight(weight)
-                .stream(false)
-                .build();
-        String taskId = taskQueueManager.addTask(chatTask);
-        return Mono.from(taskQueueManager.getChatFuture(taskId).join());
+        return chat(chatRequest, weight, null);
+    }
+
+    public <T extends ChatBaseRequest> Mono<ChatResponse> chat(T chatRequest, float weight, Duration timeout) {
+        return submitTask(chatRequest, weight, timeout, false).flatMap(Mono::from);
     }
 
     public Flux<ChatResponse> chatStream(String content) {
@@ -66,15 +65,29 @@ public class BasicChatClient {
     }
 
     public <T extends ChatBaseRequest> Flux<ChatResponse> chatStream(T request, float weight) {
-        ChatTask chatTask = ChatTask.builder()
-                .modelConfig(modelConfig)
-                .taskType(ModelType.chat)
-                .taskRequest(request)
-                .taskWeight(weight)
-                .stream(true)
-                .build();
-        String taskId = taskQueueManager.addTask(chatTask);
-        return Flux.from(taskQueueManager.getChatFuture(taskId).join());
+        return chatStream(request, weight, null);
+    }
+
+    public <T extends ChatBaseRequest> Flux<ChatResponse> chatStream(T request, float weight, Duration timeout) {
+        return submitTask(request, weight, timeout, true).flatMapMany(Flux::from);
+    }
+
+    /**
+     * 订阅时才提交任务，派发完成后发出结果，调用线程不会阻塞
+     */
+    private Mono<Publisher<ChatResponse>> submitTask(Object request, float weight, Duration timeout, boolean stream) {
+        return Mono.defer(() -> {
+            ChatTask chatTask = ChatTask.builder()
+                    .modelConfig(modelConfig)
+                    .taskType(ModelType.chat)
+                    .taskRequest(request)
+                    .taskWeight(weight)
+                    .timeoutMillis(timeout == null ? 0 : timeout.toMillis())
+                    .stream(stream)
+                    .build();
+            String taskId = taskQueueManager.addTask(chatTask);
+            return taskQueueManager.takeChatResult(taskId);
+        });
     }
 
 }
@@ -1,6 +1,7 @@
 package com.gearwenxin.common;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -33,6 +34,11 @@ public interface Constant {
 
     String CHECK = "check";
 
+    /**
+     * 上游限流错误码：4 请求总量超限、17 日请求量超限、18 QPS超限、336501 RPM超限、336502 TPM超限
+     */
+    Set<Integer> THROTTLE_ERROR_CODES = Set.of(4, 17, 18, 336501, 336502);
+
     String GET_ACCESS_TOKEN_URL = "https://aip.baidubce.com/oauth/2.0/token?grant_type=client_credentials&client_id=%s&client_secret=%s";
     String PROMPT_URL = "https://aip.baidubce.com/rest/2.0/wenxinworkshop/api/v1/template/info";
 
@@ -21,6 +21,12 @@ public enum ErrorCode {
     SYSTEM_INPUT_ERROR(336104, "'用户输入错误' system内容不合法"),
     EVENT_LOOP_ERROR(50003, "事件循环异常"),
     CONSUMER_THREAD_START_FAILED(50004, "消费者线程启动失败"),
+    TASK_QUEUE_FULL(50005, "任务队列已满"),
+    TASK_DROPPED(50006, "任务因队列溢出被丢弃"),
+    TASK_EXPIRED(50007, "任务排队超时"),
+    BULKHEAD_FULL(50008, "模型线程池已满"),
+    RESPONSE_TIMEOUT(50009, "等待响应超时"),
+    EMBEDDING_FUNCTION_MISSING(50010, "语义缓存未设置向量化函数"),
     ;
 
     /**
@@ -0,0 +1,57 @@
+package com.gearwenxin.common;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 请求摘要
+ * <p>
+ * 将请求序列化为JSON并按key排序后计算SHA-256，字段相同的请求得到相同的摘要，与字段声明顺序、Map遍历顺序无关
+ */
+public class RequestDigest {
+
+    private static final Gson gson = new Gson();
+
+    private RequestDigest() {
+    }
+
+    public static String digest(String modelName, Object request) {
+        JsonElement canonical = canonicalize(gson.toJsonTree(request));
+        return sha256(modelName + "|" + gson.toJson(canonical));
+    }
+
+    private static JsonElement canonicalize(JsonElement element) {
+        if (element.isJsonObject()) {
+            Map<String, JsonElement> sorted = new TreeMap<>();
+            element.getAsJsonObject().entrySet().forEach(e -> sorted.put(e.getKey(), canonicalize(e.getValue())));
+            JsonObject object = new JsonObject();
+            sorted.forEach(object::add);
+            return object;
+        }
+        if (element.isJsonArray()) {
+            JsonArray array = new JsonArray();
+            element.getAsJsonArray().forEach(e -> array.add(canonicalize(e)));
+            return array;
+        }
+        return element;
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.gearwenxin.common;
+
+import com.gearwenxin.entity.Message;
+
+import java.util.Collection;
+
+/**
+ * token数估算
+ * <p>
+ * 不依赖分词器的保守估算：中日韩字符按1个token计，其余字符按每4个1个token计，每条消息另加少量格式开销。
+ * 仅用于派发前预留额度，实际用量以响应中的usage为准。
+ */
+public class TokenEstimator {
+
+    // 每条消息的格式开销（role等字段）
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    // 预留的回复token数
+    public static final int DEFAULT_COMPLETION_TOKENS = 256;
+
+    private TokenEstimator() {
+    }
+
+    public static long estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        long cjkCount = 0;
+        long otherCount = 0;
+        for (int i = 0; i < text.length(); i++) {
+            Character.UnicodeScript script = Character.UnicodeScript.of(text.charAt(i));
+            if (script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                    || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL) {
+                cjkCount++;
+            } else {
+                otherCount++;
+            }
+        }
+        return cjkCount + (otherCount + 3) / 4;
+    }
+
+    /**
+     * 估算一次对话请求的token数：历史消息 + 本次内容 + system + 预留回复
+     */
+    public static long estimate(Collection<Message> history, String content, String system) {
+        long tokens = estimate(content) + estimate(system) + MESSAGE_OVERHEAD_TOKENS + DEFAULT_COMPLETION_TOKENS;
+        if (history != null) {
+            for (Message message : history) {
+                tokens += estimate(message.getContent()) + MESSAGE_OVERHEAD_TOKENS;
+            }
+        }
+        return tokens;
+    }
+
+}
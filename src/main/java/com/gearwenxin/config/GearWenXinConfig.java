@@ -1,6 +1,7 @@
 package com.gearwenxin.config;
 
 import com.gearwenxin.core.RequestManager;
+import com.gearwenxin.core.WebClientManager;
 import com.gearwenxin.entity.Message;
 import com.gearwenxin.entity.response.TokenResponse;
 import com.gearwenxin.service.*;
@@ -33,6 +34,8 @@ public class GearWenXinConfig implements CommandLineRunner {
 
     @Override
     public void run(String... args) {
+        initWebClient(WebClientManager.getInstance());
+
         String apiKey = wenXinProperties.getApiKey();
         String secretKey = wenXinProperties.getSecretKey();
         String accessToken = wenXinProperties.getAccessToken();
@@ -62,6 +65,19 @@ public class GearWenXinConfig implements CommandLineRunner {
         }
     }
 
+    private void initWebClient(WebClientManager webClientManager) {
+        WebClientManager.Options options = new WebClientManager.Options();
+        Optional.ofNullable(wenXinProperties.getHttpMaxConnections()).ifPresent(options::setMaxConnections);
+        Optional.ofNullable(wenXinProperties.getHttpPendingAcquireMaxCount()).ifPresent(options::setPendingAcquireMaxCount);
+        Optional.ofNullable(wenXinProperties.getHttpPendingAcquireTimeoutMillis()).ifPresent(options::setPendingAcquireTimeoutMillis);
+        Optional.ofNullable(wenXinProperties.getHttpMaxIdleTimeMillis()).ifPresent(options::setMaxIdleTimeMillis);
+        Optional.ofNullable(wenXinProperties.getHttpMaxLifeTimeMillis()).ifPresent(options::setMaxLifeTimeMillis);
+        Optional.ofNullable(wenXinProperties.getHttpEvictInBackgroundMillis()).ifPresent(options::setEvictInBackgroundMillis);
+        Optional.ofNullable(wenXinProperties.getHttpConnectTimeoutMillis()).ifPresent(options::setConnectTimeoutMillis);
+        Optional.ofNullable(wenXinProperties.getHttpNativeTransport()).ifPresent(options::setNativeTransport);
+        webClientManager.setOptions(options);
+    }
+
     @Bean
     @ConditionalOnMissingBean
     public MessageService defaultMessageService() {
@@ -31,4 +31,35 @@ public class ModelConfig implements Serializable {
 
     private boolean enableStringResponse;
 
+    /**
+     * 任务默认排队超时时间（毫秒），超时未派发的任务以TASK_EXPIRED结束，为空表示不超时
+     */
+    private Long taskTimeoutMillis;
+
+    /**
+     * 是否合并同时发起的相同请求（不含带msgUid的多轮对话），相同请求共享一次上游调用的响应
+     */
+    private boolean enableCoalescing;
+
+    /**
+     * 是否缓存无历史消息的对话响应，适用于低temperature或模板化的请求，缓存容量与过期时间见gear.wenxin.response-cache-*
+     */
+    private boolean enableResponseCache;
+
+    /**
+     * 是否启用语义缓存：无历史消息的对话中与之前输入相似（余弦相似度不低于阈值）时直接返回之前的响应，
+     * 阈值与容量见gear.wenxin.semantic-cache-*，启用前须通过SemanticCache.setEmbeddingFunction设置向量化函数
+     */
+    private boolean enableSemanticCache;
+
+    /**
+     * Embedding模型单次请求最多合并的文本数，不超过接口上限（Embedding-V1 为16），默认16
+     */
+    private Integer embeddingMaxBatchSize;
+
+    /**
+     * Embedding调用等待合并的最长时间（毫秒），默认10
+     */
+    private Long embeddingMaxWaitMillis;
+
 }
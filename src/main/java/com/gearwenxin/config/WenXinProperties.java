@@ -1,6 +1,8 @@
 package com.gearwenxin.config;
 
 import com.gearwenxin.common.StatusConst;
+import com.gearwenxin.entity.enums.OverflowPolicy;
+import com.gearwenxin.entity.enums.RejectPolicy;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -32,10 +34,239 @@ public class WenXinProperties {
     @Setter
     private List<String> model_qps;
 
+    /**
+     * 模型并发上限（可选），格式：模型名 并发数
+     */
+    @Getter
+    @Setter
+    private List<String> modelConcurrency;
+
+    /**
+     * 模型自适应并发（可选），格式：模型名 初始并发 [最大并发] [最小并发]
+     */
+    @Getter
+    @Setter
+    private List<String> modelAdaptiveConcurrency;
+
+    /**
+     * 模型每分钟token数上限（可选），格式：模型名 TPM
+     */
+    @Getter
+    @Setter
+    private List<String> modelTpm;
+
+    /**
+     * 响应缓存总大小（字节）、过期时间与过期后仍可返回旧值并后台刷新的时间
+     */
+    @Getter
+    @Setter
+    private Long responseCacheMaxBytes;
+
+    @Getter
+    @Setter
+    private Long responseCacheTtlMillis;
+
+    @Getter
+    @Setter
+    private Long responseCacheStaleMillis;
+
+    /**
+     * 语义缓存命中的相似度阈值（0~1]、最大条目数与过期时间
+     */
+    @Getter
+    @Setter
+    private Float semanticCacheThreshold;
+
+    @Getter
+    @Setter
+    private Integer semanticCacheCapacity;
+
+    @Getter
+    @Setter
+    private Long semanticCacheTtlMillis;
+
     @Getter
     @Setter
     private Integer saveScheduledTime;
 
+    /**
+     * 任务老化速度：排队每满该毫秒数，任务权重提升1，防止低权重任务饿死
+     */
+    @Getter
+    @Setter
+    private Long taskAgingMillis;
+
+    /**
+     * 派发线程数，所有模型共享，默认1
+     */
+    @Getter
+    @Setter
+    private Integer dispatcherThreads;
+
+    /**
+     * HTTP连接池：每个远端地址的最大连接数、等待获取连接的最大请求数与超时时间（毫秒）
+     */
+    @Getter
+    @Setter
+    private Integer httpMaxConnections;
+
+    @Getter
+    @Setter
+    private Integer httpPendingAcquireMaxCount;
+
+    @Getter
+    @Setter
+    private Long httpPendingAcquireTimeoutMillis;
+
+    /**
+     * HTTP连接空闲超时、最长存活时间与后台清理间隔（毫秒）
+     */
+    @Getter
+    @Setter
+    private Long httpMaxIdleTimeMillis;
+
+    @Getter
+    @Setter
+    private Long httpMaxLifeTimeMillis;
+
+    @Getter
+    @Setter
+    private Long httpEvictInBackgroundMillis;
+
+    @Getter
+    @Setter
+    private Integer httpConnectTimeoutMillis;
+
+    /**
+     * 是否优先使用epoll等原生传输，默认true
+     */
+    @Getter
+    @Setter
+    private Boolean httpNativeTransport;
+
+    /**
+     * 并发许可持有超过该毫秒数时报告疑似泄漏，默认2分钟
+     */
+    @Getter
+    @Setter
+    private Long leaseLeakThresholdMillis;
+
+    /**
+     * 并发许可持有超过该毫秒数时强制释放，默认10分钟
+     */
+    @Getter
+    @Setter
+    private Long leaseTimeoutMillis;
+
+    /**
+     * 默认队列容量，不配置则不限制
+     */
+    @Getter
+    @Setter
+    private Integer queueCapacity;
+
+    /**
+     * 默认队列溢出策略
+     */
+    @Getter
+    @Setter
+    private OverflowPolicy queueOverflowPolicy;
+
+    /**
+     * BLOCK策略下的最长等待时间
+     */
+    @Getter
+    @Setter
+    private Long queueBlockTimeoutMillis;
+
+    /**
+     * 单个模型的队列配置，格式：模型名 容量 [溢出策略] [阻塞超时(毫秒)]
+     */
+    @Getter
+    @Setter
+    private List<String> modelQueueCapacity;
+
+    /**
+     * 默认舱壁核心线程数
+     */
+    @Getter
+    @Setter
+    private Integer bulkheadCoreSize;
+
+    /**
+     * 默认舱壁最大线程数
+     */
+    @Getter
+    @Setter
+    private Integer bulkheadMaxSize;
+
+    /**
+     * 默认舱壁队列容量
+     */
+    @Getter
+    @Setter
+    private Integer bulkheadQueueCapacity;
+
+    /**
+     * 默认舱壁拒绝策略
+     */
+    @Getter
+    @Setter
+    private RejectPolicy bulkheadRejectPolicy;
+
+    /**
+     * 单个模型或分组的舱壁配置，格式：名称 核心线程数 最大线程数 [队列容量] [拒绝策略]
+     */
+    @Getter
+    @Setter
+    private List<String> modelBulkhead;
+
+    /**
+     * 共用舱壁的模型分组，格式：分组名 模型名1 模型名2 ...
+     */
+    @Getter
+    @Setter
+    private List<String> modelBulkheadGroup;
+
+    /**
+     * 队列高水位/低水位（相对容量的比例）
+     */
+    @Getter
+    @Setter
+    private Double queueHighWatermark;
+
+    @Getter
+    @Setter
+    private Double queueLowWatermark;
+
+    /**
+     * 用户间公平调度：默认每轮配额
+     */
+    @Getter
+    @Setter
+    private Double userDefaultShare;
+
+    /**
+     * 单个用户的配额，格式：userId 配额
+     */
+    @Getter
+    @Setter
+    private List<String> userShares;
+
+    /**
+     * 单个用户在同一模型上的默认并发上限，不配置则不限制
+     */
+    @Getter
+    @Setter
+    private Integer userMaxConcurrency;
+
+    /**
+     * 单个用户的并发上限，格式：userId 并发数
+     */
+    @Getter
+    @Setter
+    private List<String> userConcurrency;
+
     private boolean basicMode;
     private boolean jsonMode;
 
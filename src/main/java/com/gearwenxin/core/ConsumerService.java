@@ -1,7 +1,14 @@
 package com.gearwenxin.core;
 
+import com.gearwenxin.cache.ResponseCache;
+import com.gearwenxin.cache.SemanticCache;
 import com.gearwenxin.config.WenXinProperties;
+import com.gearwenxin.schedule.BulkheadRegistry;
 import com.gearwenxin.schedule.TaskConsumerLoop;
+import com.gearwenxin.schedule.TaskQueueManager;
+import com.gearwenxin.schedule.entity.BulkheadOptions;
+import com.gearwenxin.schedule.entity.QueueOptions;
+import com.gearwenxin.schedule.entity.UserShareOptions;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -9,6 +16,7 @@ import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Order(2)
@@ -26,9 +34,85 @@ public class ConsumerService implements CommandLineRunner {
         // TODO: 曲线救国，初始化modelQPSList
         List<String> modelQPSList = wenXinProperties.getModelQPSList();
         taskConsumerLoop.setQpsList(modelQPSList);
+        taskConsumerLoop.setConcurrencyList(wenXinProperties.getModelConcurrency());
+        taskConsumerLoop.setAdaptiveConcurrencyList(wenXinProperties.getModelAdaptiveConcurrency());
+        taskConsumerLoop.setTpmList(wenXinProperties.getModelTpm());
+        taskConsumerLoop.setDispatcherThreads(wenXinProperties.getDispatcherThreads());
+        TaskQueueManager taskQueueManager = TaskQueueManager.getInstance();
+        Optional.ofNullable(wenXinProperties.getTaskAgingMillis()).ifPresent(taskQueueManager::setTaskAgingMillis);
+        Optional.ofNullable(wenXinProperties.getLeaseLeakThresholdMillis()).ifPresent(taskQueueManager::setLeaseLeakThresholdMillis);
+        Optional.ofNullable(wenXinProperties.getLeaseTimeoutMillis()).ifPresent(taskQueueManager::setLeaseTimeoutMillis);
+        initQueueOptions(taskQueueManager);
+        initUserShareOptions(taskQueueManager.getUserShareOptions());
+        initBulkheads(BulkheadRegistry.getInstance());
+        initResponseCache(ResponseCache.getInstance());
+        initSemanticCache(SemanticCache.getInstance());
 
         log.info("EventLoop start");
         taskConsumerLoop.start();
     }
 
+    private void initQueueOptions(TaskQueueManager taskQueueManager) {
+        QueueOptions defaults = new QueueOptions();
+        Optional.ofNullable(wenXinProperties.getQueueCapacity()).ifPresent(defaults::setCapacity);
+        Optional.ofNullable(wenXinProperties.getQueueOverflowPolicy()).ifPresent(defaults::setOverflowPolicy);
+        Optional.ofNullable(wenXinProperties.getQueueBlockTimeoutMillis()).ifPresent(defaults::setBlockTimeoutMillis);
+        taskQueueManager.setDefaultQueueOptions(defaults);
+        Optional.ofNullable(wenXinProperties.getQueueHighWatermark()).ifPresent(taskQueueManager::setHighWatermarkRatio);
+        Optional.ofNullable(wenXinProperties.getQueueLowWatermark()).ifPresent(taskQueueManager::setLowWatermarkRatio);
+
+        List<String> modelQueueList = wenXinProperties.getModelQueueCapacity();
+        if (modelQueueList != null) {
+            modelQueueList.forEach(s -> {
+                String[] split = s.trim().split("\\s+");
+                taskQueueManager.putQueueOptions(split[0], QueueOptions.parse(split, defaults));
+            });
+        }
+    }
+
+    private void initBulkheads(BulkheadRegistry bulkheadRegistry) {
+        BulkheadOptions defaults = new BulkheadOptions();
+        Optional.ofNullable(wenXinProperties.getBulkheadCoreSize()).ifPresent(defaults::setCoreSize);
+        Optional.ofNullable(wenXinProperties.getBulkheadMaxSize()).ifPresent(defaults::setMaxSize);
+        Optional.ofNullable(wenXinProperties.getBulkheadQueueCapacity()).ifPresent(defaults::setQueueCapacity);
+        Optional.ofNullable(wenXinProperties.getBulkheadRejectPolicy()).ifPresent(defaults::setRejectPolicy);
+        bulkheadRegistry.setDefaultOptions(defaults);
+        Optional.ofNullable(wenXinProperties.getModelBulkhead()).ifPresent(list -> list.forEach(s -> {
+            String[] split = s.trim().split("\\s+");
+            bulkheadRegistry.putOptions(split[0], BulkheadOptions.parse(split, defaults));
+        }));
+        Optional.ofNullable(wenXinProperties.getModelBulkheadGroup()).ifPresent(list -> list.forEach(s -> {
+            String[] split = s.trim().split("\\s+");
+            for (int i = 1; i < split.length; i++) {
+                bulkheadRegistry.putGroup(split[0], split[i]);
+            }
+        }));
+    }
+
+    private void initResponseCache(ResponseCache responseCache) {
+        Optional.ofNullable(wenXinProperties.getResponseCacheMaxBytes()).ifPresent(responseCache::setMaxBytes);
+        Optional.ofNullable(wenXinProperties.getResponseCacheTtlMillis()).ifPresent(responseCache::setTtlMillis);
+        Optional.ofNullable(wenXinProperties.getResponseCacheStaleMillis()).ifPresent(responseCache::setStaleMillis);
+    }
+
+    private void initSemanticCache(SemanticCache semanticCache) {
+        Optional.ofNullable(wenXinProperties.getSemanticCacheThreshold()).ifPresent(semanticCache::setThreshold);
+        Optional.ofNullable(wenXinProperties.getSemanticCacheCapacity()).ifPresent(semanticCache::setCapacity);
+        Optional.ofNullable(wenXinProperties.getSemanticCacheTtlMillis()).ifPresent(semanticCache::setTtlMillis);
+    }
+
+    private void initUserShareOptions(UserShareOptions userShareOptions) {
+        Optional.ofNullable(wenXinProperties.getUserDefaultShare()).ifPresent(userShareOptions::setDefaultShare);
+        Optional.ofNullable(wenXinProperties.getUserMaxConcurrency()).ifPresent(userShareOptions::setDefaultConcurrency);
+        Optional.ofNullable(wenXinProperties.getUserShares()).ifPresent(list -> list.forEach(s -> {
+            String[] split = s.trim().split("\\s+");
+            userShareOptions.putShare(split[0], Double.parseDouble(split[1]));
+        }));
+        Optional.ofNullable(wenXinProperties.getUserConcurrency()).ifPresent(list -> list.forEach(s -> {
+            String[] split = s.trim().split("\\s+");
+            userShareOptions.putConcurrency(split[0], Integer.parseInt(split[1]));
+        }));
+        log.info("init user share options: {}", userShareOptions);
+    }
+
 }
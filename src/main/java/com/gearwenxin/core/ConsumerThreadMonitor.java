@@ -34,9 +34,10 @@ public class ConsumerThreadMonitor implements CommandLineRunner {
                 .taskType(ModelType.check)
                 .modelConfig(ModelConfig.builder().modelName(Constant.CHECK).build())
                 .build();
-        taskQueueManager.addTask(checkTask);
+        // 消费线程会被立即唤醒，需先设置latch再提交检测任务
         CountDownLatch countDownLatch = new CountDownLatch(1);
         taskConsumerLoop.setTestCountDownLatch(countDownLatch);
+        taskQueueManager.addTask(checkTask);
         try {
             log.info("Waiting for consumer thread to start...");
             countDownLatch.await();
@@ -0,0 +1,86 @@
+package com.gearwenxin.core;
+
+import com.gearwenxin.config.WenXinProperties;
+import com.gearwenxin.schedule.TaskConsumerLoop;
+import com.gearwenxin.schedule.TaskQueueManager;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * 配置刷新时重新加载模型QPS、TPM、并发上限与队列高/低水位，无需重启，排队中的任务不受影响
+ * <p>
+ * 监听spring-cloud-context的EnvironmentChangeEvent（/actuator/refresh、配置中心推送），
+ * 未引入spring-cloud时不会触发；也可直接调用refresh()或TaskConsumerLoop.updateModelQPS修改
+ */
+@Slf4j
+@Component
+public class ModelLimitRefreshListener implements ApplicationListener<ApplicationEvent> {
+
+    public static final String TAG = "ModelLimitRefreshListener";
+
+    private static final String ENVIRONMENT_CHANGE_EVENT =
+            "org.springframework.cloud.context.environment.EnvironmentChangeEvent";
+    private static final String PROPERTIES_PREFIX = "gear.wenxin";
+
+    @Resource
+    private TaskConsumerLoop taskConsumerLoop;
+
+    @Resource
+    private Environment environment;
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (ENVIRONMENT_CHANGE_EVENT.equals(event.getClass().getName()) && isWenXinChanged(event)) {
+            refresh();
+        }
+    }
+
+    /**
+     * 从当前Environment重新绑定配置并应用
+     */
+    public void refresh() {
+        WenXinProperties properties = Binder.get(environment)
+                .bind(PROPERTIES_PREFIX, WenXinProperties.class)
+                .orElseGet(WenXinProperties::new);
+        taskConsumerLoop.refreshModelQPS(properties.getModelQPSList());
+        taskConsumerLoop.refreshModelConcurrency(properties.getModelConcurrency());
+        taskConsumerLoop.refreshAdaptiveConcurrency(properties.getModelAdaptiveConcurrency());
+        taskConsumerLoop.refreshModelTpm(properties.getModelTpm());
+        refreshWatermark(properties);
+        log.info("[{}] model limits refreshed", TAG);
+    }
+
+    /**
+     * 未配置时恢复默认值，已有模型在下一次排队数变化时按新比例判断
+     */
+    private static void refreshWatermark(WenXinProperties properties) {
+        TaskQueueManager taskQueueManager = TaskQueueManager.getInstance();
+        taskQueueManager.setHighWatermarkRatio(Optional.ofNullable(properties.getQueueHighWatermark())
+                .orElse(TaskQueueManager.DEFAULT_HIGH_WATERMARK_RATIO));
+        taskQueueManager.setLowWatermarkRatio(Optional.ofNullable(properties.getQueueLowWatermark())
+                .orElse(TaskQueueManager.DEFAULT_LOW_WATERMARK_RATIO));
+    }
+
+    /**
+     * EnvironmentChangeEvent.getKeys() 中是否包含本starter的配置
+     */
+    private static boolean isWenXinChanged(ApplicationEvent event) {
+        try {
+            Object keys = event.getClass().getMethod("getKeys").invoke(event);
+            return keys instanceof Collection<?> keyCollection
+                    && keyCollection.stream().anyMatch(key -> String.valueOf(key).startsWith(PROPERTIES_PREFIX));
+        } catch (ReflectiveOperationException e) {
+            log.warn("[{}] failed to read changed keys, refresh anyway", TAG, e);
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.gearwenxin.core;
+
+import com.gearwenxin.entity.response.ChatResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 相同请求合并（single-flight）
+ * <p>
+ * 同一时刻key相同的请求只提交一个任务，其余订阅者挂到该任务上，收到相同的响应（流式响应会重放已发出的分片）；
+ * 任务结束后立即移除，之后的请求重新提交。所有订阅者都取消时取消该任务。
+ */
+@Slf4j
+public class RequestCoalescer {
+
+    public static final String TAG = "RequestCoalescer";
+
+    private final Map<String, Flux<ChatResponse>> inFlightMap = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    private volatile static RequestCoalescer instance = null;
+
+    private RequestCoalescer() {
+    }
+
+    public static RequestCoalescer getInstance() {
+        if (instance == null) {
+            synchronized (RequestCoalescer.class) {
+                if (instance == null) {
+                    instance = new RequestCoalescer();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 订阅时查找key相同的在途请求，没有则通过supplier提交新请求
+     */
+    public Flux<ChatResponse> coalesce(String key, Supplier<? extends Publisher<ChatResponse>> supplier) {
+        return Flux.defer(() -> {
+            boolean[] created = {false};
+            Flux<ChatResponse> shared = inFlightMap.computeIfAbsent(key, k -> {
+                created[0] = true;
+                AtomicReference<Flux<ChatResponse>> self = new AtomicReference<>();
+                self.set(Flux.from(supplier.get())
+                        .doFinally(signal -> inFlightMap.remove(k, self.get()))
+                        .replay()
+                        .refCount(1));
+                return self.get();
+            });
+            if (created[0]) {
+                missCount.increment();
+            } else {
+                hitCount.increment();
+                log.debug("[{}] coalesced request: {}", TAG, key);
+            }
+            return shared;
+        });
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public int getInFlightCount() {
+        return inFlightMap.size();
+    }
+
+    @Override
+    public String toString() {
+        return "RequestCoalescer { hitCount: " + getHitCount() + ", missCount: " + getMissCount() +
+                ", inFlight: " + getInFlightCount() + " }";
+    }
+
+}
@@ -7,7 +7,6 @@ import com.gearwenxin.entity.Message;
 import com.gearwenxin.entity.response.ChatResponse;
 import com.gearwenxin.entity.response.TokenResponse;
 import com.gearwenxin.exception.WenXinException;
-import com.gearwenxin.schedule.TaskQueueManager;
 import com.gearwenxin.schedule.entity.ModelHeader;
 import com.gearwenxin.subscriber.CommonSubscriber;
 import lombok.extern.slf4j.Slf4j;
@@ -15,9 +14,11 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.*;
+import org.springframework.web.util.UriBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
@@ -37,35 +38,26 @@ import static com.gearwenxin.core.MessageHistoryManager.validateMessageRule;
 @Slf4j
 public class RequestManager {
 
-    private final TaskQueueManager taskManager = TaskQueueManager.getInstance();
-
     private static final MessageHistoryManager messageHistoryManager = MessageHistoryManager.getInstance();
-    private static final String ACCESS_TOKEN_PRE = "?access_token=";
-
-    private static WebClient createWebClient(String baseUrl, ModelHeader header) {
-        WebClient.Builder builder = WebClient.builder()
-                .baseUrl(baseUrl)
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
-
-        if (header != null) {
-            Optional.ofNullable(header.get_X_Ratelimit_Limit_Requests())
-                    .ifPresent(value ->
-                            builder.defaultHeader("X-Ratelimit-Limit-Requests", String.valueOf(value)));
-            Optional.ofNullable(header.get_X_Ratelimit_Limit_Tokens())
-                    .ifPresent(value ->
-                            builder.defaultHeader("X-Ratelimit-Limit-Tokens", String.valueOf(value)));
-            Optional.ofNullable(header.get_X_Ratelimit_Remaining_Requests())
-                    .ifPresent(value ->
-                            builder.defaultHeader("X-Ratelimit-Remaining-Requests", String.valueOf(value)));
-            Optional.ofNullable(header.get_X_Ratelimit_Remaining_Tokens())
-                    .ifPresent(value ->
-                            builder.defaultHeader("X-Ratelimit-Remaining-Tokens", String.valueOf(value)));
-            Optional.ofNullable(header.getAuthorization())
-                    .ifPresent(value ->
-                            builder.defaultHeader(HttpHeaders.AUTHORIZATION, value));
-        }
+    private static final String ACCESS_TOKEN = "access_token";
+
+    private static final WebClientManager webClientManager = WebClientManager.getInstance();
 
-        return builder.build();
+    private static WebClient getWebClient(ModelConfig config) {
+        return webClientManager.getWebClient(config.getModelUrl(), config.getModelName());
+    }
+
+    /**
+     * 请求只携带鉴权头；X-Ratelimit-*是上游的响应头，由WebClientManager在响应时回填到ModelHeader
+     */
+    private static void applyAuthorization(HttpHeaders headers, ModelHeader header) {
+        Optional.ofNullable(header)
+                .map(ModelHeader::getAuthorization)
+                .ifPresent(value -> headers.set(HttpHeaders.AUTHORIZATION, value));
+    }
+
+    private static void bindModelHeader(Map<String, Object> attributes, ModelHeader header) {
+        Optional.ofNullable(header).ifPresent(value -> attributes.put(WebClientManager.MODEL_HEADER_ATTRIBUTE, value));
     }
 
     public <T> Mono<T> monoPost(ModelConfig config, String accessToken, Object request, Class<T> type) {
@@ -76,13 +68,15 @@ public class RequestManager {
                                 String messageUid) {
         validateRequestParams(config.getModelUrl(), accessToken, request, type);
 
-        String completeUrl = buildCompleteUrl(config, accessToken);
-        return createWebClient(completeUrl, config.getModelHeader())
+        return getWebClient(config)
                 .post()
+                .uri(uriBuilder -> buildTokenUri(uriBuilder, config, accessToken))
+                .headers(headers -> applyAuthorization(headers, config.getModelHeader()))
+                .attributes(attributes -> bindModelHeader(attributes, config.getModelHeader()))
                 .body(BodyInserters.fromValue(request))
                 .retrieve()
                 .bodyToMono(type)
-                .doOnSuccess(response -> handleSuccess(response, messageUid, config))
+                .doOnSuccess(response -> handleErrResponse(response, messageUid))
                 .doOnError(WebClientResponseException.class, handleWebClientError());
     }
 
@@ -94,16 +88,17 @@ public class RequestManager {
                                 String messageUid) {
         validateRequestParams(config.getModelUrl(), accessToken, request, type);
 
-        String completeUrl = buildCompleteUrl(config, accessToken);
-        return createWebClient(completeUrl, config.getModelHeader())
+        return getWebClient(config)
                 .post()
+                .uri(uriBuilder -> buildTokenUri(uriBuilder, config, accessToken))
+                .headers(headers -> applyAuthorization(headers, config.getModelHeader()))
+                .attributes(attributes -> bindModelHeader(attributes, config.getModelHeader()))
                 .body(BodyInserters.fromValue(request))
                 .accept(MediaType.TEXT_EVENT_STREAM)
                 .retrieve()
                 .bodyToFlux(type)
                 .doOnNext(response -> handleStreamingResponse(response, messageUid))
-                .doOnError(WebClientResponseException.class, handleWebClientError())
-                .doOnComplete(() -> taskManager.downModelCurrentQPS(config.getModelName()));
+                .doOnError(WebClientResponseException.class, handleWebClientError());
     }
 
     public <T> Mono<T> monoGet(ModelConfig config, String accessToken, Map<String, String> paramsMap,
@@ -111,14 +106,16 @@ public class RequestManager {
         validateRequestParams(config.getModelUrl(), accessToken, paramsMap, type);
 
         if (!isAuthorization(config)) {
-            paramsMap.put("access_token", accessToken);
+            paramsMap.put(ACCESS_TOKEN, accessToken);
         }
 
         String queryParams = buildQueryParams(paramsMap);
 
-        return createWebClient(config.getModelUrl(), config.getModelHeader())
+        return getWebClient(config)
                 .get()
                 .uri(uriBuilder -> uriBuilder.query(queryParams).build())
+                .headers(headers -> applyAuthorization(headers, config.getModelHeader()))
+                .attributes(attributes -> bindModelHeader(attributes, config.getModelHeader()))
                 .retrieve()
                 .bodyToMono(type)
                 .doOnSuccess(RequestManager::handleErrResponse)
@@ -140,7 +137,6 @@ public class RequestManager {
                 .flatMap(chatResponse -> {
                     Message messageResult = WenXinUtils.buildAssistantMessage(chatResponse.getResult());
                     MessageHistoryManager.addMessage(messagesHistory, messageResult);
-                    taskManager.downModelCurrentQPS(config.getModelName());
                     return Mono.just(chatResponse);
                 });
     }
@@ -149,15 +145,15 @@ public class RequestManager {
         assertNotBlank("api-key或secret-key为空", apiKey, secretKey);
 
         final String url = String.format(GET_ACCESS_TOKEN_URL, apiKey, secretKey);
-        return createWebClient(url, null)
+        return webClientManager.getWebClient()
                 .get()
+                .uri(url)
                 .retrieve()
                 .bodyToMono(TokenResponse.class);
     }
 
-    private String buildCompleteUrl(ModelConfig config, String accessToken) {
-        return String.format("%s%s%s", config.getModelUrl(),
-                isAuthorization(config) ? "" : ACCESS_TOKEN_PRE, accessToken);
+    private URI buildTokenUri(UriBuilder uriBuilder, ModelConfig config, String accessToken) {
+        return isAuthorization(config) ? uriBuilder.build() : uriBuilder.queryParam(ACCESS_TOKEN, accessToken).build();
     }
 
     private static <T> void validateRequestParams(String url, String accessToken, Object request, Class<T> type) {
@@ -172,12 +168,6 @@ public class RequestManager {
                 .collect(Collectors.joining("&"));
     }
 
-    private void handleSuccess(Object response, String messageUid, ModelConfig config) {
-        if (!handleErrResponse(response, messageUid)) {
-            taskManager.downModelCurrentQPS(config.getModelName());
-        }
-    }
-
     private static <T> void handleErrResponse(T response) {
         handleErrResponse(response, null);
     }
@@ -213,7 +203,7 @@ public class RequestManager {
     }
 
     private boolean isAuthorization(ModelConfig config) {
-        return config.getModelHeader().getAuthorization() != null;
+        return config.getModelHeader() != null && config.getModelHeader().getAuthorization() != null;
     }
 
     private static Consumer<Throwable> handleWebClientError() {
@@ -0,0 +1,303 @@
+package com.gearwenxin.core;
+
+import com.gearwenxin.schedule.entity.ModelHeader;
+import com.gearwenxin.schedule.limiter.ModelQuotaTracker;
+import io.netty.channel.ChannelOption;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * WebClient管理
+ * <p>
+ * 所有请求共用一个连接池和事件循环，每个模型地址缓存一个WebClient，
+ * 避免每次请求重新创建WebClient、编解码器和连接，减少TLS握手。连接池指标通过 getPoolMetrics 获取。
+ * <p>
+ * epoll原生传输需要classpath中有对应平台的netty-transport-native-epoll：linux-x86_64由reactor-netty-http引入，
+ * 其他平台（如linux-aarch_64）需由使用方自行添加，缺少时回退到NIO。
+ */
+@Slf4j
+public class WebClientManager {
+
+    public static final String TAG = "WebClientManager";
+    private static final String POOL_NAME = "wenxin";
+    // 请求属性：响应头中的配额回填到该ModelHeader
+    public static final String MODEL_HEADER_ATTRIBUTE = WebClientManager.class.getName() + ".modelHeader";
+
+    private static final ModelQuotaTracker quotaTracker = ModelQuotaTracker.getInstance();
+
+    private final Map<String, WebClient> clientMap = new ConcurrentHashMap<>();
+    // 远端地址 -> 连接池指标
+    private final Map<String, ConnectionPoolMetrics> poolMetricsMap = new ConcurrentHashMap<>();
+
+    @Getter
+    private volatile Options options = new Options();
+    private volatile Resources resources;
+
+    private volatile static WebClientManager instance = null;
+
+    private WebClientManager() {
+    }
+
+    public static WebClientManager getInstance() {
+        if (instance == null) {
+            synchronized (WebClientManager.class) {
+                if (instance == null) {
+                    instance = new WebClientManager();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取模型地址对应的WebClient
+     *
+     * @param modelName 不为空时记录响应头中的配额，供消费线程放缓派发，并回填到请求属性中的ModelHeader
+     */
+    public WebClient getWebClient(String baseUrl, String modelName) {
+        String key = modelName + "|" + baseUrl;
+        WebClient webClient = clientMap.get(key);
+        if (webClient != null) {
+            return webClient;
+        }
+        return clientMap.computeIfAbsent(key, k -> createWebClient(baseUrl, modelName));
+    }
+
+    /**
+     * 不绑定地址的WebClient，用于获取access-token等一次性请求
+     */
+    public WebClient getWebClient() {
+        return getWebClient(null, null);
+    }
+
+    private WebClient createWebClient(String baseUrl, String modelName) {
+        WebClient.Builder builder = WebClient.builder()
+                .clientConnector(getResources().connector)
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        if (baseUrl != null) {
+            builder.baseUrl(baseUrl);
+        }
+        if (modelName != null) {
+            builder.filter((request, next) -> next.exchange(request).doOnNext(response -> {
+                HttpHeaders headers = response.headers().asHttpHeaders();
+                quotaTracker.update(modelName, headers);
+                request.attribute(MODEL_HEADER_ATTRIBUTE)
+                        .ifPresent(header -> updateModelHeader((ModelHeader) header, headers));
+            }));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 用响应头中的配额更新ModelHeader，缺少的头保持原值
+     */
+    private static void updateModelHeader(ModelHeader header, HttpHeaders headers) {
+        parseHeader(headers, ModelQuotaTracker.LIMIT_REQUESTS, header::set_X_Ratelimit_Limit_Requests);
+        parseHeader(headers, ModelQuotaTracker.LIMIT_TOKENS, header::set_X_Ratelimit_Limit_Tokens);
+        parseHeader(headers, ModelQuotaTracker.REMAINING_REQUESTS, header::set_X_Ratelimit_Remaining_Requests);
+        parseHeader(headers, ModelQuotaTracker.REMAINING_TOKENS, header::set_X_Ratelimit_Remaining_Tokens);
+    }
+
+    private static void parseHeader(HttpHeaders headers, String name, Consumer<Integer> setter) {
+        String value = headers.getFirst(name);
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        try {
+            setter.accept(Integer.valueOf(value.trim()));
+        } catch (NumberFormatException e) {
+            log.warn("[{}] invalid header {}: {}", TAG, name, value);
+        }
+    }
+
+    private Resources getResources() {
+        Resources current = resources;
+        if (current == null) {
+            synchronized (this) {
+                current = resources;
+                if (current == null) {
+                    current = new Resources(options);
+                    resources = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 修改连接池配置，之后的请求使用新的连接池；旧连接池不再分配连接，
+     * 在途请求在 maxLifeTimeMillis 内结束后关闭连接与事件循环，超过该时间的请求会被中断
+     */
+    public synchronized void setOptions(Options options) {
+        this.options = options;
+        Resources old = resources;
+        resources = null;
+        clientMap.clear();
+        if (old != null) {
+            old.dispose();
+        }
+    }
+
+    /**
+     * 各远端地址的连接池指标快照
+     */
+    public Map<String, PoolMetrics> getPoolMetrics() {
+        Map<String, PoolMetrics> snapshot = new HashMap<>();
+        poolMetricsMap.forEach((address, metrics) -> snapshot.put(address, new PoolMetrics(metrics)));
+        return snapshot;
+    }
+
+    public int getClientCount() {
+        return clientMap.size();
+    }
+
+    public boolean isNativeTransport() {
+        return options.isNativeTransport() && LoopResources.hasNativeSupport();
+    }
+
+    private class Resources {
+
+        private final ConnectionProvider provider;
+        private final LoopResources loopResources;
+        private final ReactorClientHttpConnector connector;
+
+        private Resources(Options options) {
+            this.provider = ConnectionProvider.builder(POOL_NAME)
+                    .maxConnections(options.getMaxConnections())
+                    .pendingAcquireMaxCount(options.getPendingAcquireMaxCount())
+                    .pendingAcquireTimeout(Duration.ofMillis(options.getPendingAcquireTimeoutMillis()))
+                    .maxIdleTime(Duration.ofMillis(options.getMaxIdleTimeMillis()))
+                    .maxLifeTime(Duration.ofMillis(options.getMaxLifeTimeMillis()))
+                    .evictInBackground(Duration.ofMillis(options.getEvictInBackgroundMillis()))
+                    // 关闭时等待已借出的连接归还
+                    .disposeTimeout(Duration.ofMillis(options.getMaxLifeTimeMillis()))
+                    .metrics(true, () -> new ConnectionProvider.MeterRegistrar() {
+                        @Override
+                        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress,
+                                                    ConnectionPoolMetrics metrics) {
+                            poolMetricsMap.put(String.valueOf(remoteAddress), metrics);
+                        }
+
+                        @Override
+                        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+                            poolMetricsMap.remove(String.valueOf(remoteAddress));
+                        }
+                    })
+                    .build();
+            this.loopResources = LoopResources.create("wenxin-http", options.getWorkerCount(), options.isNativeTransport());
+            HttpClient httpClient = HttpClient.create(provider)
+                    .runOn(loopResources, options.isNativeTransport())
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, options.getConnectTimeoutMillis());
+            this.connector = new ReactorClientHttpConnector(httpClient);
+            log.info("[{}] create connection pool: {}, native transport: {}", TAG, options, isNativeTransport());
+        }
+
+        /**
+         * 连接池等待在途请求结束（最长disposeTimeout）后再关闭事件循环
+         */
+        private void dispose() {
+            provider.disposeLater().then(Mono.defer(loopResources::disposeLater)).subscribe(null,
+                    e -> log.warn("[{}] dispose connection pool failed: {}", TAG, e.getMessage()));
+        }
+
+    }
+
+    /**
+     * 连接池配置
+     */
+    @Data
+    public static class Options {
+
+        /**
+         * 每个远端地址的最大连接数
+         */
+        private int maxConnections = 500;
+
+        /**
+         * 等待获取连接的最大请求数，超过后直接失败
+         */
+        private int pendingAcquireMaxCount = 1000;
+
+        private long pendingAcquireTimeoutMillis = 45_000;
+
+        /**
+         * 连接空闲超过该时间后关闭
+         */
+        private long maxIdleTimeMillis = 30_000;
+
+        /**
+         * 连接存活超过该时间后不再复用
+         */
+        private long maxLifeTimeMillis = 300_000;
+
+        /**
+         * 后台清理空闲和过期连接的间隔
+         */
+        private long evictInBackgroundMillis = 30_000;
+
+        private int connectTimeoutMillis = 10_000;
+
+        /**
+         * IO线程数
+         */
+        private int workerCount = LoopResources.DEFAULT_IO_WORKER_COUNT;
+
+        /**
+         * 是否优先使用epoll原生传输，classpath中缺少当前平台的netty-transport-native-epoll时回退到NIO
+         */
+        private boolean nativeTransport = true;
+
+    }
+
+    /**
+     * 连接池指标
+     */
+    @Getter
+    public static class PoolMetrics {
+
+        // 正在使用的连接数
+        private final int acquired;
+        // 已建立的连接数
+        private final int allocated;
+        private final int idle;
+        // 等待获取连接的请求数
+        private final int pendingAcquire;
+        private final int maxAllocated;
+        private final int maxPendingAcquire;
+
+        private PoolMetrics(ConnectionPoolMetrics metrics) {
+            this.acquired = metrics.acquiredSize();
+            this.allocated = metrics.allocatedSize();
+            this.idle = metrics.idleSize();
+            this.pendingAcquire = metrics.pendingAcquireSize();
+            this.maxAllocated = metrics.maxAllocatedSize();
+            this.maxPendingAcquire = metrics.maxPendingAcquireSize();
+        }
+
+        @Override
+        public String toString() {
+            return "PoolMetrics { acquired: " + acquired + ", allocated: " + allocated + ", idle: " + idle +
+                    ", pendingAcquire: " + pendingAcquire + ", maxAllocated: " + maxAllocated +
+                    ", maxPendingAcquire: " + maxPendingAcquire + " }";
+        }
+
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.gearwenxin.entity.enums;
+
+/**
+ * 任务队列满时的溢出策略
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 直接拒绝新任务
+     */
+    REJECT,
+
+    /**
+     * 丢弃权重最低的任务（新任务权重最低时拒绝新任务）
+     */
+    DROP_LOWEST_WEIGHT,
+
+    /**
+     * 丢弃最早入队的任务
+     */
+    DROP_OLDEST,
+
+    /**
+     * 阻塞提交线程直到有空位或超时，不要在事件循环线程上使用
+     */
+    BLOCK,
+
+}
@@ -0,0 +1,19 @@
+package com.gearwenxin.entity.enums;
+
+/**
+ * 舱壁线程池满时的拒绝策略，只在派发时（请求发出前）生效；
+ * 已发出请求的响应交付不受此策略影响，满时在当前线程上交付
+ */
+public enum RejectPolicy {
+
+    /**
+     * 直接拒绝，请求以BULKHEAD_FULL异常结束
+     */
+    ABORT,
+
+    /**
+     * 由提交线程（派发线程）执行，不丢弃请求，但会占用派发线程
+     */
+    CALLER_RUNS,
+
+}
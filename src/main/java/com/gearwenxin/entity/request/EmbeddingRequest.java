@@ -0,0 +1,40 @@
+package com.gearwenxin.entity.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.gearwenxin.common.ErrorCode;
+import com.gearwenxin.exception.WenXinException;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Embedding请求
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmbeddingRequest {
+
+    /**
+     * 输入文本列表，文本数量与单条长度的上限见各模型文档（Embedding-V1 为16条、每条384 tokens）
+     */
+    @JsonProperty("input")
+    private List<String> input;
+
+    @JsonProperty("user_id")
+    private String userId;
+
+    public void validSelf() {
+        if (input == null || input.isEmpty()) {
+            throw new WenXinException(ErrorCode.PARAMS_ERROR, "input cannot be empty");
+        }
+        if (input.stream().anyMatch(text -> text == null || text.isBlank())) {
+            throw new WenXinException(ErrorCode.PARAMS_ERROR, "input text cannot be blank");
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.gearwenxin.entity.response;
+
+import lombok.Data;
+
+/**
+ * 单条输入的向量结果
+ */
+@Data
+public class EmbeddingData {
+
+    /**
+     * 固定值 "embedding"
+     */
+    private String object;
+
+    /**
+     * 向量
+     */
+    private float[] embedding;
+
+    /**
+     * 对应输入列表中的序号
+     */
+    private int index;
+
+}
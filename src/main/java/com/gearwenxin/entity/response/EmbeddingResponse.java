@@ -0,0 +1,56 @@
+package com.gearwenxin.entity.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.gearwenxin.entity.Usage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Embedding响应
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmbeddingResponse {
+
+    /**
+     * 请求的ID。
+     */
+    private String id;
+
+    /**
+     * 回包类型。固定值为 "embedding_list"。
+     */
+    private String object;
+
+    /**
+     * 时间戳，表示生成响应的时间。
+     */
+    private int created;
+
+    /**
+     * 向量结果列表。
+     */
+    private List<EmbeddingData> data;
+
+    /**
+     * token统计信息。
+     */
+    private Usage usage;
+
+    /**
+     * 错误代码，正常为 null
+     */
+    @JsonProperty("error_code")
+    private Integer errorCode;
+
+    /**
+     * 错误信息，正常为 null
+     */
+    @JsonProperty("error_msg")
+    private String errorMsg;
+
+}
@@ -5,6 +5,8 @@ import com.gearwenxin.entity.response.ChatResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
 public interface BasicChatModel {
 
     /** 单次对话 **/
@@ -16,6 +18,11 @@ public interface BasicChatModel {
 
     <T extends ChatBaseRequest> Mono<ChatResponse> chat(T chatRequest, float weight);
 
+    /** timeout: 排队超时时间，超时未派发则以TASK_EXPIRED结束；实现类未覆盖时忽略timeout **/
+    default <T extends ChatBaseRequest> Mono<ChatResponse> chat(T chatRequest, float weight, Duration timeout) {
+        return chat(chatRequest, weight);
+    }
+
     Flux<ChatResponse> chatStream(String content);
 
     Flux<ChatResponse> chatStream(String content, float weight);
@@ -24,4 +31,8 @@ public interface BasicChatModel {
 
     <T extends ChatBaseRequest> Flux<ChatResponse> chatStream(T chatRequest, float weight);
 
+    default <T extends ChatBaseRequest> Flux<ChatResponse> chatStream(T chatRequest, float weight, Duration timeout) {
+        return chatStream(chatRequest, weight);
+    }
+
 }
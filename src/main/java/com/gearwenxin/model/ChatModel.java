@@ -1,11 +1,15 @@
 package com.gearwenxin.model;
 
+import com.gearwenxin.common.ErrorCode;
 import com.gearwenxin.entity.chatmodel.ChatBaseRequest;
 import com.gearwenxin.entity.response.ChatResponse;
+import com.gearwenxin.exception.WenXinException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 public interface ChatModel {
 
@@ -18,6 +22,11 @@ public interface ChatModel {
 
     <T extends ChatBaseRequest> Mono<ChatResponse> chat(T chatRequest, float weight);
 
+    /** timeout: 排队超时时间，超时未派发则以TASK_EXPIRED结束；实现类未覆盖时忽略timeout **/
+    default <T extends ChatBaseRequest> Mono<ChatResponse> chat(T chatRequest, float weight, Duration timeout) {
+        return chat(chatRequest, weight);
+    }
+
     Flux<ChatResponse> chatStream(String content);
 
     Flux<ChatResponse> chatStream(String content, float weight);
@@ -26,6 +35,10 @@ public interface ChatModel {
 
     <T extends ChatBaseRequest> Flux<ChatResponse> chatStream(T chatRequest, float weight);
 
+    default <T extends ChatBaseRequest> Flux<ChatResponse> chatStream(T chatRequest, float weight, Duration timeout) {
+        return chatStream(chatRequest, weight);
+    }
+
     Flux<ChatResponse> chatStream(Map<Object, Object> chatRequest);
 
     /** 连续对话 **/
@@ -37,6 +50,10 @@ public interface ChatModel {
 
     <T extends ChatBaseRequest> Mono<ChatResponse> chats(T chatRequest, String msgUid, float weight);
 
+    default <T extends ChatBaseRequest> Mono<ChatResponse> chats(T chatRequest, String msgUid, float weight, Duration timeout) {
+        return chats(chatRequest, msgUid, weight);
+    }
+
     Flux<ChatResponse> chatsStream(String content, String msgUid);
 
     Flux<ChatResponse> chatsStream(String content, String msgUid, float weight);
@@ -45,4 +62,53 @@ public interface ChatModel {
 
     <T extends ChatBaseRequest> Flux<ChatResponse> chatsStream(T chatRequest, String msgUid, float weight);
 
+    default <T extends ChatBaseRequest> Flux<ChatResponse> chatsStream(T chatRequest, String msgUid, float weight, Duration timeout) {
+        return chatsStream(chatRequest, msgUid, weight);
+    }
+
+    /**
+     * 同步调用的默认等待时间，超时后取消请求并抛出RESPONSE_TIMEOUT
+     */
+    Duration BLOCKING_TIMEOUT = Duration.ofMinutes(2);
+
+    /**
+     * 同步调用：在调用方线程上阻塞直到返回结果或超时，供Spring MVC等同步调用方使用，不要在Reactor的非阻塞线程上调用。
+     * 阻塞的是调用方自己的线程；调用方运行在虚拟线程上（Java 21+，如Spring Boot 3.2+ 的 spring.threads.virtual.enabled=true）
+     * 时只挂起虚拟线程，等待过程不持有监视器锁，不会占住载体线程。
+     */
+    default ChatResponse chatBlocking(String content) {
+        return block(chat(content), BLOCKING_TIMEOUT);
+    }
+
+    default ChatResponse chatBlocking(String content, float weight) {
+        return block(chat(content, weight), BLOCKING_TIMEOUT);
+    }
+
+    default <T extends ChatBaseRequest> ChatResponse chatBlocking(T chatRequest) {
+        return block(chat(chatRequest), BLOCKING_TIMEOUT);
+    }
+
+    /** timeout: 排队超时时间，总等待时间为排队超时加 BLOCKING_TIMEOUT **/
+    default <T extends ChatBaseRequest> ChatResponse chatBlocking(T chatRequest, float weight, Duration timeout) {
+        return block(chat(chatRequest, weight, timeout), waitTimeout(timeout));
+    }
+
+    default ChatResponse chatsBlocking(String content, String msgUid) {
+        return block(chats(content, msgUid), BLOCKING_TIMEOUT);
+    }
+
+    default <T extends ChatBaseRequest> ChatResponse chatsBlocking(T chatRequest, String msgUid, float weight, Duration timeout) {
+        return block(chats(chatRequest, msgUid, weight, timeout), waitTimeout(timeout));
+    }
+
+    private static Duration waitTimeout(Duration queueTimeout) {
+        return queueTimeout == null ? BLOCKING_TIMEOUT : queueTimeout.plus(BLOCKING_TIMEOUT);
+    }
+
+    private static ChatResponse block(Mono<ChatResponse> response, Duration timeout) {
+        return response.timeout(timeout)
+                .onErrorMap(TimeoutException.class, e -> new WenXinException(ErrorCode.RESPONSE_TIMEOUT))
+                .block();
+    }
+
 }
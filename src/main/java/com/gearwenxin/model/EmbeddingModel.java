@@ -1,9 +1,12 @@
 package com.gearwenxin.model;
 
-import com.gearwenxin.entity.chatmodel.ChatPromptRequest;
-import com.gearwenxin.entity.response.PromptResponse;
+import com.gearwenxin.entity.request.EmbeddingRequest;
+import com.gearwenxin.entity.response.EmbeddingResponse;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+
 /**
  * @author Ge Mingjia
  * {@code @date} 2023/7/20
@@ -11,14 +14,32 @@ import reactor.core.publisher.Mono;
 public interface EmbeddingModel {
 
     /**
-     * Prompt模板对话 (Get请求 不支持流式返回)
-     * （非流式）
+     * 单条文本向量化，多个线程同时发起的调用会合并为批量请求
+     *
+     * @param text 文本
+     * @return 向量，每个调用方得到独立的数组
+     */
+    Mono<float[]> embed(String text);
+
+    /**
+     * 多条文本向量化，按顺序返回，同样经过批量合并
+     */
+    Mono<List<float[]>> embedAll(List<String> texts);
+
+    /**
+     * 直接发送一次Embedding请求（不合并）
      *
      * @param request 请求实体类
-     * @return ChatResponse 响应实体类
+     * @return EmbeddingResponse 响应实体类
      */
-    Mono<PromptResponse> chat(ChatPromptRequest request);
-    Mono<PromptResponse> chat(ChatPromptRequest request, float weight);
+    Mono<EmbeddingResponse> embedding(EmbeddingRequest request);
+    Mono<EmbeddingResponse> embedding(EmbeddingRequest request, float weight);
 
+    /**
+     * @param timeout 排队超时时间，超时未派发则以TASK_EXPIRED结束；实现类未覆盖时忽略timeout
+     */
+    default Mono<EmbeddingResponse> embedding(EmbeddingRequest request, float weight, Duration timeout) {
+        return embedding(request, weight);
+    }
 
 }
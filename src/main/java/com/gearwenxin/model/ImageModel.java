@@ -4,6 +4,8 @@ import com.gearwenxin.entity.request.ImageBaseRequest;
 import com.gearwenxin.entity.response.ImageResponse;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
 /**
  * @author Ge Mingjia
  * {@code @date} 2023/7/20
@@ -20,4 +22,11 @@ public interface ImageModel<T extends ImageBaseRequest> {
 
     Mono<ImageResponse> chatImage(T imageBaseRequest, float weight);
 
+    /**
+     * @param timeout 排队超时时间，超时未派发则以TASK_EXPIRED结束；实现类未覆盖时忽略timeout
+     */
+    default Mono<ImageResponse> chatImage(T imageBaseRequest, float weight, Duration timeout) {
+        return chatImage(imageBaseRequest, weight);
+    }
+
 }
@@ -4,6 +4,8 @@ import com.gearwenxin.entity.chatmodel.ChatPromptRequest;
 import com.gearwenxin.entity.response.PromptResponse;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
 /**
  * @author Ge Mingjia
  * {@code @date} 2023/7/20
@@ -20,5 +22,12 @@ public interface PromptModel {
     Mono<PromptResponse> chat(ChatPromptRequest request);
     Mono<PromptResponse> chat(ChatPromptRequest request, float weight);
 
+    /**
+     * @param timeout 排队超时时间，超时未派发则以TASK_EXPIRED结束；实现类未覆盖时忽略timeout
+     */
+    default Mono<PromptResponse> chat(ChatPromptRequest request, float weight, Duration timeout) {
+        return chat(request, weight);
+    }
+
 
 }
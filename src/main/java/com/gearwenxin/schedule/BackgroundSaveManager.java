@@ -1,15 +1,14 @@
 package com.gearwenxin.schedule;
 
 import com.gearwenxin.config.WenXinProperties;
-import com.gearwenxin.schedule.entity.BlockingMap;
-import com.gearwenxin.schedule.entity.ChatTask;
+import com.gearwenxin.schedule.entity.ModelTaskQueue;
 import com.google.gson.Gson;
 import jakarta.annotation.Resource;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.util.Map;
 
 @Component
 @EnableScheduling
@@ -27,7 +26,7 @@ public class BackgroundSaveManager {
      */
 //    @Scheduled(fixedDelay = 2000)
 //    public void saveTaskQueueThread() {
-//        BlockingMap<String, List<ChatTask>> taskMap = taskManager.getTaskMap();
+//        Map<String, ModelTaskQueue> taskMap = taskManager.getTaskMap();
 //        String taskMapJson = gson.toJson(taskMap);
 ////        SaveService.saveTaskQueue(taskMapJson);
 //    }
@@ -0,0 +1,223 @@
+package com.gearwenxin.schedule;
+
+import com.gearwenxin.entity.enums.RejectPolicy;
+import com.gearwenxin.schedule.entity.BulkheadOptions;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 模型舱壁
+ * <p>
+ * 每个模型（或模型分组）独立的有界线程池，交付结果和下游回调都在该线程池上执行，
+ * 某个模型响应慢或回调阻塞时只会占满自己的线程池，不影响其他模型。
+ * 准入只在派发时进行（execute，满时按拒绝策略处理并计数）；已发出的请求的响应通过 getScheduler 交付，
+ * 线程池满时在当前线程上交付，不会中断已经开始的响应。
+ * <p>
+ * 使用方通过 acquire/release 登记，配置变更后旧舱壁在最后一个使用方释放时关闭。
+ */
+@Slf4j
+public class Bulkhead implements Executor {
+
+    public static final String TAG = "Bulkhead";
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    @Getter
+    private final String name;
+    @Getter
+    private final BulkheadOptions options;
+    private final ThreadPoolExecutor executor;
+    @Getter
+    private final Scheduler scheduler;
+
+    // 使用中的请求数，-1 表示已关闭
+    private final AtomicInteger users = new AtomicInteger();
+    private volatile boolean retired = false;
+
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder callerRunsCount = new LongAdder();
+    // 线程池满时在当前线程上交付的响应信号数
+    private final LongAdder inlineDeliveryCount = new LongAdder();
+    private final LongAdder executedCount = new LongAdder();
+    // 排队等待的累计/最大耗时（微秒）
+    private final LongAdder queueWaitTotalMicros = new LongAdder();
+    private final LongAccumulator queueWaitMaxMicros = new LongAccumulator(Long::max, 0);
+
+    public Bulkhead(String name, BulkheadOptions options) {
+        this.name = name;
+        this.options = options;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(options.getCoreSize(), Math.max(options.getCoreSize(), options.getMaxSize()),
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, options.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "wenxin-" + name + "-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> {
+                    throw new RejectedExecutionException("bulkhead " + name + " is full");
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        // 交付已发出请求的响应，满时不拒绝
+        this.scheduler = Schedulers.fromExecutor(this::deliver);
+    }
+
+    /**
+     * 提交任务，满时按拒绝策略处理：CALLER_RUNS在提交线程上执行，ABORT抛出RejectedExecutionException
+     */
+    @Override
+    public void execute(Runnable command) {
+        try {
+            submit(command);
+        } catch (RejectedExecutionException e) {
+            if (options.getRejectPolicy() == RejectPolicy.CALLER_RUNS && !executor.isShutdown()) {
+                callerRunsCount.increment();
+                command.run();
+                return;
+            }
+            onRejected();
+            throw e;
+        }
+    }
+
+    /**
+     * 交付响应信号：请求已发出、额度已消耗，满时（或舱壁已关闭）在提交线程上执行而不是拒绝，
+     * 不论拒绝策略；提交线程通常是Netty事件循环，此时回调慢会拖慢其IO，可通过 getInlineDeliveryCount 观察
+     */
+    public void deliver(Runnable command) {
+        try {
+            submit(command);
+        } catch (RejectedExecutionException e) {
+            inlineDeliveryCount.increment();
+            command.run();
+        }
+    }
+
+    private void submit(Runnable command) {
+        submittedCount.increment();
+        long submitTime = System.nanoTime();
+        executor.execute(() -> {
+            long waitMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - submitTime);
+            executedCount.increment();
+            queueWaitTotalMicros.add(waitMicros);
+            queueWaitMaxMicros.accumulate(waitMicros);
+            command.run();
+        });
+    }
+
+    private void onRejected() {
+        rejectedCount.increment();
+        log.warn("[{}] bulkhead [{}] is full, active: {}, queued: {}", TAG, name,
+                executor.getActiveCount(), executor.getQueue().size());
+    }
+
+    /**
+     * 登记一个使用方
+     *
+     * @return 舱壁已关闭时返回false
+     */
+    public boolean acquire() {
+        while (true) {
+            int count = users.get();
+            if (count < 0) {
+                return false;
+            }
+            if (users.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        if (users.decrementAndGet() == 0 && retired) {
+            tryShutdown();
+        }
+    }
+
+    /**
+     * 停止接收新的使用方，进行中的使用方全部释放后关闭
+     */
+    public void retire() {
+        retired = true;
+        tryShutdown();
+    }
+
+    private void tryShutdown() {
+        if (users.compareAndSet(0, -1)) {
+            log.info("[{}] bulkhead [{}] retired and drained, shutdown", TAG, name);
+            shutdown();
+        }
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    public void shutdown() {
+        scheduler.dispose();
+        executor.shutdown();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public long getCompletedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getCallerRunsCount() {
+        return callerRunsCount.sum();
+    }
+
+    public long getInlineDeliveryCount() {
+        return inlineDeliveryCount.sum();
+    }
+
+    public long getQueueWaitMaxMicros() {
+        return queueWaitMaxMicros.get();
+    }
+
+    public double getQueueWaitAvgMicros() {
+        long count = executedCount.sum();
+        return count == 0 ? 0 : (double) queueWaitTotalMicros.sum() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead { name: " + name + ", active: " + getActiveCount() + ", poolSize: " + getPoolSize() +
+                ", queued: " + getQueueSize() + ", submitted: " + getSubmittedCount() +
+                ", completed: " + getCompletedCount() + ", rejected: " + getRejectedCount() +
+                ", callerRuns: " + getCallerRunsCount() + ", inlineDelivery: " + getInlineDeliveryCount() +
+                ", queueWaitAvgMicros: " + String.format("%.1f", getQueueWaitAvgMicros()) +
+                ", queueWaitMaxMicros: " + getQueueWaitMaxMicros() + " }";
+    }
+
+}
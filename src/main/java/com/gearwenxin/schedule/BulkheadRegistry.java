@@ -0,0 +1,104 @@
+package com.gearwenxin.schedule;
+
+import com.gearwenxin.schedule.entity.BulkheadOptions;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模型舱壁注册表
+ * <p>
+ * 舱壁按名称创建，名称默认为模型名；同一分组的模型共用分组名对应的舱壁。
+ * 未单独配置的舱壁使用默认配置，首次使用时创建。
+ */
+@Slf4j
+public class BulkheadRegistry {
+
+    public static final String TAG = "BulkheadRegistry";
+
+    private final Map<String, Bulkhead> bulkheadMap = new ConcurrentHashMap<>();
+    private final Map<String, BulkheadOptions> optionsMap = new ConcurrentHashMap<>();
+    // 模型名 -> 分组名
+    private final Map<String, String> groupMap = new ConcurrentHashMap<>();
+
+    @Getter
+    @Setter
+    private volatile BulkheadOptions defaultOptions = new BulkheadOptions();
+
+    private volatile static BulkheadRegistry instance = null;
+
+    private BulkheadRegistry() {
+    }
+
+    public static BulkheadRegistry getInstance() {
+        if (instance == null) {
+            synchronized (BulkheadRegistry.class) {
+                if (instance == null) {
+                    instance = new BulkheadRegistry();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取模型所属的舱壁
+     */
+    public Bulkhead forModel(String modelName) {
+        String name = groupMap.getOrDefault(modelName, modelName);
+        Bulkhead bulkhead = bulkheadMap.get(name);
+        if (bulkhead != null) {
+            return bulkhead;
+        }
+        return bulkheadMap.computeIfAbsent(name, k -> {
+            BulkheadOptions options = optionsMap.getOrDefault(k, defaultOptions);
+            log.info("[{}] create bulkhead [{}]: {}", TAG, k, options);
+            return new Bulkhead(k, options);
+        });
+    }
+
+    /**
+     * 获取模型所属的舱壁并登记为使用方，用完后调用 {@link Bulkhead#release()}
+     */
+    public Bulkhead acquire(String modelName) {
+        while (true) {
+            Bulkhead bulkhead = forModel(modelName);
+            if (bulkhead.acquire()) {
+                return bulkhead;
+            }
+            // 已被替换并关闭，重新获取
+            bulkheadMap.remove(bulkhead.getName(), bulkhead);
+        }
+    }
+
+    /**
+     * 设置舱壁配置，之后的请求使用新的舱壁；旧舱壁上进行中的请求不受影响，全部结束后关闭
+     */
+    public void putOptions(String name, BulkheadOptions options) {
+        optionsMap.put(name, options);
+        Bulkhead old = bulkheadMap.remove(name);
+        if (old != null) {
+            old.retire();
+        }
+    }
+
+    /**
+     * 将模型归入分组，共用分组的舱壁
+     */
+    public void putGroup(String groupName, String modelName) {
+        groupMap.put(modelName, groupName);
+    }
+
+    public Bulkhead getBulkhead(String name) {
+        return bulkheadMap.get(name);
+    }
+
+    public Collection<Bulkhead> getBulkheads() {
+        return bulkheadMap.values();
+    }
+
+}
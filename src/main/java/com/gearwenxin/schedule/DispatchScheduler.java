@@ -0,0 +1,196 @@
+package com.gearwenxin.schedule;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToLongFunction;
+
+/**
+ * 共享派发线程
+ * <p>
+ * 固定数量的派发线程服务所有模型，模型按名称哈希固定分配到其中一个线程，同一模型始终由同一线程派发。
+ * 入队、并发释放等事件把模型放入所属线程的就绪队列；令牌补充、配额恢复、任务截止等等待由时间轮定时。
+ * 线程只在有就绪模型或最近的定时到期时醒来，线程数与唤醒次数不随模型数量增加（定时精度1ms，每线程每秒最多约1000次定时唤醒）。
+ * <p>
+ * processor 为单个模型的一次派发：返回0表示已派发，继续处理；小于0表示等待信号；大于0表示等待的纳秒数。
+ */
+@Slf4j
+public class DispatchScheduler {
+
+    public static final String TAG = "DispatchScheduler";
+
+    private static final long TICK_MILLIS = 1;
+    private static final int WHEEL_SIZE = 512;
+    // 单个模型每轮最多连续派发的任务数，之后让出给其他就绪模型
+    private static final int MAX_DISPATCH_PER_TURN = 32;
+    // 派发出错后重试的间隔
+    private static final long ERROR_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ToLongFunction<String> processor;
+    private final Worker[] workers;
+    private final Map<String, ModelSlot> slotMap = new ConcurrentHashMap<>();
+
+    public DispatchScheduler(int threads, ToLongFunction<String> processor) {
+        this.processor = processor;
+        this.workers = new Worker[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+    public void start() {
+        for (Worker worker : workers) {
+            Thread thread = new Thread(worker, "wenxin-dispatcher-" + worker.index);
+            worker.thread = thread;
+            thread.start();
+        }
+        log.info("[{}] started {} dispatcher thread(s)", TAG, workers.length);
+    }
+
+    /**
+     * 通知模型有新事件（入队、额度恢复等），重复通知在处理前只生效一次
+     */
+    public void signal(String modelName) {
+        ModelSlot slot = slotMap.computeIfAbsent(modelName,
+                k -> new ModelSlot(k, workers[Math.floorMod(k.hashCode(), workers.length)]));
+        slot.worker.signal(slot);
+    }
+
+    public int getThreadCount() {
+        return workers.length;
+    }
+
+    public int getModelCount() {
+        return slotMap.size();
+    }
+
+    /**
+     * 派发线程累计被唤醒的次数
+     */
+    public long getWakeupCount() {
+        long count = 0;
+        for (Worker worker : workers) {
+            count += worker.wakeupCount.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "DispatchScheduler { threads: " + getThreadCount() + ", models: " + getModelCount() +
+                ", wakeups: " + getWakeupCount() + " }";
+    }
+
+    private static class ModelSlot {
+
+        private final String modelName;
+        private final Worker worker;
+        private final AtomicBoolean queued = new AtomicBoolean(false);
+        // 已在时间轮中的最早到期时间，仅所属线程访问
+        private long timerDeadline = Long.MAX_VALUE;
+
+        private ModelSlot(String modelName, Worker worker) {
+            this.modelName = modelName;
+            this.worker = worker;
+        }
+
+    }
+
+    private class Worker implements Runnable {
+
+        private final int index;
+        // 多个生产者、单个消费者
+        private final Queue<ModelSlot> readyQueue = new ConcurrentLinkedQueue<>();
+        private final HashedTimerWheel<ModelSlot> timerWheel =
+                new HashedTimerWheel<>(TICK_MILLIS, TimeUnit.MILLISECONDS, WHEEL_SIZE);
+        private final LongAdder wakeupCount = new LongAdder();
+        private volatile Thread thread;
+
+        private Worker(int index) {
+            this.index = index;
+        }
+
+        private void signal(ModelSlot slot) {
+            if (slot.queued.compareAndSet(false, true)) {
+                readyQueue.offer(slot);
+                Thread current = thread;
+                if (current != null && current != Thread.currentThread()) {
+                    LockSupport.unpark(current);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                timerWheel.advance(System.nanoTime(), this::onTimer);
+                // 只处理本轮开始时已就绪的模型，处理中重新就绪的留到下一轮
+                for (int i = readyQueue.size(); i > 0; i--) {
+                    ModelSlot slot = readyQueue.poll();
+                    if (slot == null) {
+                        break;
+                    }
+                    process(slot);
+                }
+                if (!readyQueue.isEmpty()) {
+                    continue;
+                }
+                if (timerWheel.isEmpty()) {
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, timerWheel.nanosToNextTimeout(System.nanoTime()));
+                }
+                wakeupCount.increment();
+            }
+        }
+
+        private void onTimer(ModelSlot slot, long deadline) {
+            // 之后又添加了更早的定时时，较晚的定时已失效
+            if (slot.timerDeadline == deadline) {
+                slot.timerDeadline = Long.MAX_VALUE;
+                signal(slot);
+            }
+        }
+
+        private void process(ModelSlot slot) {
+            // 处理前清除标记，处理期间到达的通知会重新入队
+            slot.queued.set(false);
+            for (int i = 0; i < MAX_DISPATCH_PER_TURN; i++) {
+                long result;
+                try {
+                    result = processor.applyAsLong(slot.modelName);
+                } catch (Throwable e) {
+                    log.error("[{}] dispatch error, modelName: {}", TAG, slot.modelName, e);
+                    schedule(slot, ERROR_RETRY_NANOS);
+                    return;
+                }
+                if (result == 0) {
+                    continue;
+                }
+                if (result > 0) {
+                    schedule(slot, result);
+                }
+                return;
+            }
+            signal(slot);
+        }
+
+        private void schedule(ModelSlot slot, long delayNanos) {
+            long deadline = System.nanoTime() + delayNanos;
+            // 已有更早的定时，到期后会重新计算等待时间
+            if (deadline < slot.timerDeadline) {
+                slot.timerDeadline = deadline;
+                timerWheel.schedule(slot, deadline);
+            }
+        }
+
+    }
+
+}
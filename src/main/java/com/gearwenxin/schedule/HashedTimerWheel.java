@@ -0,0 +1,135 @@
+package com.gearwenxin.schedule;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 哈希时间轮
+ * <p>
+ * 定时项按到期的tick落入 wheelSize 个槽位之一，并记录到期的绝对tick，添加为O(1)。
+ * 同时维护最早到期的tick：等待时间按它计算，推进时直接跳到它所在的槽位，超过一圈的定时项不会每圈唤醒一次，
+ * 唤醒次数只与实际到期次数有关。到期后重新扫描得到下一个最早tick，代价为O(槽位数 + 定时项数)。
+ * 到期时间精度为一个tick。非线程安全，由所属调度线程独占使用。
+ */
+public class HashedTimerWheel<T> {
+
+    private final long tickNanos;
+    private final int mask;
+    private final List<List<Timeout<T>>> wheel;
+    private final long startTime;
+    // 最后处理过的tick
+    private long currentTick = 0;
+    // 剩余定时项中最早到期的tick，始终大于 currentTick
+    private long earliestTick = Long.MAX_VALUE;
+    private int size = 0;
+
+    /**
+     * @param wheelSize 槽位数，取不小于它的2的幂
+     */
+    public HashedTimerWheel(long tick, TimeUnit unit, int wheelSize) {
+        this.tickNanos = Math.max(1, unit.toNanos(tick));
+        int slots = Integer.highestOneBit(Math.max(2, wheelSize - 1) << 1);
+        this.mask = slots - 1;
+        this.wheel = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * 添加定时项
+     *
+     * @param deadline 到期时间（System.nanoTime()）
+     */
+    public void schedule(T item, long deadline) {
+        long tick = Math.max(currentTick + 1, ceilDiv(deadline - startTime, tickNanos));
+        wheel.get((int) (tick & mask)).add(new Timeout<>(item, deadline, tick));
+        earliestTick = Math.min(earliestTick, tick);
+        size++;
+    }
+
+    /**
+     * 推进到now，依次回调到期的定时项
+     *
+     * @param expired 回调参数为定时项与添加时的到期时间
+     */
+    public void advance(long now, ObjLongConsumer<T> expired) {
+        long nowTick = Math.floorDiv(now - startTime, tickNanos);
+        while (size > 0 && earliestTick <= nowTick) {
+            // 最早到期之前的槽位没有到期项，直接跳过
+            currentTick = earliestTick;
+            Iterator<Timeout<T>> iterator = wheel.get((int) (currentTick & mask)).iterator();
+            List<Timeout<T>> fired = new ArrayList<>();
+            while (iterator.hasNext()) {
+                Timeout<T> timeout = iterator.next();
+                // 同一槽位中后几圈才到期的定时项
+                if (timeout.tick > currentTick) {
+                    continue;
+                }
+                iterator.remove();
+                size--;
+                fired.add(timeout);
+            }
+            earliestTick = findEarliestTick();
+            // 回调中可能添加新的定时项，遍历结束后再回调
+            fired.forEach(timeout -> expired.accept(timeout.item, timeout.deadline));
+        }
+        // 剩余定时项都在nowTick之后
+        currentTick = Math.max(currentTick, nowTick);
+    }
+
+    /**
+     * 距最早到期的定时项的纳秒数，期间不需要醒来处理；没有定时项时返回 Long.MAX_VALUE
+     */
+    public long nanosToNextTimeout(long now) {
+        if (size == 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, startTime + earliestTick * tickNanos - now);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private long findEarliestTick() {
+        long earliest = Long.MAX_VALUE;
+        if (size == 0) {
+            return earliest;
+        }
+        for (List<Timeout<T>> bucket : wheel) {
+            for (Timeout<T> timeout : bucket) {
+                earliest = Math.min(earliest, timeout.tick);
+            }
+        }
+        return earliest;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    private static class Timeout<T> {
+
+        private final T item;
+        private final long deadline;
+        // 到期的绝对tick
+        private final long tick;
+
+        private Timeout(T item, long deadline, long tick) {
+            this.item = item;
+            this.deadline = deadline;
+            this.tick = tick;
+        }
+
+    }
+
+}
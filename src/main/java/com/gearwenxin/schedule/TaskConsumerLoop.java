@@ -1,18 +1,32 @@
 package com.gearwenxin.schedule;
 
 import com.gearwenxin.common.Constant;
+import com.gearwenxin.common.ErrorCode;
 import com.gearwenxin.common.StatusConst;
+import com.gearwenxin.common.TokenEstimator;
 import com.gearwenxin.config.ModelConfig;
-import com.gearwenxin.entity.chatmodel.ChatPromptRequest;
-import com.gearwenxin.entity.response.PromptResponse;
-import com.gearwenxin.schedule.entity.ChatTask;
-import com.gearwenxin.service.ChatService;
-import com.gearwenxin.service.ImageService;
+import com.gearwenxin.core.MessageHistoryManager;
+import com.gearwenxin.entity.Message;
 import com.gearwenxin.entity.chatmodel.ChatBaseRequest;
 import com.gearwenxin.entity.chatmodel.ChatErnieRequest;
+import com.gearwenxin.entity.chatmodel.ChatPromptRequest;
+import com.gearwenxin.entity.request.EmbeddingRequest;
 import com.gearwenxin.entity.request.ImageBaseRequest;
 import com.gearwenxin.entity.response.ChatResponse;
+import com.gearwenxin.entity.response.EmbeddingResponse;
 import com.gearwenxin.entity.response.ImageResponse;
+import com.gearwenxin.entity.response.PromptResponse;
+import com.gearwenxin.exception.WenXinException;
+import com.gearwenxin.schedule.entity.ChatTask;
+import com.gearwenxin.schedule.entity.ModelMetrics;
+import com.gearwenxin.schedule.entity.PermitLease;
+import com.gearwenxin.schedule.limiter.AdaptiveConcurrencyLimiter;
+import com.gearwenxin.schedule.limiter.ModelQuotaTracker;
+import com.gearwenxin.schedule.limiter.TokenBucketRateLimiter;
+import com.gearwenxin.schedule.limiter.TokenBudgetLimiter;
+import com.gearwenxin.service.ChatService;
+import com.gearwenxin.service.EmbeddingService;
+import com.gearwenxin.service.ImageService;
 import com.gearwenxin.service.PromptService;
 import jakarta.annotation.Resource;
 import lombok.Getter;
@@ -20,12 +34,20 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.reactivestreams.Publisher;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
@@ -33,6 +55,16 @@ public class TaskConsumerLoop {
 
     public static final String TAG = "TaskConsumerLoop";
     public static final int DEFAULT_QPS = -1;
+    public static final long DEFAULT_TPM = -1;
+    public static final int DEFAULT_CONCURRENCY = -1;
+    public static final int DEFAULT_ADAPTIVE_MAX_CONCURRENCY = 64;
+    public static final int DEFAULT_DISPATCHER_THREADS = 1;
+    public static final long LEASE_CHECK_INTERVAL_MILLIS = 5000;
+
+    // eventLoopProcess返回值：已派发任务
+    private static final long DISPATCHED = 0;
+    // eventLoopProcess返回值：等待信号
+    private static final long PARK_UNTIL_SIGNAL = -1;
 
     @Getter
     @Setter
@@ -42,115 +74,582 @@ public class TaskConsumerLoop {
     @Setter
     private List<String> qpsList = null;
 
+    @Getter
+    @Setter
+    private List<String> concurrencyList = null;
+
+    @Getter
+    @Setter
+    private List<String> adaptiveConcurrencyList = null;
+
+    @Getter
+    @Setter
+    private List<String> tpmList = null;
+
+    // 派发线程数，所有模型共享
+    @Getter
+    @Setter
+    private Integer dispatcherThreads = null;
+
+    @Getter
+    private DispatchScheduler dispatchScheduler;
+
     @Resource
     private ChatService chatService;
     @Resource
     private PromptService promptService;
     @Resource
     private ImageService imageService;
+    @Resource
+    private EmbeddingService embeddingService;
+
+    // 各模型的令牌桶限流器，未配置的模型不限速，运行时可修改
+    private static final Map<String, TokenBucketRateLimiter> MODEL_RATE_LIMITER_MAP = new ConcurrentHashMap<>();
+    // 各模型的并发上限（可选），未配置的模型不限制并发，运行时可修改
+    private static final Map<String, Integer> MODEL_CONCURRENCY_MAP = new ConcurrentHashMap<>();
+    // 各模型的自适应并发限制器（可选），与静态并发上限同时配置时取较小值
+    private static final Map<String, AdaptiveConcurrencyLimiter> MODEL_ADAPTIVE_LIMITER_MAP = new ConcurrentHashMap<>();
+    // 各模型的每分钟token数限制（可选）
+    private static final Map<String, TokenBudgetLimiter> MODEL_TPM_LIMITER_MAP = new ConcurrentHashMap<>();
 
-    private static final Map<String, Integer> MODEL_QPS_MAP = new HashMap<>();
+    private final MessageHistoryManager messageHistoryManager = MessageHistoryManager.getInstance();
 
     private final TaskQueueManager taskManager = TaskQueueManager.getInstance();
+    private final ModelQuotaTracker quotaTracker = ModelQuotaTracker.getInstance();
+    private final BulkheadRegistry bulkheadRegistry = BulkheadRegistry.getInstance();
 
-    public void start() {
+    public synchronized void start() {
+        if (dispatchScheduler != null) {
+            return;
+        }
         initModelQPSMap();
-        Set<String> modelNames = MODEL_QPS_MAP.keySet();
-        modelNames.forEach(modelName -> new Thread(() -> {
-            try {
-                Thread.currentThread().setName(modelName + "-thread");
-                log.info("[{}] {}, model: {}, loop start", TAG, Thread.currentThread().getName(), modelName);
-                // 消费事件循环处理
-                while (true) {
-                    eventLoopProcess(modelName);
-                }
-            } catch (Exception e) {
-                log.error("[{}] loop-process error, modelName: {}, thread-{}", TAG, modelName, Thread.currentThread().getName(), e);
-                if (!Thread.currentThread().isAlive()) {
-                    log.error("[{}] {} is not alive", TAG, Thread.currentThread().getName());
-                }
-            }
-        }).start());
+        initModelConcurrencyMap();
+        refreshAdaptiveConcurrency(adaptiveConcurrencyList);
+        refreshModelTpm(tpmList);
+        int threads = dispatcherThreads == null ? DEFAULT_DISPATCHER_THREADS : dispatcherThreads;
+        dispatchScheduler = new DispatchScheduler(threads, this::eventLoopProcess);
+        dispatchScheduler.start();
+        // 之后入队、并发释放、限制放宽时由taskManager通知派发线程
+        taskManager.setDispatchSignal(dispatchScheduler::signal);
+        // 启动前已有任务入队的模型
+        taskManager.getModelNames().forEach(dispatchScheduler::signal);
+        // 定期检查未释放的并发许可租约
+        Schedulers.single().schedulePeriodically(taskManager::checkLeases,
+                LEASE_CHECK_INTERVAL_MILLIS, LEASE_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     public void initModelQPSMap() {
-        if (qpsList == null || qpsList.isEmpty()) {
-            return;
+        refreshModelQPS(qpsList);
+        log.info("[{}] init model qps map complete: {}", TAG, MODEL_RATE_LIMITER_MAP);
+    }
+
+    public void initModelConcurrencyMap() {
+        refreshModelConcurrency(concurrencyList);
+        log.info("[{}] init model concurrency map complete: {}", TAG, MODEL_CONCURRENCY_MAP);
+    }
+
+    /**
+     * 按新的配置列表刷新全部模型QPS，格式：模型名 QPS [突发容量] [令牌补充粒度(毫秒)]
+     * <p>
+     * 配置未变化的模型保留原限流器状态，列表中不再出现的模型取消限速，排队中的任务不受影响
+     */
+    public void refreshModelQPS(List<String> qpsList) {
+        Map<String, String[]> configMap = parseConfigList(qpsList);
+        log.debug("[{}] refresh model qps: {}", TAG, qpsList);
+        MODEL_RATE_LIMITER_MAP.keySet().stream()
+                .filter(modelName -> !configMap.containsKey(modelName))
+                .toList()
+                .forEach(modelName -> updateModelQPS(modelName, DEFAULT_QPS));
+        configMap.forEach((modelName, split) -> {
+            double qps = Double.parseDouble(split[1]);
+            double burst = split.length > 2 ? Double.parseDouble(split[2]) : 1;
+            long granularityMillis = split.length > 3 ? Long.parseLong(split[3])
+                    : TokenBucketRateLimiter.DEFAULT_REFILL_GRANULARITY_MILLIS;
+            TokenBucketRateLimiter current = MODEL_RATE_LIMITER_MAP.get(modelName);
+            if (current != null && current.getRate() == qps && current.getBurst() == burst
+                    && current.getGranularityMillis() == granularityMillis) {
+                return;
+            }
+            updateModelQPS(modelName, qps, burst, granularityMillis);
+        });
+    }
+
+    /**
+     * 按新的配置列表刷新全部模型并发上限，格式：模型名 并发数
+     */
+    public void refreshModelConcurrency(List<String> concurrencyList) {
+        Map<String, String[]> configMap = parseConfigList(concurrencyList);
+        log.debug("[{}] refresh model concurrency: {}", TAG, concurrencyList);
+        MODEL_CONCURRENCY_MAP.keySet().stream()
+                .filter(modelName -> !configMap.containsKey(modelName))
+                .toList()
+                .forEach(modelName -> updateModelConcurrency(modelName, DEFAULT_CONCURRENCY));
+        configMap.forEach((modelName, split) -> {
+            int concurrency = Integer.parseInt(split[1]);
+            if (!Objects.equals(MODEL_CONCURRENCY_MAP.get(modelName), concurrency)) {
+                updateModelConcurrency(modelName, concurrency);
+            }
+        });
+    }
+
+    /**
+     * 按新的配置列表刷新自适应并发，格式：模型名 初始并发 [最大并发] [最小并发]
+     * <p>
+     * 配置未变化的模型保留已学习到的并发上限
+     */
+    public void refreshAdaptiveConcurrency(List<String> adaptiveList) {
+        Map<String, String[]> configMap = parseConfigList(adaptiveList);
+        MODEL_ADAPTIVE_LIMITER_MAP.keySet().stream()
+                .filter(modelName -> !configMap.containsKey(modelName))
+                .toList()
+                .forEach(modelName -> updateAdaptiveConcurrency(modelName, DEFAULT_CONCURRENCY, 0, 0));
+        configMap.forEach((modelName, split) -> {
+            int initialLimit = Integer.parseInt(split[1]);
+            int maxLimit = split.length > 2 ? Integer.parseInt(split[2]) : DEFAULT_ADAPTIVE_MAX_CONCURRENCY;
+            int minLimit = split.length > 3 ? Integer.parseInt(split[3]) : 1;
+            AdaptiveConcurrencyLimiter current = MODEL_ADAPTIVE_LIMITER_MAP.get(modelName);
+            if (current != null && current.getMaxLimit() == maxLimit && current.getMinLimit() == minLimit) {
+                return;
+            }
+            updateAdaptiveConcurrency(modelName, initialLimit, minLimit, maxLimit);
+        });
+    }
+
+    /**
+     * 运行时启用/修改模型的自适应并发，initialLimit <= 0 时关闭
+     */
+    public void updateAdaptiveConcurrency(String modelName, int initialLimit, int minLimit, int maxLimit) {
+        if (initialLimit <= 0) {
+            MODEL_ADAPTIVE_LIMITER_MAP.remove(modelName);
+            // 回退到静态并发配置
+            taskManager.getModelMetrics(modelName)
+                    .setConcurrencyLimit(MODEL_CONCURRENCY_MAP.getOrDefault(modelName, DEFAULT_CONCURRENCY));
+        } else {
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit);
+            MODEL_ADAPTIVE_LIMITER_MAP.put(modelName, limiter);
+            taskManager.getModelMetrics(modelName).setConcurrencyLimit(limiter.getLimit());
         }
-        log.debug("[{}] model qps list: {}", TAG, qpsList);
-        // 用于检测消费线程是否启动
-        qpsList.add(Constant.CHECK + " " + DEFAULT_QPS);
-        qpsList.forEach(s -> {
-            String[] split = s.split(" ");
-            MODEL_QPS_MAP.put(split[0], Integer.parseInt(split[1]));
+        log.info("[{}] update adaptive concurrency, model: {}, initial: {}, min: {}, max: {}",
+                TAG, modelName, initialLimit, minLimit, maxLimit);
+        onLimitChanged(modelName);
+    }
+
+    public AdaptiveConcurrencyLimiter getAdaptiveLimiter(String modelName) {
+        return MODEL_ADAPTIVE_LIMITER_MAP.get(modelName);
+    }
+
+    /**
+     * 按新的配置列表刷新模型TPM，格式：模型名 每分钟token数
+     */
+    public void refreshModelTpm(List<String> tpmList) {
+        Map<String, String[]> configMap = parseConfigList(tpmList);
+        MODEL_TPM_LIMITER_MAP.keySet().stream()
+                .filter(modelName -> !configMap.containsKey(modelName))
+                .toList()
+                .forEach(modelName -> updateModelTpm(modelName, DEFAULT_TPM));
+        configMap.forEach((modelName, split) -> {
+            long tokensPerMinute = Long.parseLong(split[1]);
+            TokenBudgetLimiter current = MODEL_TPM_LIMITER_MAP.get(modelName);
+            if (current == null || current.getTokensPerMinute() != tokensPerMinute) {
+                updateModelTpm(modelName, tokensPerMinute);
+            }
         });
-        log.info("[{}] init model qps map complete", TAG);
     }
 
-    private int getModelQPS(String modelName) {
-        return MODEL_QPS_MAP.getOrDefault(modelName, DEFAULT_QPS);
+    /**
+     * 运行时修改模型TPM，tokensPerMinute <= 0 时取消限制
+     */
+    public void updateModelTpm(String modelName, long tokensPerMinute) {
+        if (tokensPerMinute <= 0) {
+            MODEL_TPM_LIMITER_MAP.remove(modelName);
+        } else {
+            MODEL_TPM_LIMITER_MAP.put(modelName, new TokenBudgetLimiter(tokensPerMinute));
+        }
+        log.info("[{}] update model tpm, model: {}, tpm: {}", TAG, modelName, tokensPerMinute);
+        onLimitChanged(modelName);
+    }
+
+    public TokenBudgetLimiter getTpmLimiter(String modelName) {
+        return MODEL_TPM_LIMITER_MAP.get(modelName);
+    }
+
+    public void updateModelQPS(String modelName, double qps) {
+        updateModelQPS(modelName, qps, 1, TokenBucketRateLimiter.DEFAULT_REFILL_GRANULARITY_MILLIS);
     }
 
     /**
-     * 消费事件循环处理
+     * 运行时修改模型QPS，立即生效，qps <= 0 时取消限速
      */
-    public void eventLoopProcess(String modelName) {
-        Map<String, Integer> currentQPSMap = taskManager.getModelCurrentQPSMap();
-        int modelQPS = getModelQPS(modelName);
-        // 获取到当前的QPS
-        Integer currentQPS = currentQPSMap.get(modelName);
-        if (currentQPS == null) {
-            taskManager.initModelCurrentQPS(modelName);
-            currentQPS = 0;
+    public void updateModelQPS(String modelName, double qps, double burst, long granularityMillis) {
+        if (qps <= 0) {
+            MODEL_RATE_LIMITER_MAP.remove(modelName);
+        } else {
+            MODEL_RATE_LIMITER_MAP.put(modelName, new TokenBucketRateLimiter(qps, burst, granularityMillis));
         }
-        log.debug("[{}] [{}] current qps: {}", TAG, modelName, currentQPS);
-        if (currentQPS < modelQPS || modelQPS == DEFAULT_QPS) {
-            ChatTask task = taskManager.getTask(modelName);
-            Optional.ofNullable(task).ifPresentOrElse(t -> {
-                log.debug("[{}] [{}] task: {}", TAG, modelName, t);
-                submitTask(t);
-                taskManager.upModelCurrentQPS(modelName);
-            }, () -> sleep(1500));
+        log.info("[{}] update model qps, model: {}, qps: {}, burst: {}", TAG, modelName, qps, burst);
+        onLimitChanged(modelName);
+    }
+
+    /**
+     * 运行时修改模型并发上限，立即生效，concurrency <= 0 时取消限制
+     */
+    public void updateModelConcurrency(String modelName, int concurrency) {
+        if (concurrency <= 0) {
+            MODEL_CONCURRENCY_MAP.remove(modelName);
         } else {
-            // TODO: 待优化
-//            RuntimeToolkit.threadWait(Thread.currentThread());
-            sleep(1000);
+            MODEL_CONCURRENCY_MAP.put(modelName, concurrency);
+        }
+        if (!MODEL_ADAPTIVE_LIMITER_MAP.containsKey(modelName)) {
+            taskManager.getModelMetrics(modelName).setConcurrencyLimit(concurrency <= 0 ? DEFAULT_CONCURRENCY : concurrency);
+        }
+        log.info("[{}] update model concurrency, model: {}, concurrency: {}", TAG, modelName, concurrency);
+        onLimitChanged(modelName);
+    }
+
+    public TokenBucketRateLimiter getModelRateLimiter(String modelName) {
+        return MODEL_RATE_LIMITER_MAP.get(modelName);
+    }
+
+    private void onLimitChanged(String modelName) {
+        // 限制放宽时通知派发线程重新检查，start()之前忽略
+        taskManager.wakeUpConsumer(modelName);
+    }
+
+    private static Map<String, String[]> parseConfigList(List<String> configList) {
+        Map<String, String[]> configMap = new LinkedHashMap<>();
+        if (configList != null) {
+            configList.forEach(s -> {
+                String[] split = s.trim().split("\\s+");
+                configMap.put(split[0], split);
+            });
+        }
+        return configMap;
+    }
+
+    /**
+     * 当前生效的并发上限：静态上限与自适应上限中的较小值
+     */
+    private int getModelConcurrency(String modelName) {
+        int concurrency = MODEL_CONCURRENCY_MAP.getOrDefault(modelName, DEFAULT_CONCURRENCY);
+        AdaptiveConcurrencyLimiter limiter = MODEL_ADAPTIVE_LIMITER_MAP.get(modelName);
+        if (limiter == null) {
+            return concurrency;
+        }
+        return concurrency == DEFAULT_CONCURRENCY ? limiter.getLimit() : Math.min(concurrency, limiter.getLimit());
+    }
+
+    /**
+     * 派发模型的一个任务，由DispatchScheduler的派发线程调用
+     *
+     * @return 0: 已派发任务; -1: 队列为空或达到并发上限，等待信号; >0: 等待令牌或最近截止时间的纳秒数
+     */
+    public long eventLoopProcess(String modelName) {
+        // 丢弃排队超时的任务
+        taskManager.expireTasks(modelName);
+        int modelConcurrency = getModelConcurrency(modelName);
+        // 获取到当前占用的并发数（在途请求+已派发未订阅的预留）
+        int currentQPS = taskManager.getModelOccupiedQPS(modelName);
+        log.debug("[{}] [{}] current concurrency: {}", TAG, modelName, currentQPS);
+        if (currentQPS >= modelConcurrency && modelConcurrency != DEFAULT_CONCURRENCY) {
+            return parkUntilSignalOrDeadline(modelName, PARK_UNTIL_SIGNAL);
+        }
+        if (taskManager.getTaskCount(modelName) <= 0) {
+            return PARK_UNTIL_SIGNAL;
+        }
+        // 有任务的用户均达到并发上限，等待其请求结束
+        if (!taskManager.hasDispatchableTask(modelName)) {
+            return parkUntilSignalOrDeadline(modelName, PARK_UNTIL_SIGNAL);
+        }
+        // 上游配额即将耗尽时放缓派发，窗口重置后恢复
+        long quotaWaitNanos = quotaTracker.nanosToNextDispatch(modelName);
+        if (quotaWaitNanos > 0) {
+            return parkUntilSignalOrDeadline(modelName, quotaWaitNanos);
+        }
+        // 有任务时才消耗令牌
+        TokenBucketRateLimiter rateLimiter = MODEL_RATE_LIMITER_MAP.get(modelName);
+        if (rateLimiter != null && !rateLimiter.tryAcquire()) {
+            return parkUntilSignalOrDeadline(modelName, Math.max(1, rateLimiter.nanosToNextPermit()));
         }
+        ChatTask task = taskManager.getTask(modelName);
+        if (task == null) {
+            // 未取到任务，归还令牌
+            if (rateLimiter != null) {
+                rateLimiter.refund();
+            }
+            return PARK_UNTIL_SIGNAL;
+        }
+        // 预留TPM额度，不足时放回队列等待额度恢复，不发送会超出窗口的请求
+        TokenBudgetLimiter tpmLimiter = MODEL_TPM_LIMITER_MAP.get(modelName);
+        if (tpmLimiter != null) {
+            long estimatedTokens = estimateTokens(task);
+            long reservedTokens = tpmLimiter.tryReserve(estimatedTokens);
+            if (reservedTokens == 0) {
+                taskManager.requeueTask(task);
+                if (rateLimiter != null) {
+                    rateLimiter.refund();
+                }
+                log.debug("[{}] [{}] tpm budget insufficient, estimated tokens: {}", TAG, modelName, estimatedTokens);
+                return parkUntilSignalOrDeadline(modelName, tpmLimiter.nanosToAvailable(estimatedTokens));
+            }
+            task.setReservedTokens(reservedTokens);
+        }
+        long latencyMicros = taskManager.getModelMetrics(modelName).recordDispatch(task.getEnqueueTime());
+        log.debug("[{}] [{}] task: {}, dispatch latency: {}μs", TAG, modelName, task, latencyMicros);
+        // 先获取并发许可租约再提交，订阅时转为在途请求，避免调用方订阅前继续派发超出上限
+        PermitLease lease = taskManager.acquireLease(task);
+        if (!submitTask(task, lease)) {
+            // 未发出上游请求，归还租约、令牌和TPM额度
+            taskManager.releaseLease(lease);
+            if (rateLimiter != null) {
+                rateLimiter.refund();
+            }
+            if (tpmLimiter != null) {
+                tpmLimiter.reconcile(task.getReservedTokens(), 0);
+            }
+            return DISPATCHED;
+        }
+        quotaTracker.onDispatch(modelName);
+        return DISPATCHED;
+    }
+
+    /**
+     * 估算任务的token数，对话任务包含历史消息
+     */
+    private long estimateTokens(ChatTask task) {
+        Object request = task.getTaskRequest();
+        if (request instanceof EmbeddingRequest embeddingRequest) {
+            // 向量化没有输出tokens
+            return embeddingRequest.getInput() == null ? 0
+                    : embeddingRequest.getInput().stream().mapToLong(TokenEstimator::estimate).sum();
+        }
+        if (!(request instanceof ChatBaseRequest chatRequest)) {
+            return TokenEstimator.estimate(String.valueOf(request)) + TokenEstimator.DEFAULT_COMPLETION_TOKENS;
+        }
+        String system = chatRequest instanceof ChatErnieRequest ernieRequest ? ernieRequest.getSystem() : null;
+        Deque<Message> history = task.getMessageId() == null ? null
+                : messageHistoryManager.getMessageHistory(task.getMessageId());
+        try {
+            return TokenEstimator.estimate(history, chatRequest.getContent(), system);
+        } catch (ConcurrentModificationException e) {
+            // 历史消息正在被其他请求修改，仅按本次内容估算
+            return TokenEstimator.estimate(null, chatRequest.getContent(), system);
+        }
+    }
 
+    /**
+     * 等待期间若有任务先到截止时间，提前醒来将其丢弃
+     */
+    private long parkUntilSignalOrDeadline(String modelName, long parkNanos) {
+        long deadlineNanos = taskManager.nanosToNextDeadline(modelName);
+        if (deadlineNanos <= 0) {
+            return parkNanos;
+        }
+        return parkNanos == PARK_UNTIL_SIGNAL ? deadlineNanos : Math.min(parkNanos, deadlineNanos);
     }
 
     /**
-     * 提交任务到不同的线程池
+     * 按任务类型组装上游请求并交给调用方
+     *
+     * @return 是否会发出上游请求，调用方已取消订阅或无需请求上游时返回false
      */
-    private void submitTask(ChatTask task) {
+    private boolean submitTask(ChatTask task, PermitLease lease) {
         String taskId = task.getTaskId();
         ModelConfig modelConfig = task.getModelConfig();
-        // 根据不同的任务类型，获取不同的线程池实例
-        ExecutorService executorService = ThreadPoolManager.getInstance(task.getTaskType());
+        // 请求结束（完成、出错或取消）时释放用户在途数，只释放一次
+        Runnable releaseUser = releaseUserOnce(task);
         switch (task.getTaskType()) {
+            // 结果槽位在入队时已创建，此处异步完成，调用方无需阻塞等待
             case chat -> {
-                var future = CompletableFuture.supplyAsync(() -> processChatTask(task, modelConfig), executorService);
-                taskManager.getChatFutureMap().putAndNotify(taskId, future);
+                return completeSlot(taskManager.getChatFuture(taskId),
+                        () -> observeDispatch(processChatTask(task, modelConfig), task, lease, releaseUser),
+                        lease, releaseUser);
             }
             case prompt -> {
-                var future = CompletableFuture.supplyAsync(() -> processPromptTask(task, modelConfig), executorService);
-                taskManager.getPromptFutureMap().putAndNotify(taskId, future);
+                return completeSlot(taskManager.getPromptFuture(taskId),
+                        () -> Mono.from(observeDispatch(processPromptTask(task, modelConfig), task, lease, releaseUser)),
+                        lease, releaseUser);
             }
             case image -> {
-                var future = CompletableFuture.supplyAsync(() -> processImageTask(task, modelConfig), executorService);
-                taskManager.getImageFutureMap().putAndNotify(taskId, future);
+                return completeSlot(taskManager.getImageFuture(taskId),
+                        () -> Mono.from(observeDispatch(processImageTask(task, modelConfig), task, lease, releaseUser)),
+                        lease, releaseUser);
             }
             case embedding -> {
+                return completeSlot(taskManager.getEmbeddingFuture(taskId),
+                        () -> Mono.from(observeDispatch(processEmbeddingTask(task, modelConfig), task, lease, releaseUser)),
+                        lease, releaseUser);
             }
             case check -> {
                 // 用于检查消费线程是否启动
+                releaseUser.run();
                 StatusConst.SERVICE_STARTED = true;
                 getTestCountDownLatch().countDown();
-                // 销毁当前线程
-//                Thread.currentThread().interrupt();
             }
-            default -> log.error("[{}] unknown task type: {}", TAG, task.getTaskType());
+            default -> {
+                releaseUser.run();
+                log.error("[{}] unknown task type: {}", TAG, task.getTaskType());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * supplier只组装冷Publisher，上游请求在调用方订阅时才发出。结果在模型的舱壁线程池上交付，
+     * 调用方的下游操作不会占用派发线程，也不会占用其他模型的线程。
+     * 舱壁准入只在这里进行：满时按拒绝策略处理，此时上游请求尚未发出
+     */
+    private <T> boolean completeSlot(CompletableFuture<T> slot, Supplier<T> supplier,
+                                     PermitLease lease, Runnable releaseUser) {
+        if (slot == null || slot.isDone()) {
+            log.debug("[{}] result slot has been released, skip task", TAG);
+            releaseUser.run();
+            return false;
+        }
+        Runnable release = () -> {
+            releaseUser.run();
+            taskManager.releaseLease(lease);
+        };
+        Bulkhead bulkhead = bulkheadRegistry.acquire(lease.getModelName());
+        try {
+            bulkhead.execute(() -> {
+                try {
+                    if (slot.complete(supplier.get())) {
+                        return;
+                    }
+                } catch (Throwable throwable) {
+                    slot.completeExceptionally(throwable);
+                }
+                // 调用方已取消或组装失败，请求不会被订阅
+                release.run();
+            });
+        } catch (RejectedExecutionException e) {
+            slot.completeExceptionally(new WenXinException(ErrorCode.BULKHEAD_FULL));
+            release.run();
+        } finally {
+            // 已提交的任务在舱壁关闭前仍会执行
+            bulkhead.release();
+        }
+        return true;
+    }
+
+    /**
+     * 观察已派发的请求：结束时释放用户在途数，并将首包时延与限流错误反馈给自适应并发限制器
+     */
+    private <T> Flux<T> observeDispatch(Publisher<T> publisher, ChatTask task, PermitLease lease,
+                                        Runnable releaseUser) {
+        String modelName = task.getModelConfig().getModelName();
+        Flux<T> flux = Flux.from(publisher);
+        AdaptiveConcurrencyLimiter limiter = MODEL_ADAPTIVE_LIMITER_MAP.get(modelName);
+        if (limiter != null) {
+            flux = sampleLatency(flux, limiter, taskManager.getModelMetrics(modelName));
+        }
+        TokenBudgetLimiter tpmLimiter = MODEL_TPM_LIMITER_MAP.get(modelName);
+        if (tpmLimiter != null && task.getReservedTokens() > 0) {
+            flux = reconcileTokens(flux, tpmLimiter, task.getReservedTokens());
+        }
+        // 订阅时上游请求才真正发出，租约转为在途；结束（完成、出错或取消）时释放，只释放一次
+        Flux<T> observed = flux.doOnSubscribe(subscription -> taskManager.activateLease(lease))
+                .doFinally(signal -> {
+                    taskManager.releaseLease(lease);
+                    releaseUser.run();
+                });
+        // 响应在模型的舱壁线程池上交给调用方，回调慢只影响本模型；准入已在completeSlot完成，
+        // 此处舱壁满时在当前线程上交付，不会让已开始的响应以BULKHEAD_FULL中断
+        return Flux.using(() -> bulkheadRegistry.acquire(modelName),
+                bulkhead -> observed.publishOn(bulkhead.getScheduler()),
+                Bulkhead::release, false);
+    }
+
+    private <T> Flux<T> sampleLatency(Flux<T> flux, AdaptiveConcurrencyLimiter limiter, ModelMetrics metrics) {
+        // 每个请求只取首个信号作为样本
+        AtomicBoolean sampled = new AtomicBoolean(false);
+        return Flux.defer(() -> {
+            long startTime = System.nanoTime();
+            return flux
+                    .doOnNext(response -> {
+                        if (sampled.compareAndSet(false, true)) {
+                            sample(limiter, metrics, isThrottled(response), System.nanoTime() - startTime);
+                        }
+                    })
+                    .doOnError(throwable -> {
+                        if (isThrottled(throwable) && sampled.compareAndSet(false, true)) {
+                            sample(limiter, metrics, true, 0);
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        if (sampled.compareAndSet(false, true)) {
+                            sample(limiter, metrics, false, System.nanoTime() - startTime);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 请求结束时按响应中的usage校正预留的TPM额度，流式响应取最后一个带usage的分片；
+     * 未拿到usage时（出错或取消）保留预留量
+     */
+    private <T> Flux<T> reconcileTokens(Flux<T> flux, TokenBudgetLimiter tpmLimiter, long reservedTokens) {
+        AtomicLong actualTokens = new AtomicLong(-1);
+        return flux
+                .doOnNext(response -> {
+                    if (response instanceof ChatResponse chatResponse && chatResponse.getUsage() != null) {
+                        actualTokens.set(chatResponse.getUsage().getTotalTokens());
+                    } else if (response instanceof EmbeddingResponse embeddingResponse && embeddingResponse.getUsage() != null) {
+                        actualTokens.set(embeddingResponse.getUsage().getTotalTokens());
+                    }
+                })
+                .doFinally(signal -> {
+                    if (actualTokens.get() >= 0) {
+                        tpmLimiter.reconcile(reservedTokens, actualTokens.get());
+                    }
+                });
+    }
+
+    private void sample(AdaptiveConcurrencyLimiter limiter, ModelMetrics metrics, boolean throttled, long latencyNanos) {
+        if (throttled) {
+            metrics.recordThrottled();
+            limiter.onThrottled();
+        } else {
+            limiter.onSample(latencyNanos);
+        }
+        metrics.setConcurrencyLimit(limiter.getLimit());
+    }
+
+    private static boolean isThrottled(Object response) {
+        Integer errorCode = null;
+        if (response instanceof ChatResponse chatResponse) {
+            errorCode = chatResponse.getErrorCode();
+        } else if (response instanceof PromptResponse promptResponse) {
+            errorCode = promptResponse.getErrorCode();
+        } else if (response instanceof ImageResponse imageResponse) {
+            errorCode = imageResponse.getErrorCode();
+        } else if (response instanceof EmbeddingResponse embeddingResponse) {
+            errorCode = embeddingResponse.getErrorCode();
+        }
+        return errorCode != null && Constant.THROTTLE_ERROR_CODES.contains(errorCode);
+    }
+
+    private static boolean isThrottled(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof WebClientResponseException e && e.getStatusCode().value() == 429) {
+                return true;
+            }
+            for (Throwable suppressed : t.getSuppressed()) {
+                if (suppressed instanceof WebClientResponseException e && e.getStatusCode().value() == 429) {
+                    return true;
+                }
+            }
         }
+        return false;
+    }
+
+    private Runnable releaseUserOnce(ChatTask task) {
+        AtomicBoolean released = new AtomicBoolean(false);
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                taskManager.releaseUserTask(task);
+            }
+        };
     }
 
     private Publisher<ChatResponse> processChatTask(ChatTask task, ModelConfig modelConfig) {
@@ -177,13 +676,9 @@ public class TaskConsumerLoop {
         return imageService.imageProcess((ImageBaseRequest) task.getTaskRequest(), modelConfig);
     }
 
-    private void sleep(long millis) {
-        try {
-            Thread.sleep(millis);
-        } catch (InterruptedException e) {
-            log.error("[{}] thread sleep error", TAG);
-            Thread.currentThread().interrupt();
-        }
+    private Mono<EmbeddingResponse> processEmbeddingTask(ChatTask task, ModelConfig modelConfig) {
+        log.debug("[{}] submit task {}, type: embedding", TAG, task.getTaskId());
+        return embeddingService.embeddingProcess((EmbeddingRequest) task.getTaskRequest(), modelConfig);
     }
 
 }
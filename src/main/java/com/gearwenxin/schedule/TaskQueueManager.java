@@ -1,21 +1,35 @@
 package com.gearwenxin.schedule;
 
-import com.gearwenxin.common.RuntimeToolkit;
+import com.gearwenxin.common.ErrorCode;
+import com.gearwenxin.entity.chatmodel.ChatBaseRequest;
+import com.gearwenxin.entity.request.EmbeddingRequest;
+import com.gearwenxin.entity.request.ImageBaseRequest;
 import com.gearwenxin.entity.enums.ModelType;
 import com.gearwenxin.entity.response.ChatResponse;
+import com.gearwenxin.entity.response.EmbeddingResponse;
 import com.gearwenxin.entity.response.ImageResponse;
 import com.gearwenxin.entity.response.PromptResponse;
-import com.gearwenxin.schedule.entity.BlockingMap;
+import com.gearwenxin.exception.WenXinException;
 import com.gearwenxin.schedule.entity.ChatTask;
+import com.gearwenxin.schedule.entity.ModelMetrics;
+import com.gearwenxin.schedule.entity.ModelTaskQueue;
+import com.gearwenxin.schedule.entity.MpscQueue;
+import com.gearwenxin.schedule.entity.PermitLease;
+import com.gearwenxin.schedule.entity.QueueOptions;
+import com.gearwenxin.schedule.entity.ResultHandoff;
+import com.gearwenxin.schedule.entity.UserShareOptions;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Mono;
 
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * @author GMerge
@@ -25,30 +39,66 @@ import java.util.concurrent.locks.ReentrantLock;
 public class TaskQueueManager {
 
     public static final String TAG = "TaskQueueManager";
-    @Getter
-    private final BlockingMap<String, List<ChatTask>> taskMap = new BlockingMap<>();
+    public static final long DEFAULT_TASK_AGING_MILLIS = 1000;
+    public static final long DEFAULT_LEASE_LEAK_THRESHOLD_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    public static final long DEFAULT_LEASE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    // 各模型的排队状态，模型之间互不加锁
+    private final Map<String, ModelState> stateMap = new ConcurrentHashMap<>();
+
+    // 任务老化速度：等待多久权重提升1
+    private volatile long taskAgingNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TASK_AGING_MILLIS);
 
-    // 任务数量Map
+    // 队列容量与溢出策略，未单独配置的模型使用默认值
     @Getter
-    private final Map<String, Integer> taskCountMap = new ConcurrentHashMap<>();
+    @Setter
+    private volatile QueueOptions defaultQueueOptions = new QueueOptions();
+    private final Map<String, QueueOptions> queueOptionsMap = new ConcurrentHashMap<>();
+
+    // 用户间公平调度的配额与并发上限
     @Getter
-    private final Map<String, Integer> modelCurrentQPSMap = new ConcurrentHashMap<>();
+    private final UserShareOptions userShareOptions = new UserShareOptions();
+
+    public static final double DEFAULT_HIGH_WATERMARK_RATIO = 0.8;
+    public static final double DEFAULT_LOW_WATERMARK_RATIO = 0.5;
 
-    // 提交的任务Map
+    // 队列高/低水位（相对容量的比例），各模型在计数变化时读取，修改后对已有模型同样生效
+    @Setter
+    private volatile double highWatermarkRatio = DEFAULT_HIGH_WATERMARK_RATIO;
+    @Setter
+    private volatile double lowWatermarkRatio = DEFAULT_LOW_WATERMARK_RATIO;
+
+    // 任务结果交接表，结果被调用方消费后即移除
     @Getter
-    private final BlockingMap<String, CompletableFuture<Publisher<ChatResponse>>> chatFutureMap = new BlockingMap<>();
+    private final ResultHandoff<String, Publisher<ChatResponse>> chatFutureMap = new ResultHandoff<>();
     @Getter
-    private final BlockingMap<String, CompletableFuture<Mono<ImageResponse>>> imageFutureMap = new BlockingMap<>();
+    private final ResultHandoff<String, Mono<ImageResponse>> imageFutureMap = new ResultHandoff<>();
     @Getter
-    private final BlockingMap<String, CompletableFuture<Mono<PromptResponse>>> promptFutureMap = new BlockingMap<>();
+    private final ResultHandoff<String, Mono<PromptResponse>> promptFutureMap = new ResultHandoff<>();
 
-    private final Lock lock = new ReentrantLock();
-    private final Map<String, CountDownLatch> latchMap = new ConcurrentHashMap<>();
+    private final ResultHandoff<String, Mono<EmbeddingResponse>> embeddingFutureMap = new ResultHandoff<>();
 
-    private volatile static TaskQueueManager instance = null;
+    // 已派发任务的并发许可租约
+    private final Map<String, PermitLease> leaseMap = new ConcurrentHashMap<>();
 
+    // 租约持有超过该时间时报告疑似泄漏，<=0 时不检查
     @Getter
-    private final Map<String, CountDownLatch> consumerCountDownLatchMap = new ConcurrentHashMap<>();
+    @Setter
+    private volatile long leaseLeakThresholdMillis = DEFAULT_LEASE_LEAK_THRESHOLD_MILLIS;
+    // 租约持有超过该时间时强制释放，<=0 时不释放
+    @Getter
+    @Setter
+    private volatile long leaseTimeoutMillis = DEFAULT_LEASE_TIMEOUT_MILLIS;
+
+    // 通知派发线程处理模型，由TaskConsumerLoop启动时设置
+    @Setter
+    private volatile Consumer<String> dispatchSignal;
+
+    // 各模型的调度指标
+    @Getter
+    private final Map<String, ModelMetrics> modelMetricsMap = new ConcurrentHashMap<>();
+
+    private volatile static TaskQueueManager instance = null;
 
     private TaskQueueManager() {
     }
@@ -69,100 +119,603 @@ public class TaskQueueManager {
         String taskId = UUID.randomUUID().toString();
         task.setTaskId(taskId);
         task.getModelConfig().setTaskId(taskId);
-        List<ChatTask> chatTaskList = taskMap.get(modelName);
-        synchronized (this) {
-            if (chatTaskList == null) {
-                List<ChatTask> list = new CopyOnWriteArrayList<>();
-                list.add(task);
-                initTaskCount(modelName);
-                taskMap.put(modelName, list);
-            } else {
-                chatTaskList.add(task);
-                upTaskCount(modelName);
-                taskMap.put(modelName, chatTaskList);
+        task.setEnqueueTime(System.nanoTime());
+        if (task.getUserId() == null) {
+            task.setUserId(resolveUserId(task.getTaskRequest()));
+        }
+        // 未指定超时时间时使用模型配置的默认值
+        Long defaultTimeoutMillis = task.getModelConfig().getTaskTimeoutMillis();
+        if (task.getTimeoutMillis() <= 0 && defaultTimeoutMillis != null) {
+            task.setTimeoutMillis(defaultTimeoutMillis);
+        }
+        if (task.getTimeoutMillis() > 0) {
+            task.setDeadline(task.getEnqueueTime() + TimeUnit.MILLISECONDS.toNanos(task.getTimeoutMillis()));
+        }
+        // 入队前创建结果槽位，由消费线程派发后完成
+        switch (task.getTaskType()) {
+            case chat -> chatFutureMap.create(taskId);
+            case image -> imageFutureMap.create(taskId);
+            case prompt -> promptFutureMap.create(taskId);
+            case embedding -> embeddingFutureMap.create(taskId);
+            default -> {
+            }
+        }
+        ModelState state = stateOf(modelName);
+        // 快速路径：原子地占用容量后写入无锁收件箱，不与其他生产者或派发线程争用锁
+        if (!state.tryAcquireSlot()) {
+            try {
+                admitTask(modelName, state, task);
+            } catch (WenXinException e) {
+                removeResultSlot(task);
+                log.warn("[{}] task queue of [{}] is full, reject task, policy: {}", TAG, modelName,
+                        state.options.getOverflowPolicy());
+                throw e;
             }
         }
-//        RuntimeToolkit.threadNotify(Thread.currentThread());
-        log.info("[{}] add task for [{}], count: {}", TAG, modelName, getTaskCount(modelName));
+        state.inbox.offer(task);
+        wakeUpConsumer(modelName);
+        log.info("[{}] add task for [{}], count: {}", TAG, modelName, state.taskCount.get());
         return taskId;
     }
 
-    public synchronized ChatTask getTask(String modelName) {
-        List<ChatTask> list = taskMap.get(modelName);
-        if (list == null || list.isEmpty()) {
+    public ChatTask getTask(String modelName) {
+        ModelState state = stateMap.get(modelName);
+        if (state == null) {
+            return null;
+        }
+        // 派发前先丢弃已超时的任务
+        expireTasks(modelName);
+        ChatTask task;
+        state.lock.lock();
+        try {
+            state.drainInbox();
+            if (state.taskQueue.isEmpty()) {
+                return null;
+            }
+            task = state.taskQueue.poll(taskAgingNanos);
+        } finally {
+            state.lock.unlock();
+        }
+        if (task == null) {
+            // 有任务的用户均达到并发上限
             return null;
         }
-        downTaskCount(modelName);
-        return list.remove(0);
+        state.releaseSlot();
+        return task;
+    }
+
+    /**
+     * 将已取出但因额度不足未派发的任务放回队列，保持原有顺序
+     */
+    public void requeueTask(ChatTask task) {
+        ModelState state = stateMap.get(task.getModelConfig().getModelName());
+        if (state == null) {
+            return;
+        }
+        // 任务此前已占用过容量，放回时不再检查
+        state.updateWatermark(state.taskCount.incrementAndGet());
+        state.lock.lock();
+        try {
+            state.taskQueue.requeue(task);
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * 是否有可派发的任务（排除达到并发上限的用户）
+     */
+    public boolean hasDispatchableTask(String modelName) {
+        ModelState state = stateMap.get(modelName);
+        if (state == null) {
+            return false;
+        }
+        state.lock.lock();
+        try {
+            state.drainInbox();
+            return state.taskQueue.hasDispatchableTask();
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * 已派发的任务结束，释放其用户的在途请求并唤醒消费线程
+     */
+    public void releaseUserTask(ChatTask task) {
+        String modelName = task.getModelConfig().getModelName();
+        ModelState state = stateMap.get(modelName);
+        if (state == null) {
+            return;
+        }
+        state.lock.lock();
+        try {
+            state.taskQueue.release(task);
+        } finally {
+            state.lock.unlock();
+        }
+        wakeUpConsumer(modelName);
+    }
+
+    private static String resolveUserId(Object taskRequest) {
+        if (taskRequest instanceof ChatBaseRequest chatRequest) {
+            return chatRequest.getUserId();
+        }
+        if (taskRequest instanceof ImageBaseRequest imageRequest) {
+            return imageRequest.getUserId();
+        }
+        if (taskRequest instanceof EmbeddingRequest embeddingRequest) {
+            return embeddingRequest.getUserId();
+        }
+        return null;
+    }
+
+    /**
+     * 队列已满时按溢出策略处理，正常返回时任务已占用一个容量
+     */
+    private void admitTask(String modelName, ModelState state, ChatTask task) {
+        List<ChatTask> droppedTasks = new ArrayList<>(1);
+        state.lock.lock();
+        try {
+            // 收件箱中的任务也参与淘汰
+            state.drainInbox();
+            ModelTaskQueue taskQueue = state.taskQueue;
+            QueueOptions options = state.options;
+            if (state.tryAcquireSlot()) {
+                return;
+            }
+            switch (options.getOverflowPolicy()) {
+                case REJECT -> throw new WenXinException(ErrorCode.TASK_QUEUE_FULL);
+                // 丢弃的任务把容量让给新任务，计数不变
+                case DROP_LOWEST_WEIGHT -> {
+                    if (taskQueue.isLowerThanAll(task)) {
+                        throw new WenXinException(ErrorCode.TASK_QUEUE_FULL);
+                    }
+                    dropTask(modelName, taskQueue.pollLowest(), droppedTasks);
+                }
+                case DROP_OLDEST -> dropTask(modelName, taskQueue.pollOldest(), droppedTasks);
+                case BLOCK -> {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getBlockTimeoutMillis());
+                    // 先登记再检查容量，释放方要么看到登记并唤醒，要么本线程看到释放后的容量
+                    state.blockedProducers.incrementAndGet();
+                    try {
+                        while (!state.tryAcquireSlot()) {
+                            long remaining = deadline - System.nanoTime();
+                            if (remaining <= 0) {
+                                throw new WenXinException(ErrorCode.TASK_QUEUE_FULL);
+                            }
+                            state.notFull.awaitNanos(remaining);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new WenXinException(ErrorCode.TASK_QUEUE_FULL);
+                    } finally {
+                        state.blockedProducers.decrementAndGet();
+                    }
+                }
+            }
+        } finally {
+            state.lock.unlock();
+        }
+        // 锁外结束被丢弃的任务，避免在锁内执行调用方的回调
+        droppedTasks.forEach(dropped -> failTask(dropped, new WenXinException(ErrorCode.TASK_DROPPED)));
+    }
+
+    /**
+     * 丢弃已超过截止时间的任务，以TASK_EXPIRED异常结束
+     *
+     * @return 丢弃的任务数
+     */
+    public int expireTasks(String modelName) {
+        ModelState state = stateMap.get(modelName);
+        if (state == null) {
+            return 0;
+        }
+        List<ChatTask> expiredTasks;
+        state.lock.lock();
+        try {
+            state.drainInbox();
+            expiredTasks = state.taskQueue.pollExpired(System.nanoTime());
+        } finally {
+            state.lock.unlock();
+        }
+        if (expiredTasks.isEmpty()) {
+            return 0;
+        }
+        ModelMetrics metrics = getModelMetrics(modelName);
+        expiredTasks.forEach(task -> {
+            state.releaseSlot();
+            metrics.recordExpired();
+            log.warn("[{}] task {} of [{}] expired in queue", TAG, task.getTaskId(), modelName);
+            failTask(task, new WenXinException(ErrorCode.TASK_EXPIRED));
+        });
+        return expiredTasks.size();
     }
 
+    /**
+     * 距离队列中最早截止时间的纳秒数，无截止时间任务时返回-1
+     */
+    public long nanosToNextDeadline(String modelName) {
+        ModelState state = stateMap.get(modelName);
+        if (state == null) {
+            return -1;
+        }
+        state.lock.lock();
+        try {
+            state.drainInbox();
+            return state.taskQueue.nanosToNextDeadline(System.nanoTime());
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    private void dropTask(String modelName, ChatTask dropped, List<ChatTask> droppedTasks) {
+        if (dropped == null) {
+            throw new WenXinException(ErrorCode.TASK_QUEUE_FULL);
+        }
+        log.warn("[{}] task queue of [{}] is full, drop task {}", TAG, modelName, dropped.getTaskId());
+        droppedTasks.add(dropped);
+    }
+
+    /**
+     * 以异常结束任务，调用方会收到error信号
+     */
+    public void failTask(ChatTask task, Throwable throwable) {
+        String taskId = task.getTaskId();
+        switch (task.getTaskType()) {
+            case chat -> chatFutureMap.completeExceptionally(taskId, throwable);
+            case image -> imageFutureMap.completeExceptionally(taskId, throwable);
+            case prompt -> promptFutureMap.completeExceptionally(taskId, throwable);
+            case embedding -> embeddingFutureMap.completeExceptionally(taskId, throwable);
+            default -> {
+            }
+        }
+    }
+
+    private void removeResultSlot(ChatTask task) {
+        String taskId = task.getTaskId();
+        switch (task.getTaskType()) {
+            case chat -> chatFutureMap.remove(taskId);
+            case image -> imageFutureMap.remove(taskId);
+            case prompt -> promptFutureMap.remove(taskId);
+            case embedding -> embeddingFutureMap.remove(taskId);
+            default -> {
+            }
+        }
+    }
+
+    public QueueOptions getQueueOptions(String modelName) {
+        return queueOptionsMap.getOrDefault(modelName, defaultQueueOptions);
+    }
+
+    /**
+     * 设置模型的队列容量与溢出策略，已创建的队列立即生效
+     */
+    public void putQueueOptions(String modelName, QueueOptions options) {
+        queueOptionsMap.put(modelName, options);
+        ModelState state = stateMap.get(modelName);
+        if (state == null) {
+            return;
+        }
+        state.lock.lock();
+        try {
+            state.options = options;
+            state.notFull.signalAll();
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * 当前排队任务数
+     */
+    public int getQueueDepth(String modelName) {
+        return getTaskCount(modelName);
+    }
+
+    /**
+     * 队列容量，-1 表示不限制
+     */
+    public int getQueueCapacity(String modelName) {
+        return getQueueOptions(modelName).getCapacity();
+    }
+
+    /**
+     * 队列是否处于高水位，调用方可据此提前降载
+     * <p>
+     * 与 getQueueDepth 使用同一计数（含收件箱中的任务），不需要获取模型锁
+     */
+    public boolean isOverHighWatermark(String modelName) {
+        ModelState state = stateMap.get(modelName);
+        return state != null && state.overHighWatermark;
+    }
+
+    /**
+     * 设置任务老化速度，等待agingMillis毫秒权重提升1，<=0 时关闭老化
+     */
+    public void setTaskAgingMillis(long agingMillis) {
+        this.taskAgingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+    }
+
+    /**
+     * 获取结果槽位，调用方已取消时返回null
+     */
     public CompletableFuture<Publisher<ChatResponse>> getChatFuture(String taskId) {
-        return chatFutureMap.getAndAwait(taskId);
+        return chatFutureMap.get(taskId);
     }
 
     public CompletableFuture<Mono<ImageResponse>> getImageFuture(String taskId) {
-        return imageFutureMap.getAndAwait(taskId);
+        return imageFutureMap.get(taskId);
     }
 
     public CompletableFuture<Mono<PromptResponse>> getPromptFuture(String taskId) {
-        return promptFutureMap.getAndAwait(taskId);
+        return promptFutureMap.get(taskId);
+    }
+
+    public CompletableFuture<Mono<EmbeddingResponse>> getEmbeddingFuture(String taskId) {
+        return embeddingFutureMap.get(taskId);
+    }
+
+    /**
+     * 订阅任务结果，消费后移除结果槽位
+     */
+    public Mono<Publisher<ChatResponse>> takeChatResult(String taskId) {
+        return chatFutureMap.take(taskId);
+    }
+
+    public Mono<Mono<ImageResponse>> takeImageResult(String taskId) {
+        return imageFutureMap.take(taskId);
+    }
+
+    public Mono<Mono<PromptResponse>> takePromptResult(String taskId) {
+        return promptFutureMap.take(taskId);
+    }
+
+    public Mono<Mono<EmbeddingResponse>> takeEmbeddingResult(String taskId) {
+        return embeddingFutureMap.take(taskId);
+    }
+
+    /**
+     * 通知派发线程处理模型（入队、并发释放、限制放宽等），首次出现的模型同样会被派发
+     */
+    public void wakeUpConsumer(String modelName) {
+        Consumer<String> signal = dispatchSignal;
+        if (signal != null) {
+            signal.accept(modelName);
+        }
+    }
+
+    public ModelMetrics getModelMetrics(String modelName) {
+        return modelMetricsMap.computeIfAbsent(modelName, k -> new ModelMetrics());
     }
 
     public Set<String> getModelNames() {
-        return taskMap.getMap().keySet();
+        return stateMap.keySet();
+    }
+
+    private ModelState stateOf(String modelName) {
+        ModelState state = stateMap.get(modelName);
+        if (state != null) {
+            return state;
+        }
+        return stateMap.computeIfAbsent(modelName, k -> new ModelState(getQueueOptions(k),
+                new ModelTaskQueue(userShareOptions)));
     }
 
+    /**
+     * 排队任务数（含尚未转入加权队列的任务）
+     */
     public int getTaskCount(String modelName) {
-        return taskCountMap.get(modelName);
+        ModelState state = stateMap.get(modelName);
+        return state == null ? 0 : state.taskCount.get();
     }
 
-    public synchronized void initTaskCount(String modelName) {
-        taskCountMap.put(modelName, 1);
-        log.debug("[{}] init task count for {}", TAG, modelName);
+    /**
+     * 在途请求数（已订阅、尚未结束的上游请求），QPS由令牌桶限制
+     */
+    public int getModelCurrentQPS(String modelName) {
+        ModelState state = stateMap.get(modelName);
+        return state == null ? 0 : state.inFlight.get();
     }
 
-    public synchronized void initModelCurrentQPS(String modelName) {
-        modelCurrentQPSMap.put(modelName, 0);
-        log.debug("[{}] init model current qps for {}", TAG, modelName);
+    /**
+     * 占用的并发数：在途请求数加上已派发、尚未被订阅的预留数，用于并发上限判断
+     */
+    public int getModelOccupiedQPS(String modelName) {
+        ModelState state = stateMap.get(modelName);
+        return state == null ? 0 : state.inFlight.get() + state.reserved.get();
     }
 
-    public synchronized void upTaskCount(String modelName) {
-        Integer taskCount = taskCountMap.get(modelName);
-        if (taskCount == null) {
-            log.error("[{}] task count map not has been init, {}", TAG, modelName);
-            return;
-        }
-        taskCountMap.put(modelName, taskCount + 1);
-        log.debug("[{}] up task count for {}, number {}", TAG, modelName, taskCount + 1);
+    /**
+     * 各模型排队任务数的快照
+     */
+    public Map<String, Integer> getTaskCountMap() {
+        Map<String, Integer> snapshot = new HashMap<>();
+        stateMap.forEach((modelName, state) -> snapshot.put(modelName, state.taskCount.get()));
+        return snapshot;
     }
 
-    public synchronized void upModelCurrentQPS(String modelName) {
-        Integer currentQPS = modelCurrentQPSMap.get(modelName);
-        modelCurrentQPSMap.put(modelName, currentQPS + 1);
-        log.debug("[{}] up model current qps for {}, number {}", TAG, modelName, currentQPS + 1);
+    /**
+     * 各模型在途请求数的快照
+     */
+    public Map<String, Integer> getModelCurrentQPSMap() {
+        Map<String, Integer> snapshot = new HashMap<>();
+        stateMap.forEach((modelName, state) -> snapshot.put(modelName, state.inFlight.get()));
+        return snapshot;
+    }
+
+    /**
+     * 派发任务时获取并发许可租约，预留的并发数避免在调用方订阅之前继续派发超出上限
+     */
+    public PermitLease acquireLease(ChatTask task) {
+        String modelName = task.getModelConfig().getModelName();
+        PermitLease lease = new PermitLease(task.getTaskId(), modelName);
+        stateOf(modelName).reserved.incrementAndGet();
+        leaseMap.put(lease.getTaskId(), lease);
+        return lease;
     }
 
-    public synchronized void downTaskCount(String modelName) {
-        Integer taskCount = taskCountMap.get(modelName);
-        if (taskCount == null) {
-            log.error("[{}] task count map not has been init, {}", TAG, modelName);
+    /**
+     * 上游请求开始（被订阅），预留转为在途；租约已释放（超时或已取消）时不计数
+     */
+    public void activateLease(PermitLease lease) {
+        if (!lease.activate()) {
             return;
         }
-        if (taskCount <= 0) {
-            log.error("[{}] task count is less than 0, {}", TAG, modelName);
+        ModelState state = stateOf(lease.getModelName());
+        int currentQPS = state.inFlight.incrementAndGet();
+        state.reserved.decrementAndGet();
+        log.debug("[{}] up model current qps for {}, number {}", TAG, lease.getModelName(), currentQPS);
+    }
+
+    /**
+     * 释放租约，只有第一次释放生效
+     */
+    public void releaseLease(PermitLease lease) {
+        int previous = lease.release();
+        if (previous == PermitLease.RELEASED) {
             return;
         }
-        taskCountMap.put(modelName, taskCount - 1);
-        log.debug("[{}] down task count for {}, number {}", TAG, modelName, taskCount - 1);
+        leaseMap.remove(lease.getTaskId(), lease);
+        String modelName = lease.getModelName();
+        ModelState state = stateOf(modelName);
+        if (previous == PermitLease.ACTIVE) {
+            int currentQPS = state.inFlight.decrementAndGet();
+            log.debug("[{}] down model current qps for {}, number {}", TAG, modelName, currentQPS);
+        } else {
+            state.reserved.decrementAndGet();
+        }
+        wakeUpConsumer(modelName);
     }
 
-    public synchronized void downModelCurrentQPS(String modelName) {
-        Integer currentQPS = modelCurrentQPSMap.get(modelName);
-        if (currentQPS == null || currentQPS <= 0) {
-            return;
+    /**
+     * 检查未释放的租约：持有超过泄漏阈值的报告一次，超过租约超时的强制释放
+     *
+     * @return 强制释放的租约数
+     */
+    public int checkLeases() {
+        long now = System.nanoTime();
+        long leakNanos = TimeUnit.MILLISECONDS.toNanos(leaseLeakThresholdMillis);
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(leaseTimeoutMillis);
+        int released = 0;
+        for (PermitLease lease : leaseMap.values()) {
+            long heldNanos = now - lease.getAcquireTime();
+            if (leaseTimeoutMillis > 0 && heldNanos >= timeoutNanos) {
+                log.warn("[{}] lease of task {} [{}] held for {}ms, force release", TAG, lease.getTaskId(),
+                        lease.getModelName(), TimeUnit.NANOSECONDS.toMillis(heldNanos));
+                releaseLease(lease);
+                getModelMetrics(lease.getModelName()).recordLeaseTimeout();
+                released++;
+            } else if (leaseLeakThresholdMillis > 0 && heldNanos >= leakNanos && lease.markLeakReported()) {
+                log.warn("[{}] lease of task {} [{}] held for {}ms, possible leak, state: {}", TAG, lease.getTaskId(),
+                        lease.getModelName(), TimeUnit.NANOSECONDS.toMillis(heldNanos), lease.getState());
+                getModelMetrics(lease.getModelName()).recordLeaseLeak();
+            }
+        }
+        return released;
+    }
+
+    /**
+     * 未释放的租约数
+     */
+    public int getLeaseCount() {
+        return leaseMap.size();
+    }
+
+    /**
+     * 单个模型的排队状态
+     * <p>
+     * 提交线程CAS占用容量后写入无锁收件箱；派发线程在持有模型锁时把收件箱转入加权队列再调度。
+     * 模型锁只在派发、队列已满和配置变更时使用，不同模型之间没有共享锁。
+     */
+    private class ModelState {
+
+        private final MpscQueue<ChatTask> inbox = new MpscQueue<>();
+        // 由lock保护
+        private final ModelTaskQueue taskQueue;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        // 排队任务数（收件箱+加权队列），用于容量判断
+        private final AtomicInteger taskCount = new AtomicInteger();
+        // 在途请求数
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // 已派发、尚未被订阅的请求数
+        private final AtomicInteger reserved = new AtomicInteger();
+        // BLOCK策略下等待空位的提交线程数
+        private final AtomicInteger blockedProducers = new AtomicInteger();
+        private volatile QueueOptions options;
+        // 随taskCount变化更新
+        private volatile boolean overHighWatermark = false;
+
+        private ModelState(QueueOptions options, ModelTaskQueue taskQueue) {
+            this.options = options;
+            this.taskQueue = taskQueue;
         }
-        modelCurrentQPSMap.put(modelName, currentQPS - 1);
-        log.debug("[{}] down model current qps for {}, number {}", TAG, modelName, currentQPS - 1);
+
+        /**
+         * 队列未满时占用一个容量
+         */
+        private boolean tryAcquireSlot() {
+            QueueOptions current = options;
+            if (!current.isBounded()) {
+                taskCount.incrementAndGet();
+                overHighWatermark = false;
+                return true;
+            }
+            int capacity = current.getCapacity();
+            int count;
+            do {
+                count = taskCount.get();
+                if (count >= capacity) {
+                    return false;
+                }
+            } while (!taskCount.compareAndSet(count, count + 1));
+            updateWatermark(count + 1);
+            return true;
+        }
+
+        /**
+         * 释放一个容量，有等待空位的提交线程时唤醒
+         */
+        private void releaseSlot() {
+            updateWatermark(taskCount.decrementAndGet());
+            if (blockedProducers.get() > 0) {
+                lock.lock();
+                try {
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * 按排队任务数和当前的高/低水位比例更新高水位标记，介于高低水位之间时保持原状态
+         */
+        private void updateWatermark(int count) {
+            QueueOptions current = options;
+            if (!current.isBounded()) {
+                overHighWatermark = false;
+                return;
+            }
+            int capacity = current.getCapacity();
+            if (count >= capacity * highWatermarkRatio) {
+                overHighWatermark = true;
+            } else if (count <= capacity * lowWatermarkRatio) {
+                overHighWatermark = false;
+            }
+        }
+
+        /**
+         * 收件箱转入加权队列，调用方需持有lock
+         */
+        private void drainInbox() {
+            ChatTask task;
+            while ((task = inbox.poll()) != null) {
+                taskQueue.offer(task);
+            }
+        }
+
     }
 
 }
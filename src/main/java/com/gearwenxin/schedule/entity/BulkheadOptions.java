@@ -0,0 +1,51 @@
+package com.gearwenxin.schedule.entity;
+
+import com.gearwenxin.entity.enums.RejectPolicy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 模型舱壁线程池配置
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkheadOptions {
+
+    /**
+     * 核心线程数
+     */
+    private int coreSize = 2;
+
+    /**
+     * 最大线程数，队列满后才会扩到该数量
+     */
+    private int maxSize = 8;
+
+    /**
+     * 队列容量
+     */
+    private int queueCapacity = 256;
+
+    /**
+     * 线程池满时的拒绝策略
+     */
+    private RejectPolicy rejectPolicy = RejectPolicy.ABORT;
+
+    /**
+     * 格式：名称 核心线程数 最大线程数 [队列容量] [拒绝策略]
+     */
+    public static BulkheadOptions parse(String[] split, BulkheadOptions defaults) {
+        BulkheadOptions options = new BulkheadOptions(Integer.parseInt(split[1]), Integer.parseInt(split[2]),
+                defaults.getQueueCapacity(), defaults.getRejectPolicy());
+        if (split.length > 3) {
+            options.setQueueCapacity(Integer.parseInt(split[3]));
+        }
+        if (split.length > 4) {
+            options.setRejectPolicy(RejectPolicy.valueOf(split[4].toUpperCase()));
+        }
+        return options;
+    }
+
+}
@@ -27,10 +27,39 @@ public class ChatTask {
 
     private Float taskWeight;
 
+    /**
+     * 请求所属用户，用于用户间公平调度，为空时取请求体中的userId
+     */
+    private String userId;
+
     private String messageId;
 
     private boolean stream;
 
     private boolean jsonMode = false;
 
+    /**
+     * 排队超时时间（毫秒），超时未派发的任务会被丢弃，<=0 表示不超时
+     */
+    private long timeoutMillis;
+
+    /**
+     * 入队时间 (System.nanoTime)，SDK内部使用
+     */
+    private long enqueueTime;
+
+    /**
+     * 截止时间 (System.nanoTime)，由timeoutMillis计算，0 表示无截止时间，SDK内部使用
+     */
+    private long deadline;
+
+    /**
+     * 派发时预留的TPM额度，响应返回实际用量后校正，SDK内部使用
+     */
+    private long reservedTokens;
+
+    public boolean hasDeadline() {
+        return deadline != 0;
+    }
+
 }
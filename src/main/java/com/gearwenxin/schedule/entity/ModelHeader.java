@@ -3,12 +3,15 @@ package com.gearwenxin.schedule.entity;
 import lombok.Getter;
 import lombok.Setter;
 
+/**
+ * 模型请求头：authorization随请求发送；X_Ratelimit_*为上游响应头中的配额，每次响应后回填，不会发送给上游
+ */
 public class ModelHeader {
 
-    private Integer X_Ratelimit_Limit_Requests;
-    private Integer X_Ratelimit_Limit_Tokens;
-    private Integer X_Ratelimit_Remaining_Requests;
-    private Integer X_Ratelimit_Remaining_Tokens;
+    private volatile Integer X_Ratelimit_Limit_Requests;
+    private volatile Integer X_Ratelimit_Limit_Tokens;
+    private volatile Integer X_Ratelimit_Remaining_Requests;
+    private volatile Integer X_Ratelimit_Remaining_Tokens;
 
     @Getter
     @Setter
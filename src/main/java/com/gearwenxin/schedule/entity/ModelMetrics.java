@@ -0,0 +1,110 @@
+package com.gearwenxin.schedule.entity;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个模型的调度指标
+ */
+public class ModelMetrics {
+
+    // 已派发任务数
+    private final LongAdder dispatchCount = new LongAdder();
+    // 入队到派发的累计耗时（微秒）
+    private final LongAdder dispatchLatencyTotalMicros = new LongAdder();
+    // 入队到派发的最大耗时（微秒）
+    private final LongAccumulator dispatchLatencyMaxMicros = new LongAccumulator(Long::max, 0);
+    // 排队超时被丢弃的任务数
+    private final LongAdder expiredCount = new LongAdder();
+    // 上游限流次数
+    private final LongAdder throttledCount = new LongAdder();
+    // 持有超过泄漏阈值的并发许可租约数
+    private final LongAdder leaseLeakCount = new LongAdder();
+    // 超时被强制释放的并发许可租约数
+    private final LongAdder leaseTimeoutCount = new LongAdder();
+    // 自适应并发限制器的当前上限，-1 表示未启用
+    private volatile int concurrencyLimit = -1;
+
+    /**
+     * 记录一次派发
+     *
+     * @param enqueueTime 入队时间 (System.nanoTime)
+     * @return 入队到派发的耗时（微秒）
+     */
+    public long recordDispatch(long enqueueTime) {
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - enqueueTime);
+        dispatchCount.increment();
+        dispatchLatencyTotalMicros.add(latencyMicros);
+        dispatchLatencyMaxMicros.accumulate(latencyMicros);
+        return latencyMicros;
+    }
+
+    public void recordExpired() {
+        expiredCount.increment();
+    }
+
+    public void recordThrottled() {
+        throttledCount.increment();
+    }
+
+    public void recordLeaseLeak() {
+        leaseLeakCount.increment();
+    }
+
+    public void recordLeaseTimeout() {
+        leaseTimeoutCount.increment();
+    }
+
+    public long getLeaseLeakCount() {
+        return leaseLeakCount.sum();
+    }
+
+    public long getLeaseTimeoutCount() {
+        return leaseTimeoutCount.sum();
+    }
+
+    public long getThrottledCount() {
+        return throttledCount.sum();
+    }
+
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public void setConcurrencyLimit(int concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    public long getDispatchCount() {
+        return dispatchCount.sum();
+    }
+
+    public long getDispatchLatencyMaxMicros() {
+        return dispatchLatencyMaxMicros.get();
+    }
+
+    public double getDispatchLatencyAvgMicros() {
+        long count = dispatchCount.sum();
+        return count == 0 ? 0 : (double) dispatchLatencyTotalMicros.sum() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "ModelMetrics { " +
+                "dispatchCount: " + getDispatchCount() +
+                ", dispatchLatencyAvgMicros: " + String.format("%.1f", getDispatchLatencyAvgMicros()) +
+                ", dispatchLatencyMaxMicros: " + getDispatchLatencyMaxMicros() +
+                ", expiredCount: " + getExpiredCount() +
+                ", throttledCount: " + getThrottledCount() +
+                ", leaseLeakCount: " + getLeaseLeakCount() +
+                ", leaseTimeoutCount: " + getLeaseTimeoutCount() +
+                ", concurrencyLimit: " + getConcurrencyLimit() +
+                " }";
+    }
+
+}
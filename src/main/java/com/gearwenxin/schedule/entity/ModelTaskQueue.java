@@ -0,0 +1,342 @@
+package com.gearwenxin.schedule.entity;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个模型的加权优先级任务队列
+ * <p>
+ * 按userId分为子队列，子队列之间按赤字轮转（DRR）调度：每轮为用户累加share配额，配额满1派发一个任务，
+ * 单个用户突发时只占用自己的份额，其他用户的排队时延不受影响；可选的用户并发上限达到时跳过该用户。
+ * 未指定userId的任务归入同一个默认子队列。
+ * <p>
+ * 子队列内按taskWeight分桶（精度0.1），桶内按截止时间最早优先（EDF），无截止时间的任务视为入队后 NO_DEADLINE_HORIZON 到期，
+ * 入队/出队 O(log n)，选桶 O(桶数)。
+ * 老化：任务的有效优先级 = weight + 等待时间 / agingNanos，低权重任务等待足够久后会排到高权重新任务之前，不会饿死。
+ * <p>
+ * 容量与高/低水位由TaskQueueManager按排队计数（含收件箱）判断，本类不限制长度。
+ * 非线程安全，由TaskQueueManager加锁访问
+ */
+public class ModelTaskQueue {
+
+    public static final String DEFAULT_USER = "";
+
+    private static final int WEIGHT_PRECISION = 10;
+    private static final long NO_DEADLINE_HORIZON = TimeUnit.SECONDS.toNanos(60);
+
+    // 桶内顺序：截止时间 > 入队时间 > taskId
+    private static final Comparator<ChatTask> EDF_ORDER = Comparator
+            .comparingLong(ModelTaskQueue::effectiveDeadline)
+            .thenComparingLong(ChatTask::getEnqueueTime)
+            .thenComparing(ChatTask::getTaskId);
+    private static final Comparator<ChatTask> ARRIVAL_ORDER = Comparator
+            .comparingLong(ChatTask::getEnqueueTime)
+            .thenComparing(ChatTask::getTaskId);
+    private static final Comparator<ChatTask> DEADLINE_ORDER = Comparator
+            .comparingLong(ChatTask::getDeadline)
+            .thenComparing(ChatTask::getTaskId);
+
+    // 各用户的子队列，有排队任务或在途请求时保留
+    private final Map<String, UserTaskQueue> userQueueMap = new HashMap<>();
+    // DRR轮转队列，仅包含有排队任务的用户
+    private final Deque<UserTaskQueue> activeUsers = new ArrayDeque<>();
+    // 按入队顺序索引，用于丢弃最早任务
+    private final NavigableSet<ChatTask> arrivalSet = new TreeSet<>(ARRIVAL_ORDER);
+    // 有截止时间的任务，用于过期清理
+    private final NavigableSet<ChatTask> deadlineSet = new TreeSet<>(DEADLINE_ORDER);
+
+    private final UserShareOptions userShareOptions;
+
+    public ModelTaskQueue() {
+        this(new UserShareOptions());
+    }
+
+    public ModelTaskQueue(UserShareOptions userShareOptions) {
+        this.userShareOptions = userShareOptions;
+    }
+
+    public void offer(ChatTask task) {
+        UserTaskQueue userQueue = userQueueMap.computeIfAbsent(userKey(task), UserTaskQueue::new);
+        if (userQueue.isEmpty()) {
+            activeUsers.addLast(userQueue);
+        }
+        userQueue.offer(task);
+        arrivalSet.add(task);
+        if (task.hasDeadline()) {
+            deadlineSet.add(task);
+        }
+    }
+
+    /**
+     * 按DRR选出用户，取出该用户有效优先级最高的任务，并计入该用户的在途请求
+     *
+     * @param agingNanos 权重每提升1所需的等待时间，<=0 时不老化
+     * @return 所有用户均达到并发上限时返回null
+     */
+    public ChatTask poll(long agingNanos) {
+        int skipped = 0;
+        while (!activeUsers.isEmpty() && skipped < activeUsers.size()) {
+            UserTaskQueue userQueue = activeUsers.peekFirst();
+            if (isAtConcurrencyLimit(userQueue)) {
+                // 达到并发上限的用户本轮不累加配额
+                userQueue.turnStarted = false;
+                activeUsers.addLast(activeUsers.pollFirst());
+                skipped++;
+                continue;
+            }
+            skipped = 0;
+            if (!userQueue.turnStarted) {
+                userQueue.deficit += userShareOptions.getShare(userQueue.userId);
+                userQueue.turnStarted = true;
+            }
+            if (userQueue.deficit >= 1) {
+                userQueue.deficit -= 1;
+                userQueue.inFlight++;
+                return remove(userQueue.peek(agingNanos));
+            }
+            // 配额用完，轮到下一个用户
+            userQueue.turnStarted = false;
+            activeUsers.addLast(activeUsers.pollFirst());
+        }
+        return null;
+    }
+
+    /**
+     * 将刚取出但未能派发的任务放回原位，并撤销poll对该用户配额与在途数的占用
+     */
+    public void requeue(ChatTask task) {
+        UserTaskQueue userQueue = userQueueMap.computeIfAbsent(userKey(task), UserTaskQueue::new);
+        if (userQueue.isEmpty()) {
+            activeUsers.addFirst(userQueue);
+        }
+        userQueue.offer(task);
+        if (userQueue.inFlight > 0) {
+            userQueue.inFlight--;
+        }
+        userQueue.deficit += 1;
+        userQueue.turnStarted = true;
+        arrivalSet.add(task);
+        if (task.hasDeadline()) {
+            deadlineSet.add(task);
+        }
+    }
+
+    /**
+     * 是否有未达到并发上限的用户有排队任务
+     */
+    public boolean hasDispatchableTask() {
+        for (UserTaskQueue userQueue : activeUsers) {
+            if (!isAtConcurrencyLimit(userQueue)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 已派发的任务结束，释放该用户的在途请求
+     */
+    public void release(ChatTask task) {
+        String userId = userKey(task);
+        UserTaskQueue userQueue = userQueueMap.get(userId);
+        if (userQueue == null || userQueue.inFlight <= 0) {
+            return;
+        }
+        userQueue.inFlight--;
+        if (userQueue.inFlight == 0 && userQueue.isEmpty()) {
+            userQueueMap.remove(userId);
+        }
+    }
+
+    /**
+     * 取出权重最低的任务，同权重中取排队任务最多的用户里最晚到期的
+     */
+    public ChatTask pollLowest() {
+        UserTaskQueue selected = null;
+        for (UserTaskQueue userQueue : activeUsers) {
+            if (selected == null || userQueue.lowestLevel() < selected.lowestLevel()
+                    || (userQueue.lowestLevel() == selected.lowestLevel() && userQueue.size > selected.size)) {
+                selected = userQueue;
+            }
+        }
+        return selected == null ? null : remove(selected.lowest());
+    }
+
+    /**
+     * 取出最早入队的任务
+     */
+    public ChatTask pollOldest() {
+        return arrivalSet.isEmpty() ? null : remove(arrivalSet.first());
+    }
+
+    /**
+     * 取出所有已过截止时间的任务
+     */
+    public List<ChatTask> pollExpired(long now) {
+        List<ChatTask> expired = new ArrayList<>();
+        while (!deadlineSet.isEmpty() && deadlineSet.first().getDeadline() - now <= 0) {
+            expired.add(remove(deadlineSet.first()));
+        }
+        return expired;
+    }
+
+    /**
+     * 距离最早截止时间的纳秒数，无截止时间任务时返回-1
+     */
+    public long nanosToNextDeadline(long now) {
+        return deadlineSet.isEmpty() ? -1 : Math.max(1, deadlineSet.first().getDeadline() - now);
+    }
+
+    /**
+     * 任务权重是否低于队列中所有任务
+     */
+    public boolean isLowerThanAll(ChatTask task) {
+        if (activeUsers.isEmpty()) {
+            return false;
+        }
+        int level = toLevel(task.getTaskWeight());
+        for (UserTaskQueue userQueue : activeUsers) {
+            if (level >= userQueue.lowestLevel()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return arrivalSet.size();
+    }
+
+    public boolean isEmpty() {
+        return arrivalSet.isEmpty();
+    }
+
+    /**
+     * 有排队任务的用户数
+     */
+    public int getActiveUserCount() {
+        return activeUsers.size();
+    }
+
+    private boolean isAtConcurrencyLimit(UserTaskQueue userQueue) {
+        int concurrency = userShareOptions.getConcurrency(userQueue.userId);
+        return concurrency != UserShareOptions.UNLIMITED && userQueue.inFlight >= concurrency;
+    }
+
+    private ChatTask remove(ChatTask task) {
+        String userId = userKey(task);
+        UserTaskQueue userQueue = userQueueMap.get(userId);
+        userQueue.remove(task);
+        if (userQueue.isEmpty()) {
+            activeUsers.remove(userQueue);
+            userQueue.deficit = 0;
+            userQueue.turnStarted = false;
+            if (userQueue.inFlight == 0) {
+                userQueueMap.remove(userId);
+            }
+        }
+        arrivalSet.remove(task);
+        if (task.hasDeadline()) {
+            deadlineSet.remove(task);
+        }
+        return task;
+    }
+
+    private static String userKey(ChatTask task) {
+        return task.getUserId() == null ? DEFAULT_USER : task.getUserId();
+    }
+
+    private static long effectiveDeadline(ChatTask task) {
+        return task.hasDeadline() ? task.getDeadline() : task.getEnqueueTime() + NO_DEADLINE_HORIZON;
+    }
+
+    private static int toLevel(Float weight) {
+        return weight == null ? 0 : Math.round(weight * WEIGHT_PRECISION);
+    }
+
+    /**
+     * 单个用户的子队列
+     */
+    private static class UserTaskQueue {
+
+        private final String userId;
+        private final TreeMap<Integer, NavigableSet<ChatTask>> levelMap = new TreeMap<>();
+        private int size = 0;
+        // DRR赤字计数器与本轮是否已累加配额
+        private double deficit = 0;
+        private boolean turnStarted = false;
+        // 已派发未结束的请求数
+        private int inFlight = 0;
+
+        private UserTaskQueue(String userId) {
+            this.userId = userId;
+        }
+
+        private void offer(ChatTask task) {
+            levelMap.computeIfAbsent(toLevel(task.getTaskWeight()), k -> new TreeSet<>(EDF_ORDER)).add(task);
+            size++;
+        }
+
+        /**
+         * 有效优先级最高的任务
+         */
+        private ChatTask peek(long agingNanos) {
+            NavigableSet<ChatTask> selectedLevel = null;
+            double selectedPriority = 0;
+            long selectedEnqueueTime = 0;
+            long now = System.nanoTime();
+            for (Map.Entry<Integer, NavigableSet<ChatTask>> entry : levelMap.entrySet()) {
+                ChatTask head = entry.getValue().first();
+                double priority = (double) entry.getKey() / WEIGHT_PRECISION;
+                if (agingNanos > 0) {
+                    priority += (double) (now - head.getEnqueueTime()) / agingNanos;
+                }
+                // 有效优先级相同时先入队者优先
+                if (selectedLevel == null || priority > selectedPriority
+                        || (priority == selectedPriority && head.getEnqueueTime() < selectedEnqueueTime)) {
+                    selectedLevel = entry.getValue();
+                    selectedPriority = priority;
+                    selectedEnqueueTime = head.getEnqueueTime();
+                }
+            }
+            return selectedLevel == null ? null : selectedLevel.first();
+        }
+
+        /**
+         * 权重最低的桶中最晚到期的任务
+         */
+        private ChatTask lowest() {
+            return levelMap.firstEntry().getValue().last();
+        }
+
+        private int lowestLevel() {
+            return levelMap.firstKey();
+        }
+
+        private void remove(ChatTask task) {
+            Integer level = toLevel(task.getTaskWeight());
+            NavigableSet<ChatTask> levelSet = levelMap.get(level);
+            if (levelSet != null && levelSet.remove(task)) {
+                size--;
+                if (levelSet.isEmpty()) {
+                    levelMap.remove(level);
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.gearwenxin.schedule.entity;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 无锁多生产者单消费者队列（Vyukov）
+ * <p>
+ * 入队只有一次getAndSet，生产者之间不互相阻塞；出队只能由一个线程执行，或由调用方加锁串行化。
+ * 入队过程中的短暂时刻出队方可能看不到该元素及其后的元素，入队完成后即可见。
+ */
+public class MpscQueue<E> {
+
+    private final AtomicReference<Node<E>> tail;
+    // 仅消费方访问，指向已出队的哨兵节点
+    private Node<E> head;
+
+    public MpscQueue() {
+        Node<E> stub = new Node<>(null);
+        this.head = stub;
+        this.tail = new AtomicReference<>(stub);
+    }
+
+    public void offer(E element) {
+        Node<E> node = new Node<>(element);
+        Node<E> previous = tail.getAndSet(node);
+        previous.next = node;
+    }
+
+    /**
+     * 仅消费方调用，队列为空时返回null
+     */
+    public E poll() {
+        Node<E> next = head.next;
+        if (next == null) {
+            return null;
+        }
+        E element = next.element;
+        next.element = null;
+        head = next;
+        return element;
+    }
+
+    /**
+     * 仅消费方调用
+     */
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    private static class Node<E> {
+
+        private E element;
+        private volatile Node<E> next;
+
+        private Node(E element) {
+            this.element = element;
+        }
+
+    }
+
+}
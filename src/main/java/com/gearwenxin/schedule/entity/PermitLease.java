@@ -0,0 +1,72 @@
+package com.gearwenxin.schedule.entity;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 模型并发许可租约
+ * <p>
+ * 每个派发的任务持有一个：派发时预留，上游请求被订阅时转为在途，结束、取消或超时时释放。
+ * 状态只能前进，释放只生效一次，重复释放不会影响并发计数。
+ */
+public class PermitLease {
+
+    public static final int RESERVED = 0;
+    public static final int ACTIVE = 1;
+    public static final int RELEASED = 2;
+
+    @Getter
+    private final String taskId;
+    @Getter
+    private final String modelName;
+    @Getter
+    private final long acquireTime;
+
+    private final AtomicInteger state = new AtomicInteger(RESERVED);
+    // 泄漏只报告一次
+    private final AtomicBoolean leakReported = new AtomicBoolean(false);
+
+    public PermitLease(String taskId, String modelName) {
+        this.taskId = taskId;
+        this.modelName = modelName;
+        this.acquireTime = System.nanoTime();
+    }
+
+    /**
+     * 预留转为在途
+     *
+     * @return 是否转换成功，已释放的租约返回false
+     */
+    public boolean activate() {
+        return state.compareAndSet(RESERVED, ACTIVE);
+    }
+
+    /**
+     * 释放租约
+     *
+     * @return 释放前的状态，已释放过时返回RELEASED
+     */
+    public int release() {
+        return state.getAndSet(RELEASED);
+    }
+
+    public int getState() {
+        return state.get();
+    }
+
+    public boolean isReleased() {
+        return state.get() == RELEASED;
+    }
+
+    public boolean markLeakReported() {
+        return leakReported.compareAndSet(false, true);
+    }
+
+    @Override
+    public String toString() {
+        return "PermitLease { taskId: " + taskId + ", modelName: " + modelName + ", state: " + state.get() + " }";
+    }
+
+}
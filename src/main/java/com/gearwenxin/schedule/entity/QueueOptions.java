@@ -0,0 +1,49 @@
+package com.gearwenxin.schedule.entity;
+
+import com.gearwenxin.entity.enums.OverflowPolicy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 模型任务队列的容量与溢出策略
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueueOptions {
+
+    public static final int UNBOUNDED = -1;
+
+    /**
+     * 队列容量，-1 表示不限制
+     */
+    private int capacity = UNBOUNDED;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+
+    /**
+     * BLOCK策略下的最长等待时间
+     */
+    private long blockTimeoutMillis = 0;
+
+    public boolean isBounded() {
+        return capacity != UNBOUNDED;
+    }
+
+    /**
+     * 解析配置，格式：模型名 容量 [溢出策略] [阻塞超时(毫秒)]
+     */
+    public static QueueOptions parse(String[] split, QueueOptions defaults) {
+        QueueOptions options = new QueueOptions(Integer.parseInt(split[1]),
+                defaults.getOverflowPolicy(), defaults.getBlockTimeoutMillis());
+        if (split.length > 2) {
+            options.setOverflowPolicy(OverflowPolicy.valueOf(split[2].toUpperCase()));
+        }
+        if (split.length > 3) {
+            options.setBlockTimeoutMillis(Long.parseLong(split[3]));
+        }
+        return options;
+    }
+
+}
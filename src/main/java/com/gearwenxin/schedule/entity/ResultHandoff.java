@@ -0,0 +1,66 @@
+package com.gearwenxin.schedule.entity;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 任务结果交接表
+ * <p>
+ * 入队时create创建槽位，消费线程complete一次，调用方通过take订阅结果；
+ * 结果被消费、出错或订阅取消后槽位立即移除，不会随请求数增长而泄漏。无按key加锁。
+ */
+public class ResultHandoff<K, V> {
+
+    private final Map<K, CompletableFuture<V>> slotMap = new ConcurrentHashMap<>();
+
+    /**
+     * 创建结果槽位
+     */
+    public CompletableFuture<V> create(K key) {
+        CompletableFuture<V> slot = new CompletableFuture<>();
+        CompletableFuture<V> previous = slotMap.putIfAbsent(key, slot);
+        return previous == null ? slot : previous;
+    }
+
+    /**
+     * 获取结果槽位，槽位已被移除（调用方已取消）时返回null
+     */
+    public CompletableFuture<V> get(K key) {
+        return slotMap.get(key);
+    }
+
+    public boolean complete(K key, V value) {
+        CompletableFuture<V> slot = slotMap.get(key);
+        return slot != null && slot.complete(value);
+    }
+
+    public boolean completeExceptionally(K key, Throwable throwable) {
+        CompletableFuture<V> slot = slotMap.get(key);
+        return slot != null && slot.completeExceptionally(throwable);
+    }
+
+    /**
+     * 订阅结果，结果发出、出错或取消后移除槽位
+     */
+    public Mono<V> take(K key) {
+        return Mono.defer(() -> {
+            CompletableFuture<V> slot = slotMap.get(key);
+            if (slot == null) {
+                return Mono.error(new IllegalStateException("result slot not found: " + key));
+            }
+            return Mono.fromFuture(slot).doFinally(signal -> slotMap.remove(key, slot));
+        });
+    }
+
+    public void remove(K key) {
+        slotMap.remove(key);
+    }
+
+    public int size() {
+        return slotMap.size();
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.gearwenxin.schedule.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户（userId）间的公平调度配置
+ * <p>
+ * share: 每轮可派发的任务数（DRR配额），未配置的用户使用defaultShare；
+ * concurrency: 单个用户在同一模型上的在途请求上限，-1 表示不限制
+ */
+public class UserShareOptions {
+
+    public static final double DEFAULT_SHARE = 1;
+    public static final int UNLIMITED = -1;
+    // 配额下限，避免配额过小时轮转次数过多
+    private static final double MIN_SHARE = 0.01;
+
+    @Getter
+    @Setter
+    private volatile double defaultShare = DEFAULT_SHARE;
+
+    @Getter
+    @Setter
+    private volatile int defaultConcurrency = UNLIMITED;
+
+    private final Map<String, Double> shareMap = new ConcurrentHashMap<>();
+    private final Map<String, Integer> concurrencyMap = new ConcurrentHashMap<>();
+
+    public double getShare(String userId) {
+        return Math.max(MIN_SHARE, shareMap.getOrDefault(userId, defaultShare));
+    }
+
+    public int getConcurrency(String userId) {
+        return concurrencyMap.getOrDefault(userId, defaultConcurrency);
+    }
+
+    public void putShare(String userId, double share) {
+        shareMap.put(userId, share);
+    }
+
+    public void putConcurrency(String userId, int concurrency) {
+        concurrencyMap.put(userId, concurrency);
+    }
+
+    @Override
+    public String toString() {
+        return "UserShareOptions { defaultShare: " + defaultShare + ", defaultConcurrency: " + defaultConcurrency +
+                ", shareMap: " + shareMap + ", concurrencyMap: " + concurrencyMap + " }";
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.gearwenxin.schedule.limiter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应并发限制器（AIMD）
+ * <p>
+ * 以首包时延（TTFT）为信号：时延不超过基线 * latencyTolerance 时加性增长（每个窗口约+1），
+ * 超过时温和下调（乘 latencyBackoffRatio），遇到限流错误时大幅下调（乘 throttleBackoffRatio）。
+ * 基线为近期最小时延，每 BASELINE_RESET_NANOS 重置一次以跟随上游容量变化；
+ * 同一个时延窗口内只下调一次，避免并发请求同时失败时限制骤降到底。
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double LATENCY_BACKOFF_RATIO = 0.9;
+    private static final double THROTTLE_BACKOFF_RATIO = 0.5;
+    private static final long BASELINE_RESET_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // 两次下调的最小间隔，尚无时延样本时使用
+    private static final long MIN_DECREASE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private double limit;
+    // 近期最小时延（基线）与平滑时延
+    private long baselineNanos = Long.MAX_VALUE;
+    private long baselineResetTime = System.nanoTime();
+    private double smoothedLatencyNanos = 0;
+    private long lastDecreaseTime = System.nanoTime() - BASELINE_RESET_NANOS;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("limit must satisfy 1 <= min <= initial <= max");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * 当前并发上限
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * 记录一次成功请求的首包时延
+     */
+    public synchronized void onSample(long latencyNanos) {
+        long now = System.nanoTime();
+        if (now - baselineResetTime > BASELINE_RESET_NANOS) {
+            baselineNanos = Long.MAX_VALUE;
+            baselineResetTime = now;
+        }
+        baselineNanos = Math.min(baselineNanos, latencyNanos);
+        smoothedLatencyNanos = smoothedLatencyNanos == 0 ? latencyNanos
+                : smoothedLatencyNanos * 0.9 + latencyNanos * 0.1;
+
+        if (latencyNanos > baselineNanos * LATENCY_TOLERANCE) {
+            decrease(now, LATENCY_BACKOFF_RATIO);
+        } else {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * 记录一次上游限流
+     */
+    public synchronized void onThrottled() {
+        decrease(System.nanoTime(), THROTTLE_BACKOFF_RATIO);
+    }
+
+    private void decrease(long now, double ratio) {
+        if (now - lastDecreaseTime < Math.max(smoothedLatencyNanos, MIN_DECREASE_INTERVAL_NANOS)) {
+            return;
+        }
+        lastDecreaseTime = now;
+        limit = Math.max(minLimit, limit * ratio);
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AdaptiveConcurrencyLimiter { limit: " + getLimit() + ", min: " + minLimit + ", max: " + maxLimit +
+                ", baselineMillis: " + (baselineNanos == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(baselineNanos)) + " }";
+    }
+
+}
@@ -0,0 +1,227 @@
+package com.gearwenxin.schedule.limiter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模型配额跟踪器
+ * <p>
+ * 记录上游响应头 X-Ratelimit-* 中的配额，供消费线程在额度耗尽前放缓派发：
+ * 剩余请求数低于上限的 SLOW_DOWN_RATIO 时，将剩余额度均匀分布到窗口结束前；剩余额度为0时挂起到窗口重置。
+ * 响应头不含重置时间，窗口按1分钟估算：上游报告的剩余额度较上次报告回升时视为新窗口开始。
+ * 本地剩余额度 = 上游报告值 - 已派发但尚未收到响应的请求数。
+ */
+@Slf4j
+public class ModelQuotaTracker {
+
+    public static final String TAG = "ModelQuotaTracker";
+
+    public static final String LIMIT_REQUESTS = "X-Ratelimit-Limit-Requests";
+    public static final String LIMIT_TOKENS = "X-Ratelimit-Limit-Tokens";
+    public static final String REMAINING_REQUESTS = "X-Ratelimit-Remaining-Requests";
+    public static final String REMAINING_TOKENS = "X-Ratelimit-Remaining-Tokens";
+
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final double SLOW_DOWN_RATIO = 0.2;
+    private static final long UNKNOWN = -1;
+
+    private final Map<String, Quota> quotaMap = new ConcurrentHashMap<>();
+
+    private volatile static ModelQuotaTracker instance = null;
+
+    private ModelQuotaTracker() {
+    }
+
+    public static ModelQuotaTracker getInstance() {
+        if (instance == null) {
+            synchronized (ModelQuotaTracker.class) {
+                if (instance == null) {
+                    instance = new ModelQuotaTracker();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 记录上游响应头中的配额，不含配额头时忽略
+     */
+    public void update(String modelName, HttpHeaders headers) {
+        long limitRequests = parseHeader(headers, LIMIT_REQUESTS);
+        long remainingRequests = parseHeader(headers, REMAINING_REQUESTS);
+        long limitTokens = parseHeader(headers, LIMIT_TOKENS);
+        long remainingTokens = parseHeader(headers, REMAINING_TOKENS);
+        if (remainingRequests == UNKNOWN && remainingTokens == UNKNOWN) {
+            // 不含配额头的响应（如错误响应）也结束了一个在途请求
+            Quota quota = quotaMap.get(modelName);
+            if (quota != null) {
+                quota.onResponse();
+            }
+            return;
+        }
+        Quota quota = quotaMap.computeIfAbsent(modelName, k -> new Quota());
+        quota.update(limitRequests, remainingRequests, limitTokens, remainingTokens, System.nanoTime());
+        log.debug("[{}] [{}] quota updated: {}", TAG, modelName, quota);
+    }
+
+    /**
+     * 距离下一次允许派发的纳秒数，0 表示可以立即派发
+     */
+    public long nanosToNextDispatch(String modelName) {
+        Quota quota = quotaMap.get(modelName);
+        return quota == null ? 0 : quota.nanosToNextDispatch(System.nanoTime());
+    }
+
+    /**
+     * 成功派发一个请求，本地扣减剩余请求数，直到下一个响应头校正
+     */
+    public void onDispatch(String modelName) {
+        Quota quota = quotaMap.get(modelName);
+        if (quota != null) {
+            quota.onDispatch(System.nanoTime());
+        }
+    }
+
+    public Quota getQuota(String modelName) {
+        return quotaMap.get(modelName);
+    }
+
+    private static long parseHeader(HttpHeaders headers, String name) {
+        String value = headers.getFirst(name);
+        if (value == null || value.isBlank()) {
+            return UNKNOWN;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("[{}] invalid header {}: {}", TAG, name, value);
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * 单个模型当前窗口的配额，-1 表示未知
+     */
+    public static class Quota {
+
+        private long limitRequests = UNKNOWN;
+        private long remainingRequests = UNKNOWN;
+        private long limitTokens = UNKNOWN;
+        private long remainingTokens = UNKNOWN;
+        // 上游最近一次报告的剩余额度
+        private long reportedRequests = UNKNOWN;
+        private long reportedTokens = UNKNOWN;
+        // 已派发但尚未收到响应的请求数
+        private long pendingRequests = 0;
+        private long windowStart = 0;
+        private long lastDispatchTime = 0;
+
+        private synchronized void update(long limitRequests, long remainingRequests,
+                                         long limitTokens, long remainingTokens, long now) {
+            long pendingBefore = pendingRequests;
+            onResponse();
+            // 在途请求的响应可能乱序到达：新窗口中上游最多已计入在途的请求，剩余额度应接近上限
+            long newWindowFloor = this.limitRequests != UNKNOWN
+                    ? this.limitRequests - pendingBefore : reportedRequests + pendingBefore + 1;
+            boolean windowRolled = windowStart == 0
+                    || (remainingRequests != UNKNOWN && reportedRequests != UNKNOWN
+                    && remainingRequests > reportedRequests && remainingRequests >= newWindowFloor)
+                    || (remainingRequests == UNKNOWN && remainingTokens != UNKNOWN && reportedTokens != UNKNOWN
+                    && remainingTokens > reportedTokens);
+            if (windowRolled) {
+                windowStart = now;
+            }
+            this.limitRequests = limitRequests != UNKNOWN ? limitRequests : this.limitRequests;
+            this.limitTokens = limitTokens != UNKNOWN ? limitTokens : this.limitTokens;
+            if (remainingRequests != UNKNOWN) {
+                // 同一窗口内剩余额度只会减少，乱序到达的较大值忽略
+                reportedRequests = windowRolled || reportedRequests == UNKNOWN
+                        ? remainingRequests : Math.min(reportedRequests, remainingRequests);
+                this.remainingRequests = Math.max(0, reportedRequests - pendingRequests);
+            }
+            if (remainingTokens != UNKNOWN) {
+                reportedTokens = remainingTokens;
+                this.remainingTokens = remainingTokens;
+            }
+        }
+
+        private synchronized void onResponse() {
+            if (pendingRequests > 0) {
+                pendingRequests--;
+            }
+        }
+
+        private synchronized long nanosToNextDispatch(long now) {
+            rollWindow(now);
+            long nanosToReset = windowStart + WINDOW_NANOS - now;
+            if ((remainingRequests != UNKNOWN && remainingRequests <= 0)
+                    || (remainingTokens != UNKNOWN && remainingTokens <= 0)) {
+                return nanosToReset;
+            }
+            if (remainingRequests == UNKNOWN || limitRequests == UNKNOWN
+                    || remainingRequests >= limitRequests * SLOW_DOWN_RATIO) {
+                return 0;
+            }
+            // 额度偏低时匀速派发，剩余额度在窗口结束前用完
+            long interval = nanosToReset / remainingRequests;
+            return Math.max(0, lastDispatchTime + interval - now);
+        }
+
+        private synchronized void onDispatch(long now) {
+            rollWindow(now);
+            if (remainingRequests > 0) {
+                remainingRequests--;
+            }
+            pendingRequests++;
+            lastDispatchTime = now;
+        }
+
+        /**
+         * 估算的窗口已结束时恢复额度，等待下一个响应头校正；
+         * 旧窗口的报告值不再用于判断回升，未收到响应（如连接失败）的在途计数也在此清零
+         */
+        private void rollWindow(long now) {
+            if (now - windowStart < WINDOW_NANOS) {
+                return;
+            }
+            windowStart += (now - windowStart) / WINDOW_NANOS * WINDOW_NANOS;
+            remainingRequests = limitRequests;
+            remainingTokens = limitTokens;
+            reportedRequests = UNKNOWN;
+            reportedTokens = UNKNOWN;
+            pendingRequests = 0;
+        }
+
+        public synchronized long getRemainingRequests() {
+            return remainingRequests;
+        }
+
+        public synchronized long getRemainingTokens() {
+            return remainingTokens;
+        }
+
+        public synchronized long getPendingRequests() {
+            return pendingRequests;
+        }
+
+        public synchronized long getLimitRequests() {
+            return limitRequests;
+        }
+
+        public synchronized long getLimitTokens() {
+            return limitTokens;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "Quota { requests: " + remainingRequests + "/" + limitRequests +
+                    ", tokens: " + remainingTokens + "/" + limitTokens + ", pending: " + pendingRequests + " }";
+        }
+
+    }
+
+}
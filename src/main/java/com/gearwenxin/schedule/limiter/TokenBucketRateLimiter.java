@@ -0,0 +1,120 @@
+package com.gearwenxin.schedule.limiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 令牌桶限流器（无锁，CAS实现）
+ * <p>
+ * rate: 每秒生成的令牌数；burst: 桶容量，即允许的最大突发请求数；
+ * refillGranularity: 补充令牌的时间粒度，每经过一个粒度补充 rate * 粒度 个令牌
+ */
+public class TokenBucketRateLimiter {
+
+    public static final long DEFAULT_REFILL_GRANULARITY_MILLIS = 1;
+
+    private final double rate;
+    private final double burst;
+    private final long granularityNanos;
+    private final double tokensPerGranularity;
+
+    private final AtomicReference<State> state;
+
+    private record State(double tokens, long lastRefillTime) {
+    }
+
+    public TokenBucketRateLimiter(double rate) {
+        this(rate, 1, DEFAULT_REFILL_GRANULARITY_MILLIS);
+    }
+
+    public TokenBucketRateLimiter(double rate, double burst, long refillGranularityMillis) {
+        if (rate <= 0 || burst < 1 || refillGranularityMillis <= 0) {
+            throw new IllegalArgumentException("rate must > 0, burst must >= 1, granularity must > 0");
+        }
+        this.rate = rate;
+        this.burst = burst;
+        this.granularityNanos = TimeUnit.MILLISECONDS.toNanos(refillGranularityMillis);
+        this.tokensPerGranularity = rate * granularityNanos / TimeUnit.SECONDS.toNanos(1);
+        // 初始时桶是满的
+        this.state = new AtomicReference<>(new State(burst, System.nanoTime()));
+    }
+
+    /**
+     * 尝试获取一个令牌
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            State current = state.get();
+            State refilled = refill(current, System.nanoTime());
+            if (refilled.tokens < 1) {
+                // 仅推进补充时间，不消耗令牌
+                if (refilled != current) {
+                    state.compareAndSet(current, refilled);
+                }
+                return false;
+            }
+            State next = new State(refilled.tokens - 1, refilled.lastRefillTime);
+            if (state.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还一个已获取但未使用的令牌
+     */
+    public void refund() {
+        while (true) {
+            State current = state.get();
+            State next = new State(Math.min(burst, current.tokens + 1), current.lastRefillTime);
+            if (state.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 距离下一个令牌可用的纳秒数，已有令牌时返回0
+     */
+    public long nanosToNextPermit() {
+        long now = System.nanoTime();
+        State refilled = refill(state.get(), now);
+        if (refilled.tokens >= 1) {
+            return 0;
+        }
+        long periods = (long) Math.ceil((1 - refilled.tokens) / tokensPerGranularity);
+        return Math.max(1, refilled.lastRefillTime + periods * granularityNanos - now);
+    }
+
+    public double getAvailableTokens() {
+        return refill(state.get(), System.nanoTime()).tokens;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public double getBurst() {
+        return burst;
+    }
+
+    public long getGranularityMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(granularityNanos);
+    }
+
+    private State refill(State current, long now) {
+        long periods = (now - current.lastRefillTime) / granularityNanos;
+        if (periods <= 0) {
+            return current;
+        }
+        double tokens = Math.min(burst, current.tokens + periods * tokensPerGranularity);
+        return new State(tokens, current.lastRefillTime + periods * granularityNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucketRateLimiter { rate: " + rate + ", burst: " + burst +
+                ", granularityMillis: " + TimeUnit.NANOSECONDS.toMillis(granularityNanos) + " }";
+    }
+
+}
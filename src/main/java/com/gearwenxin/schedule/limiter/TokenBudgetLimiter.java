@@ -0,0 +1,93 @@
+package com.gearwenxin.schedule.limiter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每分钟token数（TPM）限制器
+ * <p>
+ * 以TPM为容量、每秒补充 TPM / 60 的令牌桶：派发前按估算值预留，响应返回实际用量后按差值归还或补扣，
+ * 补扣后额度可为负，后续任务需等待额度恢复。单个任务的预留量不超过容量，避免超大请求永远无法派发。
+ */
+public class TokenBudgetLimiter {
+
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final long tokensPerMinute;
+
+    private double availableTokens;
+    private long lastRefillTime;
+
+    public TokenBudgetLimiter(long tokensPerMinute) {
+        if (tokensPerMinute <= 0) {
+            throw new IllegalArgumentException("tokensPerMinute must > 0");
+        }
+        this.tokensPerMinute = tokensPerMinute;
+        // 初始时额度是满的
+        this.availableTokens = tokensPerMinute;
+        this.lastRefillTime = System.nanoTime();
+    }
+
+    /**
+     * 尝试预留tokens个token
+     *
+     * @return 实际预留的token数，额度不足时返回0
+     */
+    public synchronized long tryReserve(long tokens) {
+        refill(System.nanoTime());
+        long cost = clamp(tokens);
+        if (availableTokens < cost) {
+            return 0;
+        }
+        availableTokens -= cost;
+        return cost;
+    }
+
+    /**
+     * 距离额度足够预留tokens个token的纳秒数，已足够时返回0
+     */
+    public synchronized long nanosToAvailable(long tokens) {
+        long now = System.nanoTime();
+        refill(now);
+        double missing = clamp(tokens) - availableTokens;
+        if (missing <= 0) {
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil(missing * WINDOW_NANOS / tokensPerMinute));
+    }
+
+    /**
+     * 按实际用量校正预留量，actualTokens小于预留量时归还差值，大于时补扣
+     */
+    public synchronized void reconcile(long reservedTokens, long actualTokens) {
+        refill(System.nanoTime());
+        availableTokens = Math.min(tokensPerMinute, availableTokens + reservedTokens - actualTokens);
+    }
+
+    public synchronized double getAvailableTokens() {
+        refill(System.nanoTime());
+        return availableTokens;
+    }
+
+    public long getTokensPerMinute() {
+        return tokensPerMinute;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillTime;
+        if (elapsed <= 0) {
+            return;
+        }
+        availableTokens = Math.min(tokensPerMinute, availableTokens + (double) elapsed * tokensPerMinute / WINDOW_NANOS);
+        lastRefillTime = now;
+    }
+
+    private long clamp(long tokens) {
+        return Math.max(1, Math.min(tokens, tokensPerMinute));
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBudgetLimiter { tokensPerMinute: " + tokensPerMinute + " }";
+    }
+
+}
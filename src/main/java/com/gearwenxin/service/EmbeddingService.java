@@ -1,9 +1,16 @@
 package com.gearwenxin.service;
 
+import com.gearwenxin.config.ModelConfig;
 import com.gearwenxin.config.WenXinProperties;
+import com.gearwenxin.core.RequestManager;
+import com.gearwenxin.entity.request.EmbeddingRequest;
+import com.gearwenxin.entity.response.EmbeddingResponse;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import static com.gearwenxin.common.WenXinUtils.assertNotNull;
 
 /**
  * @author Ge Mingjia
@@ -13,6 +20,8 @@ import org.springframework.stereotype.Service;
 @Service
 public class EmbeddingService {
 
+    private final RequestManager requestManager = new RequestManager();
+
     @Resource
     private WenXinProperties wenXinProperties;
 
@@ -20,4 +29,11 @@ public class EmbeddingService {
         return wenXinProperties.getAccessToken();
     }
 
+    public Mono<EmbeddingResponse> embeddingProcess(EmbeddingRequest embeddingRequest, ModelConfig config) {
+        assertNotNull(embeddingRequest, "embeddingRequest is null");
+        embeddingRequest.validSelf();
+
+        return requestManager.monoPost(config, getAccessToken(), embeddingRequest, EmbeddingResponse.class);
+    }
+
 }
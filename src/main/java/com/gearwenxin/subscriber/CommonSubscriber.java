@@ -5,7 +5,6 @@ import com.gearwenxin.config.ModelConfig;
 import com.gearwenxin.core.MessageHistoryManager;
 import com.gearwenxin.entity.Message;
 import com.gearwenxin.entity.response.ChatResponse;
-import com.gearwenxin.schedule.TaskQueueManager;
 import com.gearwenxin.service.MessageService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
@@ -30,8 +29,6 @@ import static com.gearwenxin.core.MessageHistoryManager.validateMessageRule;
 @Slf4j
 public class CommonSubscriber implements Subscriber<ChatResponse>, Disposable {
 
-    private final TaskQueueManager taskManager = TaskQueueManager.getInstance();
-
     private final FluxSink<ChatResponse> emitter;
     private Subscription subscription;
     private final Deque<Message> messagesHistory;
@@ -80,7 +77,6 @@ public class CommonSubscriber implements Subscriber<ChatResponse>, Disposable {
 
     @Override
     public void onError(Throwable throwable) {
-        taskManager.downModelCurrentQPS(modelConfig.getModelName());
         validateMessageRule(messagesHistory);
         if (isDisposed()) {
             return;
@@ -91,7 +87,6 @@ public class CommonSubscriber implements Subscriber<ChatResponse>, Disposable {
 
     @Override
     public void onComplete() {
-        taskManager.downModelCurrentQPS(modelConfig.getModelName());
         if (isDisposed()) {
             return;
         }
@@ -107,7 +102,6 @@ public class CommonSubscriber implements Subscriber<ChatResponse>, Disposable {
 
     @Override
     public void dispose() {
-        taskManager.downModelCurrentQPS(modelConfig.getModelName());
         log.debug("dispose");
         subscription.cancel();
     }
@@ -0,0 +1,572 @@
+package com.gearwenxin.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * HNSW（Hierarchical Navigable Small World）近似最近邻索引，相似度为余弦相似度
+ * <p>
+ * 节点按指数分布随机分配层数，高层稀疏用于快速定位，第0层在 efSearch 大小的候选集内做贪心扩展；
+ * 邻居按启发式选择，保留方向分散的邻居以提高召回率。
+ * <ul>
+ *     <li>并发：写入（add、remove、save）串行执行；查询不加锁，可与写入并发。邻居列表整体替换，
+ *     查询看到的是替换前或替换后的完整列表</li>
+ *     <li>删除：先做标记，已删除节点仍参与图的连通但不会出现在结果中；已删除节点（含被覆盖的旧节点）
+ *     超过 compactRatio 时用存活节点重建图，重建期间查询继续使用旧图</li>
+ *     <li>持久化：{@link #save(Path)} 写入临时文件后原子替换，{@link #load(Path)} 读回</li>
+ * </ul>
+ */
+@Slf4j
+public class HnswIndex implements VectorIndex {
+
+    public static final String TAG = "HnswIndex";
+
+    public static final int DEFAULT_M = 32;
+    public static final int DEFAULT_EF_CONSTRUCTION = 200;
+    public static final int DEFAULT_EF_SEARCH = 128;
+    public static final double DEFAULT_COMPACT_RATIO = 0.3;
+    // 已删除节点少于该数量时不重建
+    private static final int COMPACT_MIN_DELETED = 1024;
+
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    private static final int[] EMPTY_LINKS = new int[0];
+    private static final Comparator<Candidate> BY_SCORE = Comparator.comparingDouble(Candidate::score);
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private volatile int efSearch;
+    private volatile double compactRatio = DEFAULT_COMPACT_RATIO;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // 重建时整体替换，每次查询只使用同一个图
+    private volatile Graph graph = new Graph();
+
+    private static final ThreadLocal<VisitedSet> VISITED = ThreadLocal.withInitial(VisitedSet::new);
+
+    public HnswIndex() {
+        this(DEFAULT_M, DEFAULT_EF_CONSTRUCTION, DEFAULT_EF_SEARCH, 42L);
+    }
+
+    /**
+     * @param m              每层的邻居数，第0层为2m
+     * @param efConstruction 构建时的候选集大小，越大召回率越高、写入越慢
+     * @param efSearch       查询时的候选集大小，不小于topN
+     */
+    public HnswIndex(int m, int efConstruction, int efSearch, long seed) {
+        if (m < 2 || efConstruction <= 0 || efSearch <= 0) {
+            throw new IllegalArgumentException("m must be >= 2, efConstruction and efSearch must be > 0");
+        }
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new Random(seed);
+    }
+
+    /**
+     * 从向量存储批量构建，同一id以最后写入的为准
+     */
+    public void addAll(MappedVectorStore store) {
+        store.scan((id, ordinal, vector) -> add(id, vector));
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        writeLock.lock();
+        try {
+            Graph current = graph;
+            if (current.dimension == 0) {
+                current.dimension = vector.length;
+            } else if (vector.length != current.dimension) {
+                throw new IllegalArgumentException("dimension mismatch: expected " + current.dimension + ", got " + vector.length);
+            }
+            Integer existing = current.idMap.get(id);
+            if (existing != null) {
+                current.markDeleted(existing);
+            }
+            current.insert(new Node(id, VectorUtils.normalize(vector), randomLevel()));
+            compactIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        writeLock.lock();
+        try {
+            Graph current = graph;
+            Integer index = current.idMap.remove(id);
+            if (index != null) {
+                current.markDeleted(index);
+                compactIfNeeded();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 已删除节点超过比例时重建，调用方持有写锁
+     */
+    private void compactIfNeeded() {
+        Graph current = graph;
+        if (current.deletedCount >= COMPACT_MIN_DELETED && current.deletedCount > current.nodeCount * compactRatio) {
+            compact();
+        }
+    }
+
+    /**
+     * 用存活节点重建图，回收已删除节点；重建期间查询继续使用旧图
+     */
+    public void compact() {
+        writeLock.lock();
+        try {
+            Graph current = graph;
+            long start = System.nanoTime();
+            Graph rebuilt = new Graph();
+            rebuilt.dimension = current.dimension;
+            for (int i = 0; i < current.nodeCount; i++) {
+                Node node = current.nodes[i];
+                if (!node.deleted) {
+                    rebuilt.insert(new Node(node.id, node.vector, node.level()));
+                }
+            }
+            graph = rebuilt;
+            log.info("[{}] compacted {} -> {} nodes in {} ms", TAG, current.nodeCount, rebuilt.nodeCount,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<SearchResult> search(float[] query, int topK) {
+        return search(query, topK, -Float.MAX_VALUE);
+    }
+
+    @Override
+    public List<SearchResult> search(float[] query, int topN, float minScore) {
+        return graph.search(query, topN, minScore);
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private static List<Candidate> sortDescending(PriorityQueue<Candidate> queue) {
+        List<Candidate> list = new ArrayList<>(queue);
+        list.sort(BY_SCORE.reversed());
+        return list;
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(int efSearch) {
+        if (efSearch <= 0) {
+            throw new IllegalArgumentException("efSearch must be > 0");
+        }
+        this.efSearch = efSearch;
+    }
+
+    public double getCompactRatio() {
+        return compactRatio;
+    }
+
+    /**
+     * 已删除节点占比超过该值时重建，默认0.3
+     */
+    public void setCompactRatio(double compactRatio) {
+        if (compactRatio <= 0) {
+            throw new IllegalArgumentException("compactRatio must be > 0");
+        }
+        this.compactRatio = compactRatio;
+    }
+
+    /**
+     * 已删除但尚未回收的节点数
+     */
+    public int getDeletedCount() {
+        return graph.deletedCount;
+    }
+
+    @Override
+    public int size() {
+        return graph.idMap.size();
+    }
+
+    @Override
+    public void clear() {
+        writeLock.lock();
+        try {
+            graph = new Graph();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 保存到文件，先写临时文件再原子替换，保存期间查询不受影响
+     */
+    public void save(Path path) throws IOException {
+        writeLock.lock();
+        try {
+            Graph current = graph;
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(m);
+                out.writeInt(efConstruction);
+                out.writeInt(efSearch);
+                out.writeInt(current.dimension);
+                out.writeInt(current.nodeCount);
+                out.writeInt(current.entryPoint);
+                for (int i = 0; i < current.nodeCount; i++) {
+                    Node node = current.nodes[i];
+                    out.writeLong(node.id);
+                    out.writeBoolean(node.deleted);
+                    for (float value : node.vector) {
+                        out.writeFloat(value);
+                    }
+                    out.writeInt(node.level());
+                    for (int level = 0; level <= node.level(); level++) {
+                        int[] links = node.links.get(level);
+                        out.writeInt(links.length);
+                        for (int link : links) {
+                            out.writeInt(link);
+                        }
+                    }
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("[{}] saved {} nodes to {}", TAG, current.nodeCount, path);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public static HnswIndex load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not an hnsw index file: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported hnsw index version: " + version);
+            }
+            HnswIndex index = new HnswIndex(in.readInt(), in.readInt(), in.readInt(), 42L);
+            Graph graph = index.new Graph();
+            int dimension = in.readInt();
+            int count = in.readInt();
+            int entryPoint = in.readInt();
+            Node[] nodes = new Node[Math.max(16, count)];
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                boolean deleted = in.readBoolean();
+                float[] vector = new float[dimension];
+                for (int d = 0; d < dimension; d++) {
+                    vector[d] = in.readFloat();
+                }
+                Node node = new Node(id, vector, in.readInt());
+                node.deleted = deleted;
+                for (int level = 0; level <= node.level(); level++) {
+                    int[] links = new int[in.readInt()];
+                    for (int l = 0; l < links.length; l++) {
+                        links[l] = in.readInt();
+                    }
+                    node.links.set(level, links);
+                }
+                nodes[i] = node;
+                if (deleted) {
+                    graph.deletedCount++;
+                } else {
+                    graph.idMap.put(id, i);
+                }
+            }
+            graph.dimension = dimension;
+            graph.nodes = nodes;
+            graph.nodeCount = count;
+            graph.entryPoint = entryPoint;
+            index.graph = graph;
+            return index;
+        }
+    }
+
+    /**
+     * 一代图结构：节点编号只在同一个图内有效，重建时整体替换
+     */
+    private class Graph {
+
+        // 扩容时整体替换；新节点先写入数组再被链接，查询沿链接访问时一定能读到
+        private volatile Node[] nodes = new Node[16];
+        private volatile int nodeCount = 0;
+        private volatile int entryPoint = -1;
+        private volatile int dimension = 0;
+        private final Map<Long, Integer> idMap = new ConcurrentHashMap<>();
+        // 已删除（含被覆盖）的节点数，只在写锁内修改
+        private volatile int deletedCount = 0;
+
+        private void markDeleted(int index) {
+            Node node = nodes[index];
+            if (!node.deleted) {
+                node.deleted = true;
+                deletedCount++;
+            }
+        }
+
+        private void insert(Node node) {
+            int index = nodeCount;
+            if (index == nodes.length) {
+                nodes = Arrays.copyOf(nodes, index * 2);
+            }
+            nodes[index] = node;
+            nodeCount = index + 1;
+            idMap.put(node.id, index);
+            int enter = entryPoint;
+            if (enter < 0) {
+                entryPoint = index;
+                return;
+            }
+            int topLevel = nodes[enter].level();
+            int current = enter;
+            for (int level = topLevel; level > node.level(); level--) {
+                current = greedySearch(node.vector, current, level);
+            }
+            for (int level = Math.min(node.level(), topLevel); level >= 0; level--) {
+                List<Candidate> candidates = sortDescending(searchLayer(node.vector, current, efConstruction, level));
+                int[] selected = selectNeighbors(node.vector, candidates, m);
+                node.links.set(level, selected);
+                for (int neighbor : selected) {
+                    connect(neighbor, index, level);
+                }
+                current = candidates.get(0).node;
+            }
+            if (node.level() > topLevel) {
+                entryPoint = index;
+            }
+        }
+
+        /**
+         * 把新节点加入邻居的邻居列表，超出上限时重新按启发式选择
+         */
+        private void connect(int neighbor, int newNode, int level) {
+            Node node = nodes[neighbor];
+            int[] links = node.links.get(level);
+            int maxLinks = level == 0 ? maxM0 : m;
+            int[] updated;
+            if (links.length < maxLinks) {
+                updated = Arrays.copyOf(links, links.length + 1);
+                updated[links.length] = newNode;
+            } else {
+                List<Candidate> candidates = new ArrayList<>(links.length + 1);
+                for (int link : links) {
+                    candidates.add(new Candidate(link, VectorUtils.dot(node.vector, nodes[link].vector)));
+                }
+                candidates.add(new Candidate(newNode, VectorUtils.dot(node.vector, nodes[newNode].vector)));
+                candidates.sort(BY_SCORE.reversed());
+                updated = selectNeighbors(node.vector, candidates, maxLinks);
+            }
+            node.links.set(level, updated);
+        }
+
+        /**
+         * 启发式选择：候选按相似度从高到低，与已选邻居比与基准点更相似的候选被跳过
+         */
+        private int[] selectNeighbors(float[] base, List<Candidate> sortedCandidates, int limit) {
+            List<Candidate> selected = new ArrayList<>(limit);
+            for (Candidate candidate : sortedCandidates) {
+                if (selected.size() >= limit) {
+                    break;
+                }
+                float[] vector = nodes[candidate.node].vector;
+                boolean diverse = true;
+                for (Candidate chosen : selected) {
+                    if (VectorUtils.dot(vector, nodes[chosen.node].vector) > candidate.score) {
+                        diverse = false;
+                        break;
+                    }
+                }
+                if (diverse) {
+                    selected.add(candidate);
+                }
+            }
+            return selected.stream().mapToInt(Candidate::node).toArray();
+        }
+
+        private List<SearchResult> search(float[] query, int topN, float minScore) {
+            int enter = entryPoint;
+            if (enter < 0 || topN <= 0) {
+                return List.of();
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("dimension mismatch: expected " + dimension + ", got " + query.length);
+            }
+            float[] normalized = VectorUtils.normalize(query);
+            int current = enter;
+            for (int level = node(enter).level(); level > 0; level--) {
+                current = greedySearch(normalized, current, level);
+            }
+            List<SearchResult> results = new ArrayList<>(topN);
+            for (Candidate candidate : sortDescending(searchLayer(normalized, current, Math.max(efSearch, topN), 0))) {
+                if (results.size() >= topN || candidate.score < minScore) {
+                    break;
+                }
+                Node node = node(candidate.node);
+                if (!node.deleted) {
+                    results.add(new SearchResult(node.id, candidate.score));
+                }
+            }
+            return results;
+        }
+
+        /**
+         * 在指定层从current出发向更相似的邻居移动，直到没有更相似的邻居
+         */
+        private int greedySearch(float[] query, int current, int level) {
+            float best = VectorUtils.dot(query, node(current).vector);
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int neighbor : node(current).links.get(level)) {
+                    float score = VectorUtils.dot(query, node(neighbor).vector);
+                    if (score > best) {
+                        best = score;
+                        current = neighbor;
+                        changed = true;
+                    }
+                }
+            }
+            return current;
+        }
+
+        /**
+         * 在指定层以ef大小的候选集扩展，返回最相似的至多ef个节点（小顶堆）
+         */
+        private PriorityQueue<Candidate> searchLayer(float[] query, int enter, int ef, int level) {
+            VisitedSet visited = VISITED.get();
+            visited.reset(nodeCount);
+            PriorityQueue<Candidate> candidates = new PriorityQueue<>(BY_SCORE.reversed());
+            PriorityQueue<Candidate> results = new PriorityQueue<>(BY_SCORE);
+            Candidate start = new Candidate(enter, VectorUtils.dot(query, node(enter).vector));
+            visited.visit(enter);
+            candidates.add(start);
+            results.add(start);
+            while (!candidates.isEmpty()) {
+                Candidate candidate = candidates.poll();
+                if (results.size() >= ef && candidate.score < results.peek().score) {
+                    break;
+                }
+                for (int neighbor : node(candidate.node).links.get(level)) {
+                    if (!visited.visit(neighbor)) {
+                        continue;
+                    }
+                    float score = VectorUtils.dot(query, node(neighbor).vector);
+                    if (results.size() < ef || score > results.peek().score) {
+                        Candidate next = new Candidate(neighbor, score);
+                        candidates.add(next);
+                        results.add(next);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+            return results;
+        }
+
+        private Node node(int index) {
+            return nodes[index];
+        }
+
+    }
+
+    private record Candidate(int node, float score) {
+    }
+
+    private static class Node {
+
+        private final long id;
+        private final float[] vector;
+        // 每层的邻居列表，整体替换
+        private final AtomicReferenceArray<int[]> links;
+        private volatile boolean deleted = false;
+
+        private Node(long id, float[] vector, int level) {
+            this.id = id;
+            this.vector = vector;
+            this.links = new AtomicReferenceArray<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                links.set(i, EMPTY_LINKS);
+            }
+        }
+
+        private int level() {
+            return links.length() - 1;
+        }
+
+    }
+
+    /**
+     * 以轮次标记已访问节点，避免每次查询分配与清空
+     */
+    private static class VisitedSet {
+
+        private int[] marks = new int[0];
+        private int round = 0;
+
+        private void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                round = 0;
+            }
+            if (++round == 0) {
+                Arrays.fill(marks, 0);
+                round = 1;
+            }
+        }
+
+        /**
+         * @return 是否首次访问
+         */
+        private boolean visit(int node) {
+            if (node >= marks.length) {
+                // 查询期间新插入的节点
+                marks = Arrays.copyOf(marks, Math.max(node + 1, marks.length * 2));
+            }
+            if (marks[node] == round) {
+                return false;
+            }
+            marks[node] = round;
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.gearwenxin.vector;
+
+import java.util.Arrays;
+
+/**
+ * long -> int 开放寻址哈希表（线性探测），键值存放在两个基本类型数组中，每个条目约12字节，没有装箱开销。
+ * 不支持删除，值为非负数，查不到返回 -1。非线程安全。
+ */
+class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final int ABSENT = -1;
+
+    private long[] keys;
+    // values[i] == ABSENT 表示槽位为空
+    private int[] values;
+    private int size = 0;
+
+    LongIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int i = indexOf(key, mask); ; i = (i + 1) & mask) {
+            if (values[i] == ABSENT) {
+                return ABSENT;
+            }
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+    }
+
+    /**
+     * 写入或覆盖
+     */
+    void put(long key, int value) {
+        if (size + 1 > keys.length * LOAD_FACTOR) {
+            resize(keys.length << 1);
+        }
+        int mask = keys.length - 1;
+        for (int i = indexOf(key, mask); ; i = (i + 1) & mask) {
+            if (values[i] == ABSENT) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return;
+            }
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != ABSENT) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long capacity = (long) Math.ceil(Math.max(16, expectedSize) / LOAD_FACTOR);
+        return (int) Math.min(1 << 30, Long.highestOneBit(capacity - 1) << 1);
+    }
+
+    private static int indexOf(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+}
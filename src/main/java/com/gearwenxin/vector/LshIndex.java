@@ -0,0 +1,149 @@
+package com.gearwenxin.vector;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 随机超平面局部敏感哈希（SimHash）索引
+ * <p>
+ * 每张哈希表用 bitsPerTable 个随机超平面把向量映射为签名，夹角越小的向量签名相同的概率越高；
+ * 查询时取 tableCount 张表中同签名的向量作为候选，再用精确余弦相似度排序。
+ * 向量添加时归一化保存，维度由第一个向量确定（clear后重新确定）。非线程安全。
+ */
+public class LshIndex implements VectorIndex {
+
+    public static final int DEFAULT_TABLE_COUNT = 8;
+    public static final int DEFAULT_BITS_PER_TABLE = 12;
+
+    private final int tableCount;
+    private final int bitsPerTable;
+    private final long seed;
+
+    // [table][bit] -> 超平面法向量，首次添加时按维度生成
+    private float[][][] hyperplanes;
+    private final List<Map<Integer, Set<Long>>> tables = new ArrayList<>();
+    private final Map<Long, float[]> vectorMap = new HashMap<>();
+    private final Map<Long, int[]> signatureMap = new HashMap<>();
+
+    public LshIndex() {
+        this(DEFAULT_TABLE_COUNT, DEFAULT_BITS_PER_TABLE, 42L);
+    }
+
+    public LshIndex(int tableCount, int bitsPerTable, long seed) {
+        if (tableCount <= 0 || bitsPerTable <= 0 || bitsPerTable > 31) {
+            throw new IllegalArgumentException("tableCount must be > 0 and bitsPerTable in [1, 31]");
+        }
+        this.tableCount = tableCount;
+        this.bitsPerTable = bitsPerTable;
+        this.seed = seed;
+        for (int i = 0; i < tableCount; i++) {
+            tables.add(new HashMap<>());
+        }
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        ensureHyperplanes(vector.length);
+        remove(id);
+        float[] normalized = VectorUtils.normalize(vector);
+        int[] signatures = signaturesOf(normalized);
+        for (int i = 0; i < tableCount; i++) {
+            tables.get(i).computeIfAbsent(signatures[i], k -> new HashSet<>()).add(id);
+        }
+        vectorMap.put(id, normalized);
+        signatureMap.put(id, signatures);
+    }
+
+    @Override
+    public void remove(long id) {
+        int[] signatures = signatureMap.remove(id);
+        if (signatures == null) {
+            return;
+        }
+        vectorMap.remove(id);
+        for (int i = 0; i < tableCount; i++) {
+            Set<Long> bucket = tables.get(i).get(signatures[i]);
+            if (bucket != null && bucket.remove(id) && bucket.isEmpty()) {
+                tables.get(i).remove(signatures[i]);
+            }
+        }
+    }
+
+    @Override
+    public List<SearchResult> search(float[] query, int topK) {
+        if (vectorMap.isEmpty() || topK <= 0) {
+            return List.of();
+        }
+        if (query.length != hyperplanes[0][0].length) {
+            throw new IllegalArgumentException("dimension mismatch: expected " + hyperplanes[0][0].length +
+                    ", got " + query.length);
+        }
+        float[] normalized = VectorUtils.normalize(query);
+        int[] signatures = signaturesOf(normalized);
+        Set<Long> candidates = new HashSet<>();
+        for (int i = 0; i < tableCount; i++) {
+            Set<Long> bucket = tables.get(i).get(signatures[i]);
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        List<SearchResult> results = new ArrayList<>(candidates.size());
+        candidates.forEach(id -> results.add(new SearchResult(id, VectorUtils.dot(normalized, vectorMap.get(id)))));
+        results.sort(Comparator.comparingDouble(SearchResult::score).reversed());
+        return results.size() > topK ? new ArrayList<>(results.subList(0, topK)) : results;
+    }
+
+    @Override
+    public int size() {
+        return vectorMap.size();
+    }
+
+    @Override
+    public void clear() {
+        tables.forEach(Map::clear);
+        vectorMap.clear();
+        signatureMap.clear();
+        // 清空后允许改用其他维度
+        hyperplanes = null;
+    }
+
+    private void ensureHyperplanes(int dimension) {
+        if (hyperplanes != null) {
+            if (hyperplanes[0][0].length != dimension) {
+                throw new IllegalArgumentException("dimension mismatch: expected " + hyperplanes[0][0].length +
+                        ", got " + dimension);
+            }
+            return;
+        }
+        Random random = new Random(seed);
+        hyperplanes = new float[tableCount][bitsPerTable][dimension];
+        for (float[][] table : hyperplanes) {
+            for (float[] plane : table) {
+                for (int d = 0; d < dimension; d++) {
+                    plane[d] = (float) random.nextGaussian();
+                }
+            }
+        }
+    }
+
+    private int[] signaturesOf(float[] vector) {
+        int[] signatures = new int[tableCount];
+        for (int i = 0; i < tableCount; i++) {
+            int signature = 0;
+            for (int b = 0; b < bitsPerTable; b++) {
+                if (VectorUtils.dot(hyperplanes[i][b], vector) >= 0) {
+                    signature |= 1 << b;
+                }
+            }
+            signatures[i] = signature;
+        }
+        return signatures;
+    }
+
+}
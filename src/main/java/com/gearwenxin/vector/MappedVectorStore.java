@@ -0,0 +1,358 @@
+package com.gearwenxin.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * 基于内存映射文件的定长向量存储
+ * <p>
+ * 文件结构：64字节文件头（magic、版本、维度、已提交条数、已刷盘条数）+
+ * 定长记录（8字节id + dimension个float + 4字节CRC32C校验，小端序）。
+ * 文件按块分段映射，向量数据不占用堆内存，打开时只读取文件头并校验上次刷盘之后追加的记录；
+ * id到记录序号的索引在第一次按id查询时扫描id列建立，扫描期间不阻塞追加。
+ * <ul>
+ *     <li>追加：先写记录和校验再更新文件头中的已提交条数，进程崩溃后重新打开只会丢失未提交的记录</li>
+ *     <li>持久化：{@link #sync()} 先刷盘数据再写入并刷盘已刷盘条数，调用前的记录在系统崩溃后也可恢复。
+ *     系统崩溃时操作系统回写映射页的顺序不确定，文件头可能先于数据落盘，
+ *     重新打开时从已刷盘条数开始校验，第一条校验失败的记录及之后的记录被丢弃</li>
+ *     <li>同一id重复追加时按id查询返回最后一次写入的向量，批量扫描会遍历所有记录</li>
+ * </ul>
+ * 追加串行执行，读取可与追加并发。
+ */
+@Slf4j
+public class MappedVectorStore implements Closeable {
+
+    public static final String TAG = "MappedVectorStore";
+
+    private static final int MAGIC = 0x57585653;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int COUNT_OFFSET = 16;
+    private static final int SYNCED_OFFSET = 24;
+    private static final int ID_BYTES = Long.BYTES;
+    private static final int CHECKSUM_BYTES = Integer.BYTES;
+    // 单个映射块的大致上限
+    private static final long MAX_CHUNK_BYTES = 256L * 1024 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int dimension;
+    private final int recordBytes;
+    private final int checksumOffset;
+    private final int recordsPerChunk;
+    private final MappedByteBuffer header;
+
+    // 按需映射的数据块，扩容与映射由this锁保护
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private volatile int size;
+    // 按id查询时才建立，建立后的读写由this锁保护
+    private volatile LongIntHashMap idIndex;
+    // 串行化索引的建立，不占用this锁
+    private final Object indexLock = new Object();
+    private volatile boolean closed = false;
+
+    private MappedVectorStore(Path path, FileChannel channel, int dimension, MappedByteBuffer header, int size) {
+        this.path = path;
+        this.channel = channel;
+        this.dimension = dimension;
+        this.recordBytes = (int) recordBytes(dimension);
+        this.checksumOffset = recordBytes - CHECKSUM_BYTES;
+        this.recordsPerChunk = (int) Math.max(1, MAX_CHUNK_BYTES / recordBytes);
+        this.header = header;
+        this.size = size;
+    }
+
+    /**
+     * 打开或创建存储文件，已有文件的维度必须与dimension一致
+     */
+    public static MappedVectorStore open(Path path, int dimension) throws IOException {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be > 0");
+        }
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (created) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putInt(8, dimension);
+                header.putLong(COUNT_OFFSET, 0);
+                header.putLong(SYNCED_OFFSET, 0);
+                header.force();
+            } else {
+                if (header.getInt(0) != MAGIC) {
+                    throw new IOException("not a vector store file: " + path);
+                }
+                if (header.getInt(4) != VERSION) {
+                    throw new IOException("unsupported vector store version: " + header.getInt(4));
+                }
+                if (header.getInt(8) != dimension) {
+                    throw new IOException("dimension mismatch: file " + header.getInt(8) + ", expected " + dimension);
+                }
+            }
+            long count = header.getLong(COUNT_OFFSET);
+            // 已提交条数超出文件长度说明文件被截断，只保留完整的记录
+            long available = Math.max(0, (channel.size() - HEADER_BYTES) / recordBytes(dimension));
+            if (count > available) {
+                log.warn("[{}] {} truncated, committed: {}, available: {}", TAG, path, count, available);
+                count = available;
+            }
+            MappedVectorStore store = new MappedVectorStore(path, channel, dimension, header, (int) count);
+            store.recover((int) Math.min(count, header.getLong(SYNCED_OFFSET)));
+            log.debug("[{}] open {}, dimension: {}, size: {}", TAG, path, dimension, store.size);
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 追加一条向量
+     *
+     * @return 记录序号
+     */
+    public synchronized int append(long id, float[] vector) {
+        ensureOpen();
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("dimension mismatch: expected " + dimension + ", got " + vector.length);
+        }
+        int ordinal = size;
+        ByteBuffer record = recordBuffer(ordinal);
+        record.putLong(0, id);
+        record.position(ID_BYTES);
+        record.asFloatBuffer().put(vector);
+        record.putInt(checksumOffset, checksum(record));
+        // 记录写完后再提交条数
+        header.putLong(COUNT_OFFSET, ordinal + 1);
+        size = ordinal + 1;
+        if (idIndex != null) {
+            idIndex.put(id, ordinal);
+        }
+        return ordinal;
+    }
+
+    /**
+     * 按id查询，不存在时返回null
+     */
+    public float[] get(long id) {
+        int ordinal = ordinalOf(id);
+        return ordinal < 0 ? null : getAt(ordinal);
+    }
+
+    /**
+     * 记录序号，不存在时返回 -1
+     */
+    public int ordinalOf(long id) {
+        ensureOpen();
+        LongIntHashMap index = idIndex;
+        if (index == null) {
+            index = buildIdIndex();
+        }
+        synchronized (this) {
+            return index.get(id);
+        }
+    }
+
+    public float[] getAt(int ordinal) {
+        float[] vector = new float[dimension];
+        readAt(ordinal, vector);
+        return vector;
+    }
+
+    /**
+     * 读取向量到dest，避免分配
+     */
+    public void readAt(int ordinal, float[] dest) {
+        checkOrdinal(ordinal);
+        ByteBuffer record = recordBuffer(ordinal);
+        record.position(ID_BYTES);
+        record.asFloatBuffer().get(dest, 0, dimension);
+    }
+
+    public long idAt(int ordinal) {
+        checkOrdinal(ordinal);
+        return recordBuffer(ordinal).getLong(0);
+    }
+
+    /**
+     * 按写入顺序遍历所有记录；传入的数组在每次回调间复用，需要保留时自行复制
+     */
+    public void scan(VectorConsumer consumer) {
+        ensureOpen();
+        int count = size;
+        float[] vector = new float[dimension];
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            ByteBuffer record = recordBuffer(ordinal);
+            long id = record.getLong(0);
+            record.position(ID_BYTES);
+            record.asFloatBuffer().get(vector);
+            consumer.accept(id, ordinal, vector);
+        }
+    }
+
+    /**
+     * 数据与文件头刷盘，数据落盘后才更新已刷盘条数
+     */
+    public synchronized void sync() throws IOException {
+        ensureOpen();
+        for (MappedByteBuffer chunk : chunks) {
+            if (chunk != null) {
+                chunk.force();
+            }
+        }
+        header.putLong(SYNCED_OFFSET, size);
+        header.force();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        sync();
+        closed = true;
+        chunks = new MappedByteBuffer[0];
+        channel.close();
+    }
+
+    /**
+     * 已提交的记录不再修改，扫描时不持有this锁；扫描期间追加的记录在发布索引前补上
+     */
+    private LongIntHashMap buildIdIndex() {
+        synchronized (indexLock) {
+            LongIntHashMap index = idIndex;
+            if (index != null) {
+                return index;
+            }
+            int count = size;
+            index = new LongIntHashMap(count);
+            for (int ordinal = 0; ordinal < count; ordinal++) {
+                index.put(recordBuffer(ordinal).getLong(0), ordinal);
+            }
+            synchronized (this) {
+                ensureOpen();
+                for (int ordinal = count; ordinal < size; ordinal++) {
+                    index.put(recordBuffer(ordinal).getLong(0), ordinal);
+                }
+                idIndex = index;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 校验上次刷盘之后提交的记录，丢弃第一条校验失败的记录及之后的记录
+     */
+    private void recover(int synced) {
+        for (int ordinal = synced; ordinal < size; ordinal++) {
+            ByteBuffer record = recordBuffer(ordinal);
+            if (record.getInt(checksumOffset) != checksum(record)) {
+                log.warn("[{}] {} checksum mismatch at {}, discard {} record(s)", TAG, path, ordinal, size - ordinal);
+                header.putLong(COUNT_OFFSET, ordinal);
+                size = ordinal;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 记录中id与向量部分的CRC32C
+     */
+    private int checksum(ByteBuffer record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.duplicate().position(0).limit(checksumOffset));
+        return (int) crc.getValue();
+    }
+
+    private static long recordBytes(int dimension) {
+        return ID_BYTES + (long) Float.BYTES * dimension + CHECKSUM_BYTES;
+    }
+
+    /**
+     * 返回指定记录的视图（小端序，position为0），不影响共享的块缓冲区
+     */
+    private ByteBuffer recordBuffer(int ordinal) {
+        int chunkIndex = ordinal / recordsPerChunk;
+        MappedByteBuffer[] current = chunks;
+        MappedByteBuffer chunk = chunkIndex < current.length ? current[chunkIndex] : null;
+        if (chunk == null) {
+            chunk = mapChunk(chunkIndex);
+        }
+        int offset = (ordinal % recordsPerChunk) * recordBytes;
+        return chunk.slice(offset, recordBytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 按完整块大小映射，文件以稀疏方式扩展到块边界，未提交的部分在重新打开时忽略
+     */
+    private synchronized MappedByteBuffer mapChunk(int chunkIndex) {
+        ensureOpen();
+        MappedByteBuffer[] current = chunks;
+        if (chunkIndex < current.length && current[chunkIndex] != null) {
+            return current[chunkIndex];
+        }
+        long chunkBytes = (long) recordsPerChunk * recordBytes;
+        long position = HEADER_BYTES + chunkIndex * chunkBytes;
+        MappedByteBuffer chunk;
+        try {
+            chunk = channel.map(FileChannel.MapMode.READ_WRITE, position, chunkBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(current, Math.max(current.length, chunkIndex + 1));
+        grown[chunkIndex] = chunk;
+        chunks = grown;
+        return chunk;
+    }
+
+    private void checkOrdinal(int ordinal) {
+        ensureOpen();
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException("ordinal " + ordinal + ", size " + size);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("vector store is closed: " + path);
+        }
+    }
+
+    @FunctionalInterface
+    public interface VectorConsumer {
+
+        /**
+         * @param vector 复用的数组，回调结束后内容会被覆盖
+         */
+        void accept(long id, int ordinal, float[] vector);
+
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.gearwenxin.vector;
+
+/**
+ * 检索结果
+ *
+ * @param id    向量id
+ * @param score 余弦相似度
+ */
+public record SearchResult(long id, float score) {
+}
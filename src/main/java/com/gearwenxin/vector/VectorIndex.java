@@ -0,0 +1,37 @@
+package com.gearwenxin.vector;
+
+import java.util.List;
+
+/**
+ * 向量近似最近邻索引，相似度为余弦相似度
+ * <p>
+ * 实现类非线程安全，由调用方加锁
+ */
+public interface VectorIndex {
+
+    /**
+     * 添加向量，id已存在时覆盖
+     */
+    void add(long id, float[] vector);
+
+    void remove(long id);
+
+    /**
+     * 查找与query最相似的至多topK个向量，按相似度从高到低排列
+     */
+    List<SearchResult> search(float[] query, int topK);
+
+    /**
+     * 查找相似度不低于minScore的至多topN个向量，含义与知识库检索请求（KnowledgeMIRequest）的score、topN一致
+     */
+    default List<SearchResult> search(float[] query, int topN, float minScore) {
+        return search(query, topN).stream()
+                .filter(result -> result.score() >= minScore)
+                .toList();
+    }
+
+    int size();
+
+    void clear();
+
+}
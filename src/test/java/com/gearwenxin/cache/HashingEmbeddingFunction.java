@@ -0,0 +1,64 @@
+package com.gearwenxin.cache;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 本地特征哈希向量化
+ * <p>
+ * 把文本的单字与相邻两字哈希到固定维度并带符号累加，结果确定且不需要调用接口；
+ * 只反映字面重合程度，不理解语义，仅用于测试。
+ */
+public class HashingEmbeddingFunction implements EmbeddingFunction {
+
+    public static final int DEFAULT_DIMENSION = 256;
+
+    private final int dimension;
+
+    public HashingEmbeddingFunction() {
+        this(DEFAULT_DIMENSION);
+    }
+
+    public HashingEmbeddingFunction(int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be > 0");
+        }
+        this.dimension = dimension;
+    }
+
+    @Override
+    public Mono<float[]> embed(String text) {
+        return Mono.fromSupplier(() -> vectorize(text));
+    }
+
+    public float[] vectorize(String text) {
+        float[] vector = new float[dimension];
+        if (text == null) {
+            return vector;
+        }
+        int[] codePoints = text.toLowerCase().codePoints().filter(c -> !Character.isWhitespace(c)).toArray();
+        for (int i = 0; i < codePoints.length; i++) {
+            addFeature(vector, codePoints[i]);
+            if (i + 1 < codePoints.length) {
+                addFeature(vector, codePoints[i] * 31 + codePoints[i + 1] + 0x5bd1e995);
+            }
+        }
+        return vector;
+    }
+
+    private void addFeature(float[] vector, int feature) {
+        int hash = mix(feature);
+        int index = Math.floorMod(hash, dimension);
+        // 用另一段哈希位决定符号，降低碰撞带来的偏差
+        vector[index] += (hash & 0x40000000) == 0 ? 1 : -1;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+}
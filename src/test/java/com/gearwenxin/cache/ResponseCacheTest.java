@@ -0,0 +1,134 @@
+package com.gearwenxin.cache;
+
+import com.gearwenxin.entity.response.ChatResponse;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private final ResponseCache cache = ResponseCache.getInstance();
+    private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        cache.setMaxBytes(ResponseCache.DEFAULT_MAX_BYTES);
+        cache.invalidateAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.setMaxBytes(ResponseCache.DEFAULT_MAX_BYTES);
+        cache.setTtlMillis(ResponseCache.DEFAULT_TTL_MILLIS);
+        cache.setStaleMillis(ResponseCache.DEFAULT_STALE_MILLIS);
+        cache.invalidateAll();
+    }
+
+    @Test
+    void hitReplaysChunksWithoutLoading() {
+        Supplier<Flux<ChatResponse>> loader = () -> {
+            loads.computeIfAbsent("k", k -> new AtomicInteger()).incrementAndGet();
+            return Flux.just(response("你好"), response("，世界"));
+        };
+        assertEquals(List.of("你好", "，世界"), results(cache.getOrLoad("k", true, loader)));
+
+        assertEquals(List.of("你好", "，世界"), results(cache.getOrLoad("k", true, loader)));
+        // 非流式命中流式缓存时合并分片
+        assertEquals(List.of("你好，世界"), results(cache.getOrLoad("k", false, loader)));
+        assertEquals(1, loads.get("k").get());
+    }
+
+    @Test
+    void errorResponsesAreNotCached() {
+        Supplier<Flux<ChatResponse>> loader = () -> {
+            loads.computeIfAbsent("k", k -> new AtomicInteger()).incrementAndGet();
+            ChatResponse error = response(null);
+            error.setErrorCode(336100);
+            return Flux.just(error);
+        };
+        results(cache.getOrLoad("k", false, loader));
+        results(cache.getOrLoad("k", false, loader));
+        assertEquals(2, loads.get("k").get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void staleEntryIsServedWhileOneRefreshRuns() throws Exception {
+        cache.setTtlMillis(50);
+        cache.setStaleMillis(10_000);
+        results(cache.getOrLoad("k", false, () -> Flux.just(response("v1"))));
+        Thread.sleep(80);
+
+        Sinks.One<ChatResponse> refreshed = Sinks.one();
+        AtomicInteger refreshes = new AtomicInteger();
+        Supplier<Flux<ChatResponse>> slowLoader = () -> {
+            refreshes.incrementAndGet();
+            return refreshed.asMono().flux();
+        };
+        assertEquals(List.of("v1"), results(cache.getOrLoad("k", false, slowLoader)));
+        assertEquals(List.of("v1"), results(cache.getOrLoad("k", false, slowLoader)));
+        assertEquals(1, refreshes.get());
+        assertEquals(2, cache.getStaleHitCount());
+
+        refreshed.tryEmitValue(response("v2"));
+        assertEquals(List.of("v2"), results(cache.getOrLoad("k", false, slowLoader)));
+        assertEquals(1, refreshes.get());
+    }
+
+    @Test
+    void tinyLfuRejectsOneHitWonderAndAdmitsFrequentKey() {
+        long entryBytes = CachedResponses.sizeOf(List.of(new Gson().toJson(response("hot1"))));
+        cache.setMaxBytes(2 * entryBytes);
+        for (int i = 0; i < 4; i++) {
+            get("hot1");
+            get("hot2");
+        }
+        assertEquals(2, cache.size());
+
+        // 只访问一次的key频率低于将被淘汰的条目，不写入
+        get("cold");
+        assertEquals(1, cache.getRejectCount());
+        get("hot1");
+        get("hot2");
+        assertEquals(1, loads.get("hot1").get());
+        assertEquals(1, loads.get("hot2").get());
+
+        // 访问频率超过被淘汰的条目后写入
+        for (int i = 0; i < 10 && cache.getEvictionCount() == 0; i++) {
+            get("warm");
+        }
+        assertEquals(1, cache.getEvictionCount());
+        int warmLoads = loads.get("warm").get();
+        get("warm");
+        assertEquals(warmLoads, loads.get("warm").get());
+    }
+
+    private void get(String key) {
+        results(cache.getOrLoad(key, false, () -> {
+            loads.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            return Flux.just(response(key));
+        }));
+    }
+
+    private static List<String> results(Flux<ChatResponse> flux) {
+        return flux.map(response -> String.valueOf(response.getResult())).collectList().block();
+    }
+
+    private static ChatResponse response(String result) {
+        ChatResponse response = new ChatResponse();
+        response.setResult(result);
+        return response;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.gearwenxin.cache;
+
+import com.gearwenxin.common.ErrorCode;
+import com.gearwenxin.entity.chatmodel.ChatBaseRequest;
+import com.gearwenxin.entity.response.ChatResponse;
+import com.gearwenxin.exception.WenXinException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SemanticCacheTest {
+
+    private final SemanticCache semanticCache = SemanticCache.getInstance();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        semanticCache.setEmbeddingFunction(null);
+    }
+
+    @Test
+    void failsWithoutEmbeddingFunction() {
+        semanticCache.setEmbeddingFunction(null);
+
+        WenXinException e = assertThrows(WenXinException.class,
+                () -> semanticCache.getOrLoad("model", request("u1", "你好"), false, this::load).blockLast());
+        assertEquals(ErrorCode.EMBEDDING_FUNCTION_MISSING.getCode(), e.getCode());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void similarContentHitsWithinPartition() {
+        semanticCache.setEmbeddingFunction(new HashingEmbeddingFunction());
+
+        assertEquals("answer-1", result(request("u1", "今天北京的天气怎么样")));
+        assertEquals("answer-1", result(request("u1", "今天北京的天气怎么样？")));
+        assertEquals(1, loads.get());
+
+        // 其他用户属于不同分区
+        assertEquals("answer-2", result(request("u2", "今天北京的天气怎么样")));
+        // 不相似的输入
+        assertEquals("answer-3", result(request("u1", "写一首关于秋天的诗")));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void reportFalseHitRemovesEntry() {
+        semanticCache.setEmbeddingFunction(new HashingEmbeddingFunction());
+        result(request("u1", "介绍一下文心一言"));
+
+        assertEquals(Boolean.TRUE, semanticCache.reportFalseHit("model", request("u1", "介绍一下文心一言")).block());
+        assertEquals("answer-2", result(request("u1", "介绍一下文心一言")));
+    }
+
+    private String result(ChatBaseRequest request) {
+        List<ChatResponse> responses = semanticCache.getOrLoad("model", request, false, this::load).collectList().block();
+        assertNotNull(responses);
+        assertEquals(1, responses.size());
+        return responses.get(0).getResult();
+    }
+
+    private Flux<ChatResponse> load() {
+        ChatResponse response = new ChatResponse();
+        response.setResult("answer-" + loads.incrementAndGet());
+        return Flux.just(response);
+    }
+
+    private static ChatBaseRequest request(String userId, String content) {
+        return ChatBaseRequest.builder().userId(userId).content(content).build();
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.gearwenxin.client;
+
+import com.gearwenxin.config.ModelConfig;
+import com.gearwenxin.config.WenXinProperties;
+import com.gearwenxin.core.WebClientManager;
+import com.gearwenxin.entity.enums.RejectPolicy;
+import com.gearwenxin.entity.response.ChatResponse;
+import com.gearwenxin.schedule.BulkheadRegistry;
+import com.gearwenxin.schedule.TaskConsumerLoop;
+import com.gearwenxin.schedule.entity.BulkheadOptions;
+import com.gearwenxin.schedule.entity.ModelHeader;
+import com.gearwenxin.service.ChatService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * chatBlocking 同步调用基准：10000个并发调用方分别运行在平台线程和虚拟线程上，上游为本地200ms延迟的桩服务。
+ * <p>
+ * 默认跳过，运行方式（虚拟线程部分需要Java 21+）：
+ * <pre>
+ * mvn test -Dtest=ChatBlockingBenchmarkTest -Dwenxin.benchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "wenxin.benchmark", matches = "true")
+class ChatBlockingBenchmarkTest {
+
+    private static final String MODEL_NAME = "benchmark";
+    private static final int CALLERS = Integer.getInteger("wenxin.benchmark.callers", 10_000);
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(200);
+    private static final int ROUNDS = 3;
+
+    private static DisposableServer server;
+    private static ChatClient chatClient;
+
+    @BeforeAll
+    static void setUp() {
+        server = HttpServer.create().port(0)
+                .handle((request, response) -> request.receive().then(Mono.delay(UPSTREAM_LATENCY))
+                        .then(response.header("content-type", "application/json")
+                                .sendString(Mono.just("{\"result\":\"ok\"}")).then()))
+                .bindNow();
+        // 上游连接与舱壁不成为瓶颈，只比较调用方线程的开销
+        WebClientManager.Options options = new WebClientManager.Options();
+        options.setMaxConnections(CALLERS);
+        options.setPendingAcquireMaxCount(-1);
+        WebClientManager.getInstance().setOptions(options);
+        BulkheadRegistry.getInstance().putOptions(MODEL_NAME, new BulkheadOptions(8, 64, CALLERS, RejectPolicy.ABORT));
+
+        WenXinProperties properties = new WenXinProperties();
+        properties.setAccessToken("benchmark");
+        ChatService chatService = new ChatService();
+        ReflectionTestUtils.setField(chatService, "wenXinProperties", properties);
+        TaskConsumerLoop taskConsumerLoop = new TaskConsumerLoop();
+        ReflectionTestUtils.setField(taskConsumerLoop, "chatService", chatService);
+        taskConsumerLoop.start();
+
+        ModelConfig modelConfig = new ModelConfig();
+        modelConfig.setModelName(MODEL_NAME);
+        modelConfig.setModelUrl("http://127.0.0.1:" + server.port() + "/chat");
+        modelConfig.setModelHeader(new ModelHeader());
+        chatClient = new ChatClient(modelConfig);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    void platformThreadCallers() throws Exception {
+        run("platform", () -> Executors.newFixedThreadPool(CALLERS));
+    }
+
+    @Test
+    void virtualThreadCallers() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads require Java 21+");
+        // 以Java 17编译，通过反射创建
+        run("virtual", () -> {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void run(String mode, Supplier<ExecutorService> executorFactory) throws Exception {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        for (int round = 0; round < ROUNDS; round++) {
+            System.gc();
+            threadBean.resetPeakThreadCount();
+            long[] latencies = new long[CALLERS];
+            Future<?>[] futures = new Future<?>[CALLERS];
+            long start = System.nanoTime();
+            ExecutorService executor = executorFactory.get();
+            for (int i = 0; i < CALLERS; i++) {
+                int index = i;
+                futures[i] = executor.submit(() -> {
+                    long begin = System.nanoTime();
+                    ChatResponse response = chatClient.chatBlocking("hello " + index);
+                    latencies[index] = System.nanoTime() - begin;
+                    assertEquals("ok", response.getResult());
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            int peakThreads = threadBean.getPeakThreadCount();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+            Arrays.sort(latencies);
+            System.out.printf("[benchmark] %s callers=%d round=%d wall=%dms p50=%.1fms p99=%.1fms peakPlatformThreads=%d%n",
+                    mode, CALLERS, round, wallMillis, latencies[CALLERS / 2] / 1e6, latencies[CALLERS * 99 / 100] / 1e6,
+                    peakThreads);
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.gearwenxin.client;
+
+import com.gearwenxin.config.ModelConfig;
+import com.gearwenxin.entity.request.EmbeddingRequest;
+import com.gearwenxin.entity.response.EmbeddingData;
+import com.gearwenxin.entity.response.EmbeddingResponse;
+import com.gearwenxin.exception.WenXinException;
+import com.gearwenxin.schedule.TaskQueueManager;
+import com.gearwenxin.schedule.entity.ChatTask;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 不启动派发线程，由测试从任务队列取出合并后的请求并返回响应
+ */
+class EmbeddingClientTest {
+
+    private final TaskQueueManager taskManager = TaskQueueManager.getInstance();
+    private final String modelName = "embedding-test-" + UUID.randomUUID();
+
+    @Test
+    void batchedVectorsAreMappedBackByIndex() throws Exception {
+        EmbeddingClient client = client(4, 50);
+        Map<String, float[]> vectors = new ConcurrentHashMap<>();
+        Map<String, Throwable> errors = new ConcurrentHashMap<>();
+        for (int i = 0; i < 6; i++) {
+            String text = "t" + i;
+            client.embed(text).subscribe(vector -> vectors.put(text, vector), e -> errors.put(text, e));
+        }
+
+        // 攒满4条立即发送
+        ChatTask first = takeTask();
+        assertEquals(List.of("t0", "t1", "t2", "t3"), inputOf(first));
+        // 响应中的顺序与请求不同，按index分发
+        respond(first, List.of(3, 1, 0, 2));
+
+        // 剩余2条等待超时后发送，响应缺少index 1
+        ChatTask second = takeTask();
+        assertEquals(List.of("t4", "t5"), inputOf(second));
+        respond(second, List.of(0));
+
+        awaitSize(vectors, 5);
+        awaitSize(errors, 1);
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(vectorOf("t" + i), vectors.get("t" + i), "vector of t" + i);
+        }
+        assertInstanceOf(WenXinException.class, errors.get("t5"));
+        assertEquals(2, client.getBatchCount());
+        assertEquals(3.0, client.getAverageBatchSize());
+    }
+
+    @Test
+    void cancelledCallsAreNotSent() throws Exception {
+        EmbeddingClient client = client(16, 50);
+        Disposable cancelled = client.embed("cancelled").subscribe();
+        cancelled.dispose();
+        Map<String, float[]> vectors = new ConcurrentHashMap<>();
+        client.embed("kept").subscribe(vector -> vectors.put("kept", vector));
+
+        ChatTask task = takeTask();
+        assertEquals(List.of("kept"), inputOf(task));
+        respond(task, List.of(0));
+        awaitSize(vectors, 1);
+    }
+
+    @Test
+    void blankTextIsRejected() {
+        EmbeddingClient client = client(16, 50);
+        assertThrows(WenXinException.class, () -> client.embed(" ").block());
+    }
+
+    private EmbeddingClient client(int maxBatchSize, long maxWaitMillis) {
+        ModelConfig modelConfig = new ModelConfig();
+        modelConfig.setModelName(modelName);
+        modelConfig.setEmbeddingMaxBatchSize(maxBatchSize);
+        modelConfig.setEmbeddingMaxWaitMillis(maxWaitMillis);
+        return new EmbeddingClient(modelConfig);
+    }
+
+    private ChatTask takeTask() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            ChatTask task = taskManager.getTask(modelName);
+            if (task != null) {
+                return task;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("no batch was submitted");
+    }
+
+    private static List<String> inputOf(ChatTask task) {
+        return ((EmbeddingRequest) task.getTaskRequest()).getInput();
+    }
+
+    /**
+     * 按给定顺序返回各index的向量
+     */
+    private void respond(ChatTask task, List<Integer> indexes) {
+        List<String> input = inputOf(task);
+        List<EmbeddingData> data = new ArrayList<>();
+        for (int index : indexes) {
+            EmbeddingData item = new EmbeddingData();
+            item.setIndex(index);
+            item.setEmbedding(vectorOf(input.get(index)));
+            data.add(item);
+        }
+        EmbeddingResponse response = new EmbeddingResponse();
+        response.setData(Collections.unmodifiableList(data));
+        taskManager.getEmbeddingFuture(task.getTaskId()).complete(Mono.just(response));
+    }
+
+    private static float[] vectorOf(String text) {
+        return new float[]{text.hashCode(), text.length()};
+    }
+
+    private static void awaitSize(Map<?, ?> map, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (map.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(size, map.size());
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.gearwenxin.core;
+
+import com.gearwenxin.entity.response.ChatResponse;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    private final RequestCoalescer coalescer = RequestCoalescer.getInstance();
+    // 单例在测试间共享，每个测试使用独立的key
+    private final String key = "coalesce-test-" + UUID.randomUUID();
+    private final Sinks.Many<ChatResponse> upstream = Sinks.many().multicast().onBackpressureBuffer();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final AtomicBoolean upstreamCancelled = new AtomicBoolean();
+
+    @Test
+    void concurrentSubscribersShareOneUpstream() {
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+        subscribe(first);
+        subscribe(second);
+
+        emit("a");
+        emit("b");
+        upstream.tryEmitComplete();
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(List.of("a", "b"), first);
+        assertEquals(List.of("a", "b"), second);
+        assertFalse(inFlight());
+
+        // 结束后的请求重新提交
+        coalescer.coalesce(key, () -> Flux.just(response("c"))).blockLast();
+        assertFalse(inFlight());
+    }
+
+    @Test
+    void lateSubscriberReplaysEmittedChunks() {
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> late = new CopyOnWriteArrayList<>();
+        subscribe(first);
+        emit("a");
+        subscribe(late);
+        emit("b");
+        upstream.tryEmitComplete();
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(List.of("a", "b"), late);
+    }
+
+    @Test
+    void cancelledSubscriberDoesNotCancelOthers() {
+        List<String> cancelled = new CopyOnWriteArrayList<>();
+        List<String> remaining = new CopyOnWriteArrayList<>();
+        Disposable first = subscribe(cancelled);
+        Disposable second = subscribe(remaining);
+
+        first.dispose();
+        emit("a");
+        assertFalse(upstreamCancelled.get());
+        assertEquals(List.of("a"), remaining);
+        assertTrue(cancelled.isEmpty());
+
+        // 所有订阅者都取消后取消上游
+        second.dispose();
+        assertTrue(upstreamCancelled.get());
+        assertFalse(inFlight());
+    }
+
+    @Test
+    void errorReachesAllSubscribers() {
+        AtomicReference<Throwable> firstError = new AtomicReference<>();
+        AtomicReference<Throwable> secondError = new AtomicReference<>();
+        coalescer.coalesce(key, this::upstream).subscribe(r -> {
+        }, firstError::set);
+        coalescer.coalesce(key, this::upstream).subscribe(r -> {
+        }, secondError::set);
+
+        IllegalStateException error = new IllegalStateException("boom");
+        upstream.tryEmitError(error);
+        assertSame(error, firstError.get());
+        assertSame(error, secondError.get());
+        assertFalse(inFlight());
+    }
+
+    private Disposable subscribe(List<String> results) {
+        return coalescer.coalesce(key, this::upstream).subscribe(response -> results.add(response.getResult()));
+    }
+
+    private Flux<ChatResponse> upstream() {
+        upstreamCalls.incrementAndGet();
+        return upstream.asFlux().doOnCancel(() -> upstreamCancelled.set(true));
+    }
+
+    private void emit(String result) {
+        upstream.tryEmitNext(response(result));
+    }
+
+    private boolean inFlight() {
+        return coalescer.getInFlightCount() > 0;
+    }
+
+    private static ChatResponse response(String result) {
+        ChatResponse response = new ChatResponse();
+        response.setResult(result);
+        return response;
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.gearwenxin.schedule;
+
+import com.gearwenxin.entity.enums.RejectPolicy;
+import com.gearwenxin.schedule.entity.BulkheadOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+    private Bulkhead bulkhead;
+
+    @AfterEach
+    void tearDown() {
+        if (bulkhead != null) {
+            bulkhead.shutdown();
+        }
+    }
+
+    @Test
+    void executeAbortsWhenFull() throws Exception {
+        bulkhead = new Bulkhead("abort", new BulkheadOptions(1, 1, 1, RejectPolicy.ABORT));
+        CountDownLatch blocker = new CountDownLatch(1);
+        bulkhead.execute(() -> await(blocker));
+        bulkhead.execute(() -> {
+        });
+
+        assertThrows(RejectedExecutionException.class, () -> bulkhead.execute(() -> {
+        }));
+        assertEquals(1, bulkhead.getRejectedCount());
+        blocker.countDown();
+    }
+
+    @Test
+    void callerRunsExecutesOnSubmitter() {
+        bulkhead = new Bulkhead("caller-runs", new BulkheadOptions(1, 1, 1, RejectPolicy.CALLER_RUNS));
+        CountDownLatch blocker = new CountDownLatch(1);
+        bulkhead.execute(() -> await(blocker));
+        bulkhead.execute(() -> {
+        });
+
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        bulkhead.execute(() -> runner.set(Thread.currentThread()));
+        assertSame(Thread.currentThread(), runner.get());
+        assertEquals(1, bulkhead.getCallerRunsCount());
+        assertEquals(0, bulkhead.getRejectedCount());
+        blocker.countDown();
+    }
+
+    /**
+     * 已开始的响应不会因舱壁满而中断，ABORT策略下同样如此
+     */
+    @Test
+    void deliveryNeverRejectsStartedStreams() {
+        bulkhead = new Bulkhead("deliver", new BulkheadOptions(1, 1, 1, RejectPolicy.ABORT));
+        int streams = 16;
+        int signals = 200;
+        List<List<Integer>> results = Flux.range(0, streams)
+                .flatMap(i -> Flux.range(0, signals)
+                        .subscribeOn(Schedulers.parallel())
+                        .publishOn(bulkhead.getScheduler())
+                        .doOnNext(n -> sleepMicros(50))
+                        .collectList(), streams)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertNotNull(results);
+        assertEquals(streams, results.size());
+        List<Integer> expected = IntStream.range(0, signals).boxed().toList();
+        results.forEach(result -> assertEquals(expected, result));
+        assertEquals(0, bulkhead.getRejectedCount());
+        assertTrue(bulkhead.getInlineDeliveryCount() > 0, "the single-thread bulkhead should have overflowed");
+    }
+
+    @Test
+    void deliveryRunsInlineAfterShutdown() {
+        bulkhead = new Bulkhead("shutdown", new BulkheadOptions());
+        bulkhead.shutdown();
+
+        assertEquals(List.of(1, 2, 3), Flux.just(1, 2, 3).publishOn(bulkhead.getScheduler()).collectList().block());
+    }
+
+    @Test
+    void retiredBulkheadShutsDownAfterLastRelease() {
+        bulkhead = new Bulkhead("retire", new BulkheadOptions());
+        assertTrue(bulkhead.acquire());
+        bulkhead.retire();
+        assertFalse(bulkhead.isShutdown());
+
+        bulkhead.release();
+        assertTrue(bulkhead.isShutdown());
+        assertFalse(bulkhead.acquire());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepMicros(long micros) {
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(micros);
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+}
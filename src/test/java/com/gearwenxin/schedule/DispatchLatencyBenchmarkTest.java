@@ -0,0 +1,151 @@
+package com.gearwenxin.schedule;
+
+import com.gearwenxin.client.ChatClient;
+import com.gearwenxin.config.ModelConfig;
+import com.gearwenxin.config.WenXinProperties;
+import com.gearwenxin.schedule.entity.ModelHeader;
+import com.gearwenxin.schedule.entity.ModelMetrics;
+import com.gearwenxin.service.ChatService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 入队到派发的时延基准，模型并发上限为1，上游为本地桩服务
+ * <ul>
+ *     <li>空闲间隔：每次空闲200~1700ms后提交一个任务，统计入队到派发的耗时（ModelMetrics）</li>
+ *     <li>饱和：同时提交30个任务，上游耗时20ms，统计桩服务上一个请求处理完到下一个请求到达的间隔，
+ *     其中包含响应回传、客户端处理与下一个请求的发送，不只是派发本身</li>
+ * </ul>
+ * 开始前先串行发送300个请求预热。默认跳过，运行方式：
+ * <pre>
+ * mvn test -Dtest=DispatchLatencyBenchmarkTest -Dwenxin.benchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "wenxin.benchmark", matches = "true")
+class DispatchLatencyBenchmarkTest {
+
+    private static final String MODEL_NAME = "dispatch-latency";
+    private static final int IDLE_TASKS = 15;
+    private static final int SATURATED_TASKS = 30;
+    private static final int WARMUP_TASKS = 300;
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(20);
+
+    // 桩服务记录的请求到达与响应时间 (System.nanoTime)
+    private static final List<long[]> upstreamCalls = Collections.synchronizedList(new ArrayList<>());
+
+    private static DisposableServer server;
+    private static TaskConsumerLoop taskConsumerLoop;
+    private static ChatClient chatClient;
+
+    @BeforeAll
+    static void setUp() {
+        server = HttpServer.create().port(0)
+                .handle((request, response) -> {
+                    long arrival = System.nanoTime();
+                    return request.receive().then(Mono.delay(UPSTREAM_LATENCY))
+                            .then(Mono.fromRunnable(() -> upstreamCalls.add(new long[]{arrival, System.nanoTime()})))
+                            .then(response.header("content-type", "application/json")
+                                    .sendString(Mono.just("{\"result\":\"ok\"}")).then());
+                })
+                .bindNow();
+
+        WenXinProperties properties = new WenXinProperties();
+        properties.setAccessToken("benchmark");
+        ChatService chatService = new ChatService();
+        ReflectionTestUtils.setField(chatService, "wenXinProperties", properties);
+        taskConsumerLoop = new TaskConsumerLoop();
+        ReflectionTestUtils.setField(taskConsumerLoop, "chatService", chatService);
+        taskConsumerLoop.start();
+        taskConsumerLoop.updateModelConcurrency(MODEL_NAME, 1);
+
+        ModelConfig modelConfig = new ModelConfig();
+        modelConfig.setModelName(MODEL_NAME);
+        modelConfig.setModelUrl("http://127.0.0.1:" + server.port() + "/chat");
+        modelConfig.setModelHeader(new ModelHeader());
+        chatClient = new ChatClient(modelConfig);
+
+        // 预热JIT与连接池，不计入结果
+        Flux.range(0, WARMUP_TASKS).concatMap(i -> chatClient.chat("warmup " + i)).blockLast(Duration.ofMinutes(1));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    @BeforeEach
+    void clearUpstreamCalls() {
+        upstreamCalls.clear();
+    }
+
+    @Test
+    void idleGap() throws Exception {
+        ModelMetrics metrics = TaskQueueManager.getInstance().getModelMetrics(MODEL_NAME);
+        Random random = new Random(1);
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < IDLE_TASKS; i++) {
+            Thread.sleep(200 + random.nextInt(1500));
+            long before = totalLatencyMicros(metrics);
+            assertEquals("ok", chatClient.chat("idle " + i).block(Duration.ofSeconds(10)).getResult());
+            latencies.add(totalLatencyMicros(metrics) - before);
+        }
+        print("idle gap", latencies);
+    }
+
+    @Test
+    void saturated() {
+        long start = System.nanoTime();
+        List<String> results = Flux.range(0, SATURATED_TASKS)
+                .flatMap(i -> chatClient.chat("saturated " + i), SATURATED_TASKS)
+                .map(response -> response.getResult())
+                .collectList()
+                .block(Duration.ofMinutes(1));
+        long drainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertNotNull(results);
+        assertEquals(SATURATED_TASKS, results.size());
+
+        List<long[]> calls = new ArrayList<>(upstreamCalls);
+        calls.sort((a, b) -> Long.compare(a[0], b[0]));
+        List<Long> gaps = new ArrayList<>();
+        for (int i = 1; i < calls.size(); i++) {
+            // 并发上限为1，上一个请求结束后才会派发下一个
+            assertTrue(calls.get(i)[0] >= calls.get(i - 1)[1] - TimeUnit.MILLISECONDS.toNanos(1));
+            gaps.add(TimeUnit.NANOSECONDS.toMicros(calls.get(i)[0] - calls.get(i - 1)[1]));
+        }
+        print("saturated", gaps);
+        System.out.printf("[benchmark] saturated %d tasks drained in %dms (upstream alone %dms)%n",
+                SATURATED_TASKS, drainMillis, SATURATED_TASKS * UPSTREAM_LATENCY.toMillis());
+    }
+
+    private static long totalLatencyMicros(ModelMetrics metrics) {
+        return Math.round(metrics.getDispatchLatencyAvgMicros() * metrics.getDispatchCount());
+    }
+
+    private static void print(String scenario, List<Long> micros) {
+        List<Long> sorted = new ArrayList<>(micros);
+        Collections.sort(sorted);
+        System.out.printf("[benchmark] %s n=%d avg=%.0fus p50=%dus max=%dus all=%s%n", scenario, sorted.size(),
+                sorted.stream().mapToLong(Long::longValue).average().orElse(0), sorted.get(sorted.size() / 2),
+                sorted.get(sorted.size() - 1), micros);
+    }
+
+}
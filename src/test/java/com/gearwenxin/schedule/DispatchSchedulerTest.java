@@ -0,0 +1,59 @@
+package com.gearwenxin.schedule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatchSchedulerTest {
+
+    /**
+     * 模型都在等待较远的到期时间（如配额恢复）时，派发线程的唤醒次数不随模型数量增加
+     */
+    @Test
+    void idleWakeupsStayFlatAsModelsAreAdded() throws Exception {
+        for (int models : new int[]{16, 256, 2048}) {
+            // 到期时间在30~31秒之间分散，落在不同槽位
+            DispatchScheduler scheduler = new DispatchScheduler(1, modelName -> TimeUnit.SECONDS.toNanos(30) +
+                    TimeUnit.MILLISECONDS.toNanos(Math.floorMod(modelName.hashCode(), 1000)));
+            scheduler.start();
+            for (int i = 0; i < models; i++) {
+                scheduler.signal("model-" + i);
+            }
+            Thread.sleep(200);
+
+            long before = scheduler.getWakeupCount();
+            Thread.sleep(1000);
+            long wakeupsPerSecond = scheduler.getWakeupCount() - before;
+            assertTrue(wakeupsPerSecond <= 2, models + " models woke " + wakeupsPerSecond + " times per second");
+        }
+    }
+
+    /**
+     * 等待超过时间轮一圈（512ms）的模型在到期后重新派发
+     */
+    @Test
+    void timedWaitRedispatchesAfterDelay() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch redispatched = new CountDownLatch(1);
+        DispatchScheduler scheduler = new DispatchScheduler(1, modelName -> {
+            if (calls.incrementAndGet() == 1) {
+                return TimeUnit.MILLISECONDS.toNanos(600);
+            }
+            redispatched.countDown();
+            return -1;
+        });
+        scheduler.start();
+        long start = System.nanoTime();
+        scheduler.signal("model");
+
+        assertTrue(redispatched.await(5, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= 599, "redispatched after " + elapsedMillis + "ms");
+        assertEquals(2, calls.get());
+    }
+
+}
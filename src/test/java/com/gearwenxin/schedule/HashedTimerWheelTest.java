@@ -0,0 +1,73 @@
+package com.gearwenxin.schedule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimerWheelTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void nextTimeoutUsesRealDeadlineBeyondOneRotation() {
+        HashedTimerWheel<String> wheel = new HashedTimerWheel<>(1, TimeUnit.MILLISECONDS, 16);
+        long base = System.nanoTime();
+        wheel.schedule("far", base + 1000 * MILLIS);
+
+        long wait = wheel.nanosToNextTimeout(base);
+        assertTrue(wait > 990 * MILLIS && wait <= 1002 * MILLIS, "wait: " + wait);
+
+        // 经过多圈也不会提前到期
+        List<String> fired = new ArrayList<>();
+        wheel.advance(base + 500 * MILLIS, (item, deadline) -> fired.add(item));
+        assertTrue(fired.isEmpty());
+        assertEquals(1, wheel.size());
+        wait = wheel.nanosToNextTimeout(base + 500 * MILLIS);
+        assertTrue(wait > 490 * MILLIS && wait <= 502 * MILLIS, "wait: " + wait);
+
+        wheel.advance(base + 1002 * MILLIS, (item, deadline) -> fired.add(item));
+        assertEquals(List.of("far"), fired);
+        assertTrue(wheel.isEmpty());
+        assertEquals(Long.MAX_VALUE, wheel.nanosToNextTimeout(base));
+    }
+
+    @Test
+    void sameSlotDifferentRoundsFireInOrder() {
+        HashedTimerWheel<String> wheel = new HashedTimerWheel<>(1, TimeUnit.MILLISECONDS, 16);
+        long base = System.nanoTime();
+        // 相差一圈，落在同一槽位
+        wheel.schedule("second", base + 37 * MILLIS);
+        wheel.schedule("first", base + 21 * MILLIS);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(base + 30 * MILLIS, (item, deadline) -> fired.add(item));
+        assertEquals(List.of("first"), fired);
+        long wait = wheel.nanosToNextTimeout(base + 30 * MILLIS);
+        assertTrue(wait > 5 * MILLIS && wait <= 9 * MILLIS, "wait: " + wait);
+
+        wheel.advance(base + 40 * MILLIS, (item, deadline) -> fired.add(item));
+        assertEquals(List.of("first", "second"), fired);
+    }
+
+    @Test
+    void timeoutAddedFromCallbackFires() {
+        HashedTimerWheel<String> wheel = new HashedTimerWheel<>(1, TimeUnit.MILLISECONDS, 16);
+        long base = System.nanoTime();
+        wheel.schedule("a", base + 5 * MILLIS);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(base + 50 * MILLIS, (item, deadline) -> {
+            fired.add(item);
+            if (item.equals("a")) {
+                wheel.schedule("b", deadline + 10 * MILLIS);
+            }
+        });
+        assertEquals(List.of("a", "b"), fired);
+        assertTrue(wheel.isEmpty());
+    }
+
+}
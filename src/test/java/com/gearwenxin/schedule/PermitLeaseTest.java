@@ -0,0 +1,111 @@
+package com.gearwenxin.schedule;
+
+import com.gearwenxin.config.ModelConfig;
+import com.gearwenxin.entity.enums.ModelType;
+import com.gearwenxin.schedule.entity.ChatTask;
+import com.gearwenxin.schedule.entity.ModelMetrics;
+import com.gearwenxin.schedule.entity.PermitLease;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PermitLeaseTest {
+
+    private final TaskQueueManager taskManager = TaskQueueManager.getInstance();
+    // 单例在测试间共享，每个测试使用独立的模型
+    private final String modelName = "lease-test-" + UUID.randomUUID();
+
+    @AfterEach
+    void tearDown() {
+        taskManager.setLeaseLeakThresholdMillis(TaskQueueManager.DEFAULT_LEASE_LEAK_THRESHOLD_MILLIS);
+        taskManager.setLeaseTimeoutMillis(TaskQueueManager.DEFAULT_LEASE_TIMEOUT_MILLIS);
+    }
+
+    @Test
+    void doubleReleaseLeavesConcurrencyUnchanged() {
+        PermitLease first = taskManager.acquireLease(task());
+        PermitLease second = taskManager.acquireLease(task());
+        taskManager.activateLease(first);
+        taskManager.activateLease(second);
+        assertEquals(2, taskManager.getModelCurrentQPS(modelName));
+
+        taskManager.releaseLease(first);
+        taskManager.releaseLease(first);
+        assertEquals(1, taskManager.getModelCurrentQPS(modelName));
+        assertEquals(1, taskManager.getModelOccupiedQPS(modelName));
+
+        taskManager.releaseLease(second);
+        assertEquals(0, taskManager.getModelCurrentQPS(modelName));
+        assertEquals(0, taskManager.getModelOccupiedQPS(modelName));
+    }
+
+    /**
+     * 未被订阅即释放（调用方取消）：归还预留，之后的订阅不再计入在途
+     */
+    @Test
+    void releaseBeforeActivateReturnsReservation() {
+        PermitLease lease = taskManager.acquireLease(task());
+        assertEquals(0, taskManager.getModelCurrentQPS(modelName));
+        assertEquals(1, taskManager.getModelOccupiedQPS(modelName));
+
+        taskManager.releaseLease(lease);
+        taskManager.activateLease(lease);
+        taskManager.releaseLease(lease);
+        assertEquals(0, taskManager.getModelCurrentQPS(modelName));
+        assertEquals(0, taskManager.getModelOccupiedQPS(modelName));
+    }
+
+    @Test
+    void timedOutLeaseIsForceReleasedOnce() throws InterruptedException {
+        PermitLease lease = taskManager.acquireLease(task());
+        taskManager.activateLease(lease);
+        taskManager.setLeaseTimeoutMillis(50);
+        Thread.sleep(60);
+
+        taskManager.checkLeases();
+        assertTrue(lease.isReleased());
+        assertEquals(0, taskManager.getModelCurrentQPS(modelName));
+        ModelMetrics metrics = taskManager.getModelMetrics(modelName);
+        assertEquals(1, metrics.getLeaseTimeoutCount());
+
+        // 请求最终结束时的释放不再影响计数
+        taskManager.releaseLease(lease);
+        taskManager.checkLeases();
+        assertEquals(0, taskManager.getModelCurrentQPS(modelName));
+        assertEquals(0, taskManager.getModelOccupiedQPS(modelName));
+        assertEquals(1, metrics.getLeaseTimeoutCount());
+    }
+
+    @Test
+    void leakIsReportedOnceWithoutRelease() throws InterruptedException {
+        PermitLease lease = taskManager.acquireLease(task());
+        taskManager.activateLease(lease);
+        taskManager.setLeaseLeakThresholdMillis(10);
+        taskManager.setLeaseTimeoutMillis(0);
+        Thread.sleep(20);
+
+        taskManager.checkLeases();
+        taskManager.checkLeases();
+        assertFalse(lease.isReleased());
+        assertEquals(1, taskManager.getModelCurrentQPS(modelName));
+        assertEquals(1, taskManager.getModelMetrics(modelName).getLeaseLeakCount());
+
+        taskManager.releaseLease(lease);
+        assertEquals(0, taskManager.getModelCurrentQPS(modelName));
+    }
+
+    private ChatTask task() {
+        ModelConfig modelConfig = new ModelConfig();
+        modelConfig.setModelName(modelName);
+        ChatTask task = ChatTask.builder()
+                .modelConfig(modelConfig)
+                .taskType(ModelType.chat)
+                .build();
+        task.setTaskId(UUID.randomUUID().toString());
+        return task;
+    }
+
+}
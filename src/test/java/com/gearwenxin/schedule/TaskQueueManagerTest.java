@@ -0,0 +1,125 @@
+package com.gearwenxin.schedule;
+
+import com.gearwenxin.common.ErrorCode;
+import com.gearwenxin.config.ModelConfig;
+import com.gearwenxin.entity.enums.ModelType;
+import com.gearwenxin.entity.enums.OverflowPolicy;
+import com.gearwenxin.exception.WenXinException;
+import com.gearwenxin.schedule.entity.ChatTask;
+import com.gearwenxin.schedule.entity.QueueOptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskQueueManagerTest {
+
+    private final TaskQueueManager taskManager = TaskQueueManager.getInstance();
+    // 单例在测试间共享，每个测试使用独立的模型
+    private final String modelName = "queue-test-" + UUID.randomUUID();
+
+    @Test
+    void rejectWhenFull() {
+        taskManager.putQueueOptions(modelName, new QueueOptions(2, OverflowPolicy.REJECT, 0));
+        addTask(1f);
+        addTask(1f);
+
+        WenXinException e = assertThrows(WenXinException.class, () -> addTask(1f));
+        assertEquals(ErrorCode.TASK_QUEUE_FULL.getCode(), e.getCode());
+        assertEquals(2, taskManager.getQueueDepth(modelName));
+    }
+
+    @Test
+    void dropOldestFailsOldestTask() {
+        taskManager.putQueueOptions(modelName, new QueueOptions(2, OverflowPolicy.DROP_OLDEST, 0));
+        ChatTask first = addTask(1f);
+        ChatTask second = addTask(1f);
+        ChatTask third = addTask(1f);
+
+        assertDropped(first);
+        assertEquals(2, taskManager.getQueueDepth(modelName));
+        assertEquals(second.getTaskId(), taskManager.getTask(modelName).getTaskId());
+        assertEquals(third.getTaskId(), taskManager.getTask(modelName).getTaskId());
+        assertEquals(0, taskManager.getQueueDepth(modelName));
+    }
+
+    @Test
+    void dropLowestWeightKeepsHigherWeights() {
+        taskManager.putQueueOptions(modelName, new QueueOptions(2, OverflowPolicy.DROP_LOWEST_WEIGHT, 0));
+        ChatTask low = addTask(1f);
+        ChatTask high = addTask(3f);
+        ChatTask middle = addTask(2f);
+        assertDropped(low);
+
+        // 新任务权重低于队列中所有任务时拒绝新任务
+        assertThrows(WenXinException.class, () -> addTask(0.5f));
+        assertEquals(high.getTaskId(), taskManager.getTask(modelName).getTaskId());
+        assertEquals(middle.getTaskId(), taskManager.getTask(modelName).getTaskId());
+    }
+
+    @Test
+    void blockWaitsForFreeSlotOrTimesOut() throws Exception {
+        taskManager.putQueueOptions(modelName, new QueueOptions(1, OverflowPolicy.BLOCK, 100));
+        addTask(1f);
+
+        long start = System.nanoTime();
+        assertThrows(WenXinException.class, () -> addTask(1f));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+
+        taskManager.putQueueOptions(modelName, new QueueOptions(1, OverflowPolicy.BLOCK, 5000));
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            taskManager.getTask(modelName);
+        });
+        consumer.start();
+        ChatTask blocked = addTask(1f);
+        consumer.join();
+        assertEquals(1, taskManager.getQueueDepth(modelName));
+        assertEquals(blocked.getTaskId(), taskManager.getTask(modelName).getTaskId());
+    }
+
+    @Test
+    void highWatermarkHasHysteresis() {
+        taskManager.putQueueOptions(modelName, new QueueOptions(10, OverflowPolicy.REJECT, 0));
+        for (int i = 0; i < 7; i++) {
+            addTask(1f);
+        }
+        assertFalse(taskManager.isOverHighWatermark(modelName));
+        addTask(1f);
+        assertTrue(taskManager.isOverHighWatermark(modelName));
+
+        // 高于低水位（5）时保持高水位状态
+        taskManager.getTask(modelName);
+        taskManager.getTask(modelName);
+        assertTrue(taskManager.isOverHighWatermark(modelName));
+        taskManager.getTask(modelName);
+        assertFalse(taskManager.isOverHighWatermark(modelName));
+    }
+
+    private ChatTask addTask(float weight) {
+        ModelConfig modelConfig = new ModelConfig();
+        modelConfig.setModelName(modelName);
+        ChatTask task = ChatTask.builder()
+                .modelConfig(modelConfig)
+                .taskType(ModelType.chat)
+                .taskWeight(weight)
+                .build();
+        taskManager.addTask(task);
+        return task;
+    }
+
+    private void assertDropped(ChatTask task) {
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> taskManager.getChatFuture(task.getTaskId()).join());
+        WenXinException cause = assertInstanceOf(WenXinException.class, e.getCause());
+        assertEquals(ErrorCode.TASK_DROPPED.getCode(), cause.getCode());
+    }
+
+}
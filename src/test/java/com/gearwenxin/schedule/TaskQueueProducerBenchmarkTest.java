@@ -0,0 +1,100 @@
+package com.gearwenxin.schedule;
+
+import com.gearwenxin.config.ModelConfig;
+import com.gearwenxin.entity.enums.ModelType;
+import com.gearwenxin.schedule.entity.ChatTask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * addTask 入队吞吐随生产者线程数的变化，分别在1个和8个模型上测量；派发线程不运行，每轮结束后清空队列。
+ * <p>
+ * 默认跳过，运行方式：
+ * <pre>
+ * mvn test -Dtest=TaskQueueProducerBenchmarkTest -Dwenxin.benchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "wenxin.benchmark", matches = "true")
+class TaskQueueProducerBenchmarkTest {
+
+    private static final int TASKS = Integer.getInteger("wenxin.benchmark.tasks", 1 << 20);
+    private static final int[] PRODUCERS = {1, 4, 16, 64};
+    private static final int[] MODELS = {1, 8};
+    private static final int ROUNDS = 3;
+
+    private final TaskQueueManager taskManager = TaskQueueManager.getInstance();
+
+    @Test
+    void producerScaling() throws Exception {
+        for (int models : MODELS) {
+            String[] modelNames = new String[models];
+            for (int i = 0; i < models; i++) {
+                modelNames[i] = "producer-benchmark-" + UUID.randomUUID();
+            }
+            for (int producers : PRODUCERS) {
+                for (int round = 0; round < ROUNDS; round++) {
+                    long nanos = produce(modelNames, producers);
+                    drain(modelNames);
+                    System.gc();
+                    System.out.printf("[benchmark] models=%d producers=%d round=%d ops/s=%,d%n",
+                            models, producers, round, (long) (TASKS * 1e9 / nanos));
+                }
+            }
+        }
+    }
+
+    private long produce(String[] modelNames, int producers) throws Exception {
+        int perProducer = TASKS / producers;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    ModelConfig modelConfig = new ModelConfig();
+                    modelConfig.setModelName(modelNames[(producer + i) % modelNames.length]);
+                    taskManager.addTask(ChatTask.builder()
+                            .modelConfig(modelConfig)
+                            .taskType(ModelType.chat)
+                            .taskWeight(1f)
+                            .build());
+                }
+            });
+            threads[p].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    /**
+     * 取出全部任务并移除结果槽位，避免跨轮次累积
+     */
+    private void drain(String[] modelNames) {
+        Exception cancelled = new Exception("benchmark");
+        for (String modelName : modelNames) {
+            ChatTask task;
+            while ((task = taskManager.getTask(modelName)) != null) {
+                taskManager.failTask(task, cancelled);
+                taskManager.takeChatResult(task.getTaskId()).subscribe(result -> {
+                }, error -> {
+                });
+            }
+            assertEquals(0, taskManager.getQueueDepth(modelName));
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.gearwenxin.schedule.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelTaskQueueTest {
+
+    private static final long SECONDS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long now = System.nanoTime();
+
+    @Test
+    void higherWeightPolledFirst() {
+        ModelTaskQueue queue = new ModelTaskQueue();
+        queue.offer(task("w1", null, 1f, now, 0));
+        queue.offer(task("w3", null, 3f, now + 1, 0));
+        queue.offer(task("w2", null, 2f, now + 2, 0));
+        queue.offer(task("w2.04", null, 2.04f, now + 3, 0));
+
+        // 权重精度0.1，2.04与2同桶，按入队顺序
+        assertEquals(List.of("w3", "w2", "w2.04", "w1"), pollAll(queue, 0));
+    }
+
+    @Test
+    void agingLetsLongWaitingLowWeightTaskGoFirst() {
+        ModelTaskQueue queue = new ModelTaskQueue();
+        queue.offer(task("old-low", null, 1f, now - 10 * SECONDS, 0));
+        queue.offer(task("new-high", null, 5f, now, 0));
+        assertEquals(List.of("new-high", "old-low"), pollAll(queue, 0));
+
+        queue.offer(task("old-low", null, 1f, now - 10 * SECONDS, 0));
+        queue.offer(task("new-high", null, 5f, now, 0));
+        // 每秒提升1：1 + 10 > 5
+        assertEquals(List.of("old-low", "new-high"), pollAll(queue, SECONDS));
+    }
+
+    @Test
+    void sameWeightEarliestDeadlineFirst() {
+        ModelTaskQueue queue = new ModelTaskQueue();
+        queue.offer(task("no-deadline", null, 1f, now, 0));
+        queue.offer(task("late", null, 1f, now + 1, now + 5 * SECONDS));
+        queue.offer(task("early", null, 1f, now + 2, now + SECONDS));
+        // 无截止时间的任务视为入队后60秒到期
+        queue.offer(task("very-late", null, 1f, now + 3, now + 90 * SECONDS));
+
+        assertEquals(List.of("early", "late", "no-deadline", "very-late"), pollAll(queue, 0));
+    }
+
+    @Test
+    void pollExpiredRemovesOnlyOverdueTasks() {
+        ModelTaskQueue queue = new ModelTaskQueue();
+        queue.offer(task("expired", null, 1f, now - 2 * SECONDS, now - SECONDS));
+        queue.offer(task("pending", null, 1f, now, now + SECONDS));
+        queue.offer(task("no-deadline", null, 1f, now, 0));
+
+        long wait = queue.nanosToNextDeadline(now);
+        assertEquals(1, wait);
+        assertEquals(List.of("expired"), queue.pollExpired(now).stream().map(ChatTask::getTaskId).toList());
+        assertEquals(2, queue.size());
+        assertEquals(SECONDS, queue.nanosToNextDeadline(now));
+
+        assertEquals(List.of("pending", "no-deadline"), pollAll(queue, 0));
+        assertEquals(-1, queue.nanosToNextDeadline(now));
+        assertTrue(queue.pollExpired(now + 100 * SECONDS).isEmpty());
+    }
+
+    @Test
+    void burstOfOneUserDoesNotDelayAnother() {
+        ModelTaskQueue queue = new ModelTaskQueue();
+        for (int i = 0; i < 100; i++) {
+            queue.offer(task("a" + i, "alice", 1f, now + i, 0));
+        }
+        queue.offer(task("b0", "bob", 1f, now + 100, 0));
+
+        List<String> order = pollAll(queue, 0);
+        // 先到的用户只多派发一个任务
+        assertTrue(order.indexOf("b0") <= 1, "bob dispatched at " + order.indexOf("b0"));
+        assertEquals(101, order.size());
+    }
+
+    @Test
+    void sharesSplitDispatchesProportionally() {
+        UserShareOptions options = new UserShareOptions();
+        options.putShare("alice", 2);
+        ModelTaskQueue queue = new ModelTaskQueue(options);
+        for (int i = 0; i < 60; i++) {
+            queue.offer(task("a" + i, "alice", 1f, now + i, 0));
+            queue.offer(task("b" + i, "bob", 1f, now + i, 0));
+        }
+
+        long alice = 0;
+        for (int i = 0; i < 30; i++) {
+            if (queue.poll(0).getUserId().equals("alice")) {
+                alice++;
+            }
+        }
+        assertEquals(20, alice);
+        assertEquals(2, queue.getActiveUserCount());
+    }
+
+    @Test
+    void userConcurrencyLimitSkipsUserUntilRelease() {
+        UserShareOptions options = new UserShareOptions();
+        options.putConcurrency("alice", 1);
+        ModelTaskQueue queue = new ModelTaskQueue(options);
+        queue.offer(task("a0", "alice", 1f, now, 0));
+        queue.offer(task("a1", "alice", 1f, now + 1, 0));
+        queue.offer(task("b0", "bob", 1f, now + 2, 0));
+
+        ChatTask first = queue.poll(0);
+        assertEquals("a0", first.getTaskId());
+        assertEquals("b0", queue.poll(0).getTaskId());
+        assertNull(queue.poll(0));
+        assertFalse(queue.hasDispatchableTask());
+
+        queue.release(first);
+        assertTrue(queue.hasDispatchableTask());
+        assertEquals("a1", queue.poll(0).getTaskId());
+    }
+
+    @Test
+    void requeueRestoresTaskWithoutLeakingQuotaOrConcurrency() {
+        UserShareOptions options = new UserShareOptions();
+        options.putConcurrency("alice", 1);
+        ModelTaskQueue queue = new ModelTaskQueue(options);
+        queue.offer(task("a0", "alice", 1f, now, 0));
+        queue.offer(task("b0", "bob", 1f, now + 1, 0));
+
+        ChatTask polled = queue.poll(0);
+        assertEquals("a0", polled.getTaskId());
+        queue.requeue(polled);
+
+        // 放回后仍是alice的轮次，且在途数已撤销，不会因并发上限被跳过
+        assertEquals(2, queue.size());
+        assertEquals("a0", queue.poll(0).getTaskId());
+        assertEquals("b0", queue.poll(0).getTaskId());
+    }
+
+    static List<String> pollAll(ModelTaskQueue queue, long agingNanos) {
+        List<String> ids = new ArrayList<>();
+        ChatTask task;
+        while ((task = queue.poll(agingNanos)) != null) {
+            ids.add(task.getTaskId());
+        }
+        return ids;
+    }
+
+    static ChatTask task(String taskId, String userId, Float weight, long enqueueTime, long deadline) {
+        return ChatTask.builder()
+                .taskId(taskId)
+                .userId(userId)
+                .taskWeight(weight)
+                .enqueueTime(enqueueTime)
+                .deadline(deadline)
+                .build();
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.gearwenxin.schedule.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscQueueTest {
+
+    @Test
+    void singleProducerIsFifo() {
+        MpscQueue<Integer> queue = new MpscQueue<>();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        for (int i = 0; i < 100; i++) {
+            queue.offer(i);
+        }
+        assertFalse(queue.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        // 取空后继续可用
+        queue.offer(100);
+        assertEquals(100, queue.poll());
+    }
+
+    /**
+     * 多个生产者与消费者并发：元素不丢不重，同一生产者的元素保持入队顺序
+     */
+    @Test
+    void concurrentProducersKeepPerProducerOrder() throws Exception {
+        int producers = 8;
+        int perProducer = 50_000;
+        MpscQueue<long[]> queue = new MpscQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    queue.offer(new long[]{producer, i});
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+
+        int[] nextSequence = new int[producers];
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < producers * perProducer) {
+            long[] element = queue.poll();
+            if (element == null) {
+                assertTrue(System.nanoTime() < deadline, "timed out after " + received + " elements");
+                Thread.onSpinWait();
+                continue;
+            }
+            int producer = (int) element[0];
+            assertEquals(nextSequence[producer], element[1], "out of order for producer " + producer);
+            nextSequence[producer]++;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(queue.poll());
+        for (int sequence : nextSequence) {
+            assertEquals(perProducer, sequence);
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.gearwenxin.schedule.entity;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 结果交接基准：已移除的BlockingMap与ResultHandoff对比吞吐与请求结束后残留的堆内存。
+ * 多个调用线程提交请求并等待结果，一个完成线程模拟消费线程写入结果。
+ * <p>
+ * 默认跳过，运行方式：
+ * <pre>
+ * mvn test -Dtest=ResultHandoffBenchmarkTest -Dwenxin.benchmark=true -DargLine=-Xmx2g
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "wenxin.benchmark", matches = "true")
+class ResultHandoffBenchmarkTest {
+
+    private static final int REQUESTS = Integer.getInteger("wenxin.benchmark.requests", 1_000_000);
+    private static final int CALLERS = Integer.getInteger("wenxin.benchmark.callers", 8);
+    private static final String STOP = "";
+
+    @Test
+    void blockingMap() throws Exception {
+        BlockingMap<String, CompletableFuture<String>> map = new BlockingMap<>();
+        run("BlockingMap", key -> {
+        }, key -> map.getAndAwait(key).join(), key -> map.putAndNotify(key, CompletableFuture.completedFuture(key)),
+                () -> map.map.size() + map.lockMap.size() + map.conditionMap.size());
+    }
+
+    @Test
+    void resultHandoff() throws Exception {
+        ResultHandoff<String, String> handoff = new ResultHandoff<>();
+        run("ResultHandoff", handoff::create, key -> handoff.take(key).block(), key -> handoff.complete(key, key),
+                handoff::size);
+    }
+
+    private void run(String name, Consumer<String> create, Function<String, String> await, Consumer<String> complete,
+                     IntSupplier entries) throws Exception {
+        long heapBefore = usedHeapAfterGc();
+        BlockingQueue<String> submitted = new LinkedBlockingQueue<>();
+        Thread completer = new Thread(() -> {
+            try {
+                String key;
+                while ((key = submitted.take()) != STOP) {
+                    complete.accept(key);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        completer.start();
+
+        AtomicLong sequence = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(CALLERS);
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLERS; i++) {
+            new Thread(() -> {
+                long n;
+                while ((n = sequence.getAndIncrement()) < REQUESTS) {
+                    String key = "task-" + n;
+                    create.accept(key);
+                    submitted.add(key);
+                    assertEquals(key, await.apply(key));
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.MINUTES));
+        long elapsed = System.nanoTime() - start;
+        submitted.add(STOP);
+        completer.join();
+
+        long retained = usedHeapAfterGc() - heapBefore;
+        System.out.printf("[benchmark] %s requests=%d callers=%d throughput=%.0f ops/s perOp=%.2fus " +
+                        "retainedHeap=%.1fMB (%d B/req) entriesLeft=%d%n",
+                name, REQUESTS, CALLERS, REQUESTS * 1e9 / elapsed, elapsed / 1e3 / REQUESTS,
+                retained / 1048576.0, retained / REQUESTS, entries.getAsInt());
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * 已移除的BlockingMap（见 612ecc4^）中本基准用到的部分，作为对比基线
+     */
+    private static class BlockingMap<K, V> {
+
+        private final Map<K, V> map = new ConcurrentHashMap<>();
+        private final Map<K, Lock> lockMap = new ConcurrentHashMap<>();
+        private final Map<K, Condition> conditionMap = new ConcurrentHashMap<>();
+
+        private void putAndNotify(K key, V value) {
+            Lock lock = getLockForKey(key);
+            lock.lock();
+            try {
+                map.put(key, value);
+                Condition condition = conditionMap.remove(key);
+                if (condition != null) {
+                    condition.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private V getAndAwait(K key) {
+            Lock lock = getLockForKey(key);
+            lock.lock();
+            try {
+                while (!map.containsKey(key)) {
+                    conditionMap.putIfAbsent(key, lockMap.get(key).newCondition());
+                    conditionMap.get(key).await();
+                }
+                return map.get(key);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Lock getLockForKey(K key) {
+            lockMap.putIfAbsent(key, new ReentrantLock());
+            return lockMap.get(key);
+        }
+
+    }
+
+}
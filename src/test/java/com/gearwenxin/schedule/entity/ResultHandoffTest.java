@@ -0,0 +1,71 @@
+package com.gearwenxin.schedule.entity;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultHandoffTest {
+
+    private final ResultHandoff<String, String> handoff = new ResultHandoff<>();
+
+    @Test
+    void takeAfterCompleteRemovesSlot() {
+        CompletableFuture<String> slot = handoff.create("k");
+        assertSame(slot, handoff.create("k"));
+        assertTrue(handoff.complete("k", "v"));
+        assertFalse(handoff.complete("k", "other"));
+
+        assertEquals("v", handoff.take("k").block());
+        assertEquals(0, handoff.size());
+    }
+
+    @Test
+    void takeBeforeCompleteWaitsForResult() {
+        handoff.create("k");
+        Schedulers.parallel().schedule(() -> handoff.complete("k", "v"), 50, TimeUnit.MILLISECONDS);
+
+        assertEquals("v", handoff.take("k").block(Duration.ofSeconds(5)));
+        // 结果在完成线程上发出，block返回时槽位可能尚未移除
+        awaitEmpty();
+    }
+
+    @Test
+    void errorRemovesSlot() {
+        handoff.create("k");
+        handoff.completeExceptionally("k", new IllegalArgumentException("boom"));
+
+        assertThrows(IllegalArgumentException.class, () -> handoff.take("k").block());
+        assertEquals(0, handoff.size());
+    }
+
+    @Test
+    void cancelRemovesSlotAndLaterCompleteIsIgnored() {
+        handoff.create("k");
+        Disposable subscription = handoff.take("k").subscribe();
+        subscription.dispose();
+
+        assertEquals(0, handoff.size());
+        assertNull(handoff.get("k"));
+        assertFalse(handoff.complete("k", "v"));
+    }
+
+    @Test
+    void takeWithoutSlotFails() {
+        assertThrows(IllegalStateException.class, () -> handoff.take("missing").block());
+    }
+
+    private void awaitEmpty() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (handoff.size() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(0, handoff.size());
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.gearwenxin.schedule.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long BASELINE = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void additiveIncreaseUpToMax() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 20);
+        // 每个窗口（约limit个样本）加1
+        for (int i = 0; i < 11; i++) {
+            limiter.onSample(BASELINE);
+        }
+        assertEquals(11, limiter.getLimit());
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.onSample(BASELINE);
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void latencyAboveToleranceBacksOffOncePerWindow() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 20);
+        limiter.onSample(BASELINE);
+
+        limiter.onSample(5 * BASELINE);
+        assertEquals(18, limiter.getLimit());
+        // 同一窗口内的慢请求不再下调
+        limiter.onSample(5 * BASELINE);
+        assertEquals(18, limiter.getLimit());
+    }
+
+    @Test
+    void throttlingHalvesLimitDownToMin() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 40);
+        limiter.onThrottled();
+        assertEquals(10, limiter.getLimit());
+        // 并发请求同时被限流时只下调一次
+        limiter.onThrottled();
+        limiter.onThrottled();
+        assertEquals(10, limiter.getLimit());
+
+        Thread.sleep(150);
+        limiter.onThrottled();
+        assertEquals(5, limiter.getLimit());
+        Thread.sleep(150);
+        limiter.onThrottled();
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void rejectsInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(1, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(5, 6, 10));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(11, 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(5, 5, 4));
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.gearwenxin.schedule.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    @Test
+    void burstIsGrantedThenLimited() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 3, 1);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        long wait = limiter.nanosToNextPermit();
+        assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(1), "wait: " + wait);
+    }
+
+    @Test
+    void tokensRefillAtRate() throws Exception {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100, 1, 1);
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        Thread.sleep(30);
+        assertEquals(0, limiter.nanosToNextPermit());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void refundReturnsTokenUpToBurst() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(0.001, 2, 1);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.refund();
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        // 桶满时归还不会超过容量
+        limiter.refund();
+        limiter.refund();
+        limiter.refund();
+        assertTrue(limiter.getAvailableTokens() <= 2);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    void concurrentAcquireNeverOverGrants() throws Exception {
+        int burst = 1000;
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(0.001, burst, 1);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 500; j++) {
+                    if (limiter.tryAcquire()) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(burst, granted.get());
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(1, 0.5, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(1, 1, 0));
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.gearwenxin.schedule.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBudgetLimiterTest {
+
+    // 每秒恢复约16.7个token，测试期间的恢复量控制在误差范围内
+    private static final long TPM = 1000;
+    private static final double TOLERANCE = 5;
+
+    @Test
+    void reserveUntilBudgetIsExhausted() {
+        TokenBudgetLimiter limiter = new TokenBudgetLimiter(TPM);
+        assertEquals(600, limiter.tryReserve(600));
+        assertEquals(0, limiter.tryReserve(600));
+        assertEquals(400, limiter.getAvailableTokens(), TOLERANCE);
+
+        // 缺200个，按每分钟1000个恢复约12秒
+        long wait = limiter.nanosToAvailable(600);
+        assertEquals(TimeUnit.SECONDS.toNanos(12), wait, TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(0, limiter.nanosToAvailable(300));
+    }
+
+    @Test
+    void reconcileRefundsUnusedReservation() {
+        TokenBudgetLimiter limiter = new TokenBudgetLimiter(TPM);
+        long reserved = limiter.tryReserve(600);
+        limiter.reconcile(reserved, 100);
+
+        assertEquals(900, limiter.getAvailableTokens(), TOLERANCE);
+        // 归还后不超过容量
+        limiter.reconcile(500, 0);
+        assertEquals(TPM, limiter.getAvailableTokens(), TOLERANCE);
+    }
+
+    @Test
+    void reconcileChargesOverageBelowZero() {
+        TokenBudgetLimiter limiter = new TokenBudgetLimiter(TPM);
+        long reserved = limiter.tryReserve(600);
+        limiter.reconcile(reserved, 1500);
+
+        assertEquals(-500, limiter.getAvailableTokens(), TOLERANCE);
+        assertEquals(0, limiter.tryReserve(1));
+        assertEquals(TimeUnit.SECONDS.toNanos(30), limiter.nanosToAvailable(1), TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    void reservationIsClampedToCapacity() {
+        TokenBudgetLimiter limiter = new TokenBudgetLimiter(TPM);
+        // 超大请求按容量预留，额度满时可以派发
+        assertEquals(TPM, limiter.tryReserve(5000));
+        assertEquals(0, limiter.tryReserve(1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBudgetLimiter(0));
+    }
+
+}
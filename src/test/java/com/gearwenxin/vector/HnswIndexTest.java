@@ -0,0 +1,148 @@
+package com.gearwenxin.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 16;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void searchMatchesBruteForce() {
+        Random random = new Random(1);
+        List<float[]> vectors = randomVectors(random, 2000);
+        HnswIndex index = new HnswIndex(16, 100, 64, 7L);
+        for (int i = 0; i < vectors.size(); i++) {
+            index.add(i, vectors.get(i));
+        }
+
+        int k = 10;
+        int hits = 0;
+        int queries = 100;
+        for (int q = 0; q < queries; q++) {
+            float[] query = gaussian(random);
+            List<Long> expected = bruteForce(vectors, query, k);
+            for (SearchResult result : index.search(query, k)) {
+                if (expected.contains(result.id())) {
+                    hits++;
+                }
+            }
+        }
+        double recall = hits / (double) (queries * k);
+        assertTrue(recall > 0.9, "recall@10 = " + recall);
+    }
+
+    @Test
+    void removedAndOverwrittenIdsAreNotReturned() {
+        HnswIndex index = new HnswIndex();
+        float[] target = gaussian(new Random(2));
+        index.add(1, target);
+        index.add(2, gaussian(new Random(3)));
+        index.add(3, gaussian(new Random(4)));
+
+        assertEquals(1, index.search(target, 1).get(0).id());
+        index.remove(1);
+        assertTrue(index.search(target, 3).stream().noneMatch(r -> r.id() == 1));
+        assertEquals(2, index.size());
+
+        // 覆盖写入后按新向量命中，旧节点不再返回
+        index.add(2, target);
+        List<SearchResult> results = index.search(target, 3);
+        assertEquals(2, results.get(0).id());
+        assertEquals(1, results.stream().filter(r -> r.id() == 2).count());
+    }
+
+    @Test
+    void compactKeepsLiveNodes() {
+        Random random = new Random(5);
+        List<float[]> vectors = randomVectors(random, 500);
+        HnswIndex index = new HnswIndex(16, 100, 64, 7L);
+        for (int i = 0; i < vectors.size(); i++) {
+            index.add(i, vectors.get(i));
+        }
+        for (int i = 0; i < vectors.size(); i += 2) {
+            index.remove(i);
+        }
+        assertEquals(250, index.getDeletedCount());
+
+        index.compact();
+        assertEquals(0, index.getDeletedCount());
+        assertEquals(250, index.size());
+        for (int i = 1; i < vectors.size(); i += 50) {
+            assertEquals(i, index.search(vectors.get(i), 1).get(0).id());
+        }
+    }
+
+    @Test
+    void saveAndLoadRoundTrip() throws IOException {
+        Random random = new Random(6);
+        List<float[]> vectors = randomVectors(random, 300);
+        HnswIndex index = new HnswIndex(16, 100, 64, 7L);
+        for (int i = 0; i < vectors.size(); i++) {
+            index.add(i, vectors.get(i));
+        }
+        index.remove(0);
+        Path path = dir.resolve("index.hnsw");
+        index.save(path);
+
+        HnswIndex loaded = HnswIndex.load(path);
+        assertEquals(index.size(), loaded.size());
+        assertEquals(index.getDeletedCount(), loaded.getDeletedCount());
+        for (int q = 0; q < 20; q++) {
+            float[] query = gaussian(random);
+            assertEquals(index.search(query, 5), loaded.search(query, 5));
+        }
+    }
+
+    /**
+     * 精确计算的余弦相似度topK
+     */
+    static List<Long> bruteForce(List<float[]> vectors, float[] query, int k) {
+        float[] normalizedQuery = VectorUtils.normalize(query);
+        List<Long> ids = new ArrayList<>(vectors.size());
+        float[] scores = new float[vectors.size()];
+        for (int i = 0; i < vectors.size(); i++) {
+            scores[i] = VectorUtils.dot(VectorUtils.normalize(vectors.get(i)), normalizedQuery);
+            ids.add((long) i);
+        }
+        ids.sort(Comparator.comparingDouble(id -> -scores[id.intValue()]));
+        return ids.subList(0, k);
+    }
+
+    static List<float[]> randomVectors(Random random, int count) {
+        return randomVectors(random, count, DIMENSION);
+    }
+
+    static List<float[]> randomVectors(Random random, int count, int dimension) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vectors.add(gaussian(random, dimension));
+        }
+        return vectors;
+    }
+
+    private static float[] gaussian(Random random) {
+        return gaussian(random, DIMENSION);
+    }
+
+    static float[] gaussian(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.gearwenxin.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HNSW参数扫描：M × efSearch 下的 recall@10 与单线程查询吞吐，基准为精确计算的topK。
+ * <p>
+ * 默认跳过，运行方式：
+ * <pre>
+ * mvn test -Dtest=HnswRecallBenchmarkTest -Dwenxin.benchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "wenxin.benchmark", matches = "true")
+class HnswRecallBenchmarkTest {
+
+    private static final int DIMENSION = 64;
+    private static final int VECTORS = Integer.getInteger("wenxin.benchmark.vectors", 20_000);
+    private static final int QUERIES = 500;
+    private static final int K = 10;
+    private static final int[] M_VALUES = {16, 24, 32};
+    private static final int[] EF_VALUES = {64, 128, 256};
+
+    @Test
+    void recallSweep() {
+        Random random = new Random(42);
+        List<float[]> vectors = HnswIndexTest.randomVectors(random, VECTORS, DIMENSION);
+        List<float[]> queries = HnswIndexTest.randomVectors(random, QUERIES, DIMENSION);
+        List<Set<Long>> expected = exactTopK(vectors, queries);
+
+        for (int m : M_VALUES) {
+            long buildStart = System.nanoTime();
+            HnswIndex index = new HnswIndex(m, HnswIndex.DEFAULT_EF_CONSTRUCTION, EF_VALUES[0], 42L);
+            for (int i = 0; i < vectors.size(); i++) {
+                index.add(i, vectors.get(i));
+            }
+            long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStart);
+
+            for (int ef : EF_VALUES) {
+                index.setEfSearch(ef);
+                // 预热
+                queries.forEach(query -> index.search(query, K));
+                int hits = 0;
+                long start = System.nanoTime();
+                for (int q = 0; q < queries.size(); q++) {
+                    for (SearchResult result : index.search(queries.get(q), K)) {
+                        if (expected.get(q).contains(result.id())) {
+                            hits++;
+                        }
+                    }
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("[benchmark] M=%d ef=%d recall@%d=%.3f qps=%.0f build=%dms%n",
+                        m, ef, K, hits / (double) (queries.size() * K), queries.size() / seconds, buildMillis);
+            }
+        }
+    }
+
+    private static List<Set<Long>> exactTopK(List<float[]> vectors, List<float[]> queries) {
+        List<float[]> normalized = vectors.stream().map(VectorUtils::normalize).toList();
+        List<Set<Long>> result = new ArrayList<>(queries.size());
+        for (float[] query : queries) {
+            float[] normalizedQuery = VectorUtils.normalize(query);
+            // 小顶堆保留得分最高的K个
+            PriorityQueue<SearchResult> heap = new PriorityQueue<>(Comparator.comparingDouble(SearchResult::score));
+            for (int i = 0; i < normalized.size(); i++) {
+                heap.add(new SearchResult(i, VectorUtils.dot(normalized.get(i), normalizedQuery)));
+                if (heap.size() > K) {
+                    heap.poll();
+                }
+            }
+            Set<Long> ids = new HashSet<>();
+            heap.forEach(entry -> ids.add(entry.id()));
+            result.add(ids);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.gearwenxin.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedVectorStoreTest {
+
+    private static final int DIMENSION = 4;
+    // 8字节id + 4个float + 4字节校验
+    private static final int RECORD_BYTES = 28;
+    private static final int HEADER_BYTES = 64;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopenRestoresCommittedRecords() throws IOException {
+        Path path = dir.resolve("vectors.bin");
+        try (MappedVectorStore store = MappedVectorStore.open(path, DIMENSION)) {
+            assertEquals(0, store.append(10, vector(1)));
+            assertEquals(1, store.append(20, vector(2)));
+            assertEquals(2, store.append(10, vector(3)));
+        }
+
+        try (MappedVectorStore store = MappedVectorStore.open(path, DIMENSION)) {
+            assertEquals(3, store.size());
+            // 重复id返回最后一次写入
+            assertArrayEquals(vector(3), store.get(10));
+            assertArrayEquals(vector(2), store.get(20));
+            assertNull(store.get(30));
+            assertEquals(20, store.idAt(1));
+
+            List<Long> ids = new ArrayList<>();
+            store.scan((id, ordinal, v) -> ids.add(id));
+            assertEquals(List.of(10L, 20L, 10L), ids);
+
+            // 索引建立后追加的记录可按id查询
+            store.append(30, vector(4));
+            assertArrayEquals(vector(4), store.get(30));
+        }
+    }
+
+    @Test
+    void truncatedFileKeepsCompleteRecords() throws IOException {
+        Path path = dir.resolve("vectors.bin");
+        try (MappedVectorStore store = MappedVectorStore.open(path, DIMENSION)) {
+            for (int i = 0; i < 3; i++) {
+                store.append(i, vector(i));
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(HEADER_BYTES + 2 * RECORD_BYTES + 10);
+        }
+
+        try (MappedVectorStore store = MappedVectorStore.open(path, DIMENSION)) {
+            assertEquals(2, store.size());
+            assertArrayEquals(vector(1), store.get(1));
+            assertNull(store.get(2));
+            assertEquals(2, store.append(5, vector(5)));
+            assertArrayEquals(vector(5), store.get(5));
+        }
+    }
+
+    /**
+     * 上次刷盘之后的记录校验失败时（文件头先于数据落盘），丢弃该记录及之后的记录
+     */
+    @Test
+    void tornRecordAfterLastSyncIsDiscarded() throws IOException {
+        Path path = dir.resolve("vectors.bin");
+        try (MappedVectorStore writer = MappedVectorStore.open(path, DIMENSION)) {
+            writer.append(0, vector(0));
+            writer.append(1, vector(1));
+            writer.sync();
+            writer.append(2, vector(2));
+            writer.append(3, vector(3));
+            // 模拟第3条记录的数据页未落盘
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(RECORD_BYTES), HEADER_BYTES + 2L * RECORD_BYTES);
+            }
+
+            try (MappedVectorStore store = MappedVectorStore.open(path, DIMENSION)) {
+                assertEquals(2, store.size());
+                assertArrayEquals(vector(1), store.get(1));
+                assertNull(store.get(3));
+            }
+        }
+    }
+
+    @Test
+    void rejectsMismatchedDimensionAndVersion() throws IOException {
+        Path path = dir.resolve("vectors.bin");
+        MappedVectorStore.open(path, DIMENSION).close();
+        assertThrows(IOException.class, () -> MappedVectorStore.open(path, DIMENSION + 1));
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 1), 4);
+        }
+        assertThrows(IOException.class, () -> MappedVectorStore.open(path, DIMENSION));
+    }
+
+    private static float[] vector(int seed) {
+        return new float[]{seed, seed + 0.5f, -seed, seed * 2};
+    }
+
+}